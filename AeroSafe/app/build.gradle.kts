@@ -33,6 +33,10 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        // Lets JVM tests run code that logs through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -65,6 +69,12 @@ dependencies {
     implementation("androidx.recyclerview:recyclerview:1.3.2")
     implementation("androidx.swiperefreshlayout:swiperefreshlayout:1.1.0")
 
+    // Lifecycle
+    implementation("androidx.lifecycle:lifecycle-livedata:2.6.2")
+
+    // Background work
+    implementation("androidx.work:work-runtime:2.9.0")
+
     // Image Loading
     implementation("com.github.bumptech.glide:glide:4.16.0")
 
@@ -73,6 +83,7 @@ dependencies {
 
     // Testing
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.11.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.aerotutorial;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 
@@ -16,13 +17,18 @@ import com.example.aerotutorial.fragments.AdminAlertsFragment;
 import com.example.aerotutorial.fragments.AdminOverviewFragment;
 import com.example.aerotutorial.fragments.AdminReportsFragment;
 import com.example.aerotutorial.fragments.AdminUsersFragment;
+import com.example.aerotutorial.repository.AlertRepository;
 import com.example.aerotutorial.repository.AuthRepository;
+import com.example.aerotutorial.repository.IssueRepository;
+import com.example.aerotutorial.repository.PredictionRepository;
+import com.example.aerotutorial.repository.StatsRepository;
 import com.example.aerotutorial.utils.PreferencesManager;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
 
 public class AdminDashboardActivity extends AppCompatActivity {
+    private static final String TAG = "AdminDashboardActivity";
 
     private MaterialToolbar toolbar;
     private TabLayout tabLayout;
@@ -41,6 +47,77 @@ public class AdminDashboardActivity extends AppCompatActivity {
 
         authRepository = new AuthRepository();
         prefsManager = new PreferencesManager(this);
+
+        sweepExpiredAlerts();
+        runMigrations();
+    }
+
+    // One-time backfills; the flag saves the marker read on later launches
+    private void runMigrations() {
+        if (!prefsManager.isMigrationDone(IssueRepository.INDEX_KEYS_MIGRATION)) {
+            new IssueRepository().migrateIndexKeys(new IssueRepository.MigrationCallback() {
+                @Override
+                public void onComplete(int updatedCount) {
+                    Log.d(TAG, "Issue index key migration done, " + updatedCount + " updated");
+                    prefsManager.setMigrationDone(IssueRepository.INDEX_KEYS_MIGRATION);
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    // Retried on the next launch
+                    Log.e(TAG, "Issue index key migration failed: " + error);
+                }
+            });
+        }
+
+        if (prefsManager.isMigrationDone(PredictionRepository.COMPOSITE_KEYS_MIGRATION)) {
+            return;
+        }
+        new PredictionRepository().migrateCompositeKeys(new PredictionRepository.MigrationCallback() {
+            @Override
+            public void onComplete(int updatedCount) {
+                Log.d(TAG, "Prediction key migration done, " + updatedCount + " updated");
+                prefsManager.setMigrationDone(PredictionRepository.COMPOSITE_KEYS_MIGRATION);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                // Retried on the next launch
+                Log.e(TAG, "Prediction key migration failed: " + error);
+            }
+        });
+    }
+
+    // Archive expired alerts so the active list and counters only cover live ones
+    private void sweepExpiredAlerts() {
+        new AlertRepository().sweepExpired(new AlertRepository.SweepCallback() {
+            @Override
+            public void onComplete(int archived) {
+                Log.d(TAG, "Archived " + archived + " expired alerts");
+                reconcileStatsIfStale();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Alert sweep failed: " + error);
+                reconcileStatsIfStale();
+            }
+        });
+    }
+
+    // Counter deltas written after a transaction can be lost; rebuild stats/ once per interval
+    private void reconcileStatsIfStale() {
+        new StatsRepository().reconcileIfStale(new StatsRepository.ReconcileCallback() {
+            @Override
+            public void onComplete(StatsRepository.Stats stats) {
+                Log.d(TAG, "Stats checked");
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Stats reconcile failed: " + error);
+            }
+        });
     }
 
     private void initViews() {
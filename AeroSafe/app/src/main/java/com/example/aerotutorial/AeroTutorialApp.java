@@ -3,6 +3,10 @@ package com.example.aerotutorial;
 import android.app.Application;
 import android.util.Log;
 
+import com.example.aerotutorial.api.RetrofitClient;
+import com.example.aerotutorial.repository.ResearchDataStore;
+import com.example.aerotutorial.utils.AqiPollWorker;
+import com.example.aerotutorial.utils.AqiTileCache;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.database.FirebaseDatabase;
 
@@ -13,6 +17,13 @@ public class AeroTutorialApp extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // Enable the HTTP disk cache before any API call is made
+        RetrofitClient.init(this);
+        AqiTileCache.init(this);
+
+        // Background AQI checks for the saved location; keeps an existing schedule
+        AqiPollWorker.schedule(this);
+
         try {
             // Initialize Firebase
             FirebaseApp.initializeApp(this);
@@ -21,6 +32,9 @@ public class AeroTutorialApp extends Application {
             FirebaseDatabase.getInstance().setPersistenceEnabled(true);
 
             Log.d(TAG, "Firebase initialized successfully");
+
+            // Local research_data mirror; syncs from the database above
+            ResearchDataStore.init(this);
         } catch (Exception e) {
             Log.e(TAG, "Error initializing Firebase: " + e.getMessage(), e);
         }
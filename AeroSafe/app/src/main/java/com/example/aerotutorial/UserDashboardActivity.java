@@ -13,33 +13,41 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.aerotutorial.api.RetrofitClient;
-import com.example.aerotutorial.models.AirPollutionResponse;
+import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.models.GeocodingResponse;
+import com.example.aerotutorial.models.Issue;
+import com.example.aerotutorial.repository.AQIRepository;
 import com.example.aerotutorial.repository.AuthRepository;
+import com.example.aerotutorial.repository.IssueRepository;
 import com.example.aerotutorial.utils.AQICalculator;
 import com.example.aerotutorial.utils.ChartHelper;
+import com.example.aerotutorial.utils.NearbyAlertNotifier;
 import com.example.aerotutorial.utils.PredictionEngine;
 import com.example.aerotutorial.utils.PreferencesManager;
+import com.example.aerotutorial.utils.SlidingRegression;
+import com.example.aerotutorial.utils.SpatialIndex;
 import com.github.mikephil.charting.charts.LineChart;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class UserDashboardActivity extends AppCompatActivity implements OnMapReadyCallback {
 
+    // Number of readings kept for the trend chart and prediction
+    private static final int HISTORY_WINDOW = 7;
+    // Recent issues loaded into the issue index, and how far from a tap they are shown
+    private static final int RECENT_ISSUES = 100;
+    private static final double NEARBY_ISSUE_METERS = 3000;
+
     private MaterialToolbar toolbar;
     private TextInputEditText etSearchLocation;
     private MaterialButton btnSearch, btnReportIssue, btnViewAlerts;
@@ -51,12 +59,13 @@ public class UserDashboardActivity extends AppCompatActivity implements OnMapRea
 
     private GoogleMap googleMap;
     private AuthRepository authRepository;
+    private AQIRepository aqiRepository;
     private PreferencesManager prefsManager;
 
     private double selectedLat = 23.8103;
     private double selectedLon = 90.4125;
     private String selectedLocation = "Dhaka, Bangladesh";
-    private List<Integer> aqiHistory = new ArrayList<>();
+    private final SlidingRegression aqiHistory = new SlidingRegression(HISTORY_WINDOW);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -69,7 +78,10 @@ public class UserDashboardActivity extends AppCompatActivity implements OnMapRea
         setupListeners();
 
         authRepository = new AuthRepository();
+        aqiRepository = new AQIRepository();
         prefsManager = new PreferencesManager(this);
+
+        subscribeToNearbyAlerts();
     }
 
     private void initViews() {
@@ -121,12 +133,69 @@ public class UserDashboardActivity extends AppCompatActivity implements OnMapRea
             selectedLon = latLng.longitude;
             googleMap.clear();
             googleMap.addMarker(new MarkerOptions().position(latLng).title("Selected Location"));
+            showNearbyIssues(latLng, true);
             fetchAQIData();
         });
 
+        loadRecentIssues();
         fetchAQIData();
     }
 
+    // One page of the newest issues fills the issue index for map taps
+    private void loadRecentIssues() {
+        new IssueRepository().getIssuesPage(IssueRepository.IssueFilter.all(), null, RECENT_ISSUES,
+            new IssueRepository.IssuePageCallback() {
+                @Override
+                public void onSuccess(IssueRepository.IssuePage page) {
+                    if (isFinishing() || googleMap == null) return;
+                    showNearbyIssues(new LatLng(selectedLat, selectedLon), false);
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    // Issue markers are optional; the dashboard works without them
+                }
+            });
+    }
+
+    // Reported issues around a point, looked up in the in-memory index
+    private void showNearbyIssues(LatLng point, boolean announce) {
+        List<SpatialIndex.Neighbor<Issue>> nearby = IssueRepository.getIssueIndex()
+            .withinRadius(point.latitude, point.longitude, NEARBY_ISSUE_METERS);
+        for (SpatialIndex.Neighbor<Issue> neighbor : nearby) {
+            Issue issue = neighbor.getItem();
+            googleMap.addMarker(new MarkerOptions()
+                .position(new LatLng(issue.getLatitude(), issue.getLongitude()))
+                .title(issue.getIssueType())
+                .snippet(issue.getStatus())
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_ORANGE)));
+        }
+        if (announce && !nearby.isEmpty()) {
+            Toast.makeText(this, nearby.size() + " reported issues within "
+                + (int) (NEARBY_ISSUE_METERS / 1000) + " km", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // Government alerts for the user's saved location and the cells around it
+    private void subscribeToNearbyAlerts() {
+        String location = prefsManager.getUserLocation();
+        if (location.trim().isEmpty()) {
+            return;
+        }
+        aqiRepository.geocodeLocation(location.trim(), new AQIRepository.GeocodeCallback() {
+            @Override
+            public void onSuccess(GeocodingResponse place) {
+                if (isFinishing()) return;
+                NearbyAlertNotifier.start(UserDashboardActivity.this, place.getLat(), place.getLon());
+            }
+
+            @Override
+            public void onFailure(String error) {
+                // Alerts are optional; the dashboard works without them
+            }
+        });
+    }
+
     private void searchLocation() {
         String query = etSearchLocation.getText().toString().trim();
         if (query.isEmpty()) {
@@ -139,47 +208,24 @@ public class UserDashboardActivity extends AppCompatActivity implements OnMapRea
     private void fetchAQIData() {
         progressBar.setVisibility(View.VISIBLE);
 
-        // Use the working API key from AQIRepository instead of placeholder
-        String apiKey = prefsManager.getApiKey();
-        if (apiKey.isEmpty() || apiKey.equals("YOUR_API_KEY")) {
-            // Use the working API key from AQIRepository as fallback
-            apiKey = "98e192f418b2437e52cb54df708958f9";
-        }
-
-        RetrofitClient.getOpenWeatherApi()
-            .getAirPollution(selectedLat, selectedLon, apiKey)
-            .enqueue(new Callback<AirPollutionResponse>() {
-                @Override
-                public void onResponse(Call<AirPollutionResponse> call, Response<AirPollutionResponse> response) {
-                    progressBar.setVisibility(View.GONE);
-                    if (response.isSuccessful() && response.body() != null) {
-                        displayAQIData(response.body());
-                    } else {
-                        showError("Failed to fetch data");
-                    }
-                }
-
-                @Override
-                public void onFailure(Call<AirPollutionResponse> call, Throwable t) {
-                    progressBar.setVisibility(View.GONE);
-                    showError("Network error: " + t.getMessage());
-                }
-            });
+        // Reads through the shared tile cache; a newer tap supersedes this one
+        aqiRepository.fetchAQIForSelection(selectedLat, selectedLon, new AQIRepository.AQICallback() {
+            @Override
+            public void onSuccess(AirQualityData data) {
+                progressBar.setVisibility(View.GONE);
+                displayAQIData(data);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                progressBar.setVisibility(View.GONE);
+                showError(error);
+            }
+        });
     }
 
-    private void displayAQIData(AirPollutionResponse response) {
-        if (response.getList() == null || response.getList().isEmpty()) {
-            showError("No data available");
-            return;
-        }
-
-        AirPollutionResponse.AirData data = response.getList().get(0);
-        AirPollutionResponse.Components components = data.getComponents();
-
-        int aqi = AQICalculator.calculateOverallAQI(
-            components.getPm25(), components.getPm10(), components.getNo2(),
-            components.getO3(), components.getSo2(), components.getCo()
-        );
+    private void displayAQIData(AirQualityData data) {
+        int aqi = data.getAqi();
 
         tvCurrentAQI.setText(String.valueOf(aqi));
         String category = AQICalculator.getAQICategory(aqi);
@@ -194,9 +240,8 @@ public class UserDashboardActivity extends AppCompatActivity implements OnMapRea
         tvHealthAlert.setTextColor(aqiColor);
 
         aqiHistory.add(aqi);
-        if (aqiHistory.size() > 7) aqiHistory.remove(0);
 
-        ChartHelper.setupLineChart(lineChart, aqiHistory);
+        ChartHelper.setupLineChart(lineChart, aqiHistory.toArray());
 
         if (aqiHistory.size() >= 2) {
             PredictionEngine.PredictionResult result = PredictionEngine.predictNextDay(aqiHistory);
@@ -237,6 +282,17 @@ public class UserDashboardActivity extends AppCompatActivity implements OnMapRea
         tvHealthAlert.setText(message);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (aqiRepository != null) {
+            aqiRepository.cancelSelection();
+        }
+        if (isFinishing()) {
+            NearbyAlertNotifier.stop();
+        }
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.dashboard_menu, menu);
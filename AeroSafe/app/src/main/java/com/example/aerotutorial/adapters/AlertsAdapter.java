@@ -15,20 +15,36 @@ import com.google.android.material.button.MaterialButton;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.ViewHolder> {
+public class AlertsAdapter extends KeyedListAdapter<Alert, AlertsAdapter.ViewHolder> {
 
-    private final List<Alert> alertsList;
     private final OnDeactivateClickListener deactivateListener;
 
     public interface OnDeactivateClickListener {
         void onDeactivate(Alert alert);
     }
 
-    public AlertsAdapter(List<Alert> alertsList, OnDeactivateClickListener deactivateListener) {
-        this.alertsList = alertsList;
+    private static final KeyedItemCallback<Alert> DIFF_CALLBACK = new KeyedItemCallback<Alert>() {
+        @Override
+        public String getKey(@NonNull Alert alert) {
+            return alert.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Alert oldAlert, @NonNull Alert newAlert) {
+            return Objects.equals(oldAlert.getAlertType(), newAlert.getAlertType())
+                && Objects.equals(oldAlert.getSeverity(), newAlert.getSeverity())
+                && Objects.equals(oldAlert.getLocation(), newAlert.getLocation())
+                && oldAlert.getCreatedDate() == newAlert.getCreatedDate()
+                && Objects.equals(oldAlert.getMessage(), newAlert.getMessage())
+                && Objects.equals(oldAlert.getCreatedBy(), newAlert.getCreatedBy());
+        }
+    };
+
+    public AlertsAdapter(OnDeactivateClickListener deactivateListener) {
+        super(DIFF_CALLBACK);
         this.deactivateListener = deactivateListener;
     }
 
@@ -41,9 +57,7 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.ViewHolder
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Alert alert = alertsList.get(position);
-
+    protected void onBindItem(@NonNull ViewHolder holder, @NonNull Alert alert, int position) {
         // Alert type
         holder.tvAlertType.setText("🚨 " + alert.getAlertType());
 
@@ -73,11 +87,6 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.ViewHolder
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return alertsList.size();
-    }
-
     private int getSeverityColor(String severity) {
         switch (severity.toLowerCase()) {
             case "low":
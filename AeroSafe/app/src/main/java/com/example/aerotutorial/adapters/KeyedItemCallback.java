@@ -0,0 +1,20 @@
+package com.example.aerotutorial.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+/**
+ * DiffUtil callback for items identified by their Firebase key.
+ * Subclasses compare only the fields their row displays.
+ */
+public abstract class KeyedItemCallback<T> extends DiffUtil.ItemCallback<T> {
+
+    public abstract String getKey(@NonNull T item);
+
+    @Override
+    public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+        return Objects.equals(getKey(oldItem), getKey(newItem));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.aerotutorial.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * ListAdapter for Firebase-backed rows.
+ * Submitted lists are diffed on a background thread, so only rows whose item
+ * changed are rebound. Row ids are derived from the Firebase key.
+ */
+public abstract class KeyedListAdapter<T, VH extends RecyclerView.ViewHolder>
+        extends ListAdapter<T, VH> {
+
+    // DiffUtil is O(N·D); a jump in size this large (e.g. a filter over the
+    // local mirror) is cheaper to swap in without diffing
+    static final int MAX_DIFFED_SIZE_CHANGE = 1000;
+
+    private final KeyedItemCallback<T> itemCallback;
+
+    protected KeyedListAdapter(@NonNull KeyedItemCallback<T> itemCallback) {
+        super(itemCallback);
+        this.itemCallback = itemCallback;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public void submitList(@Nullable List<T> list) {
+        if (list != null && Math.abs(list.size() - getItemCount()) > MAX_DIFFED_SIZE_CHANGE) {
+            super.submitList(null);
+        }
+        super.submitList(list);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableId(itemCallback.getKey(getItem(position)));
+    }
+
+    @Override
+    public final void onBindViewHolder(@NonNull VH holder, int position) {
+        onBindItem(holder, getItem(position), position);
+    }
+
+    protected abstract void onBindItem(@NonNull VH holder, @NonNull T item, int position);
+
+    // 64-bit FNV-1a of the key; String.hashCode collides too easily for ids
+    static long stableId(String key) {
+        if (key == null) {
+            return RecyclerView.NO_ID;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
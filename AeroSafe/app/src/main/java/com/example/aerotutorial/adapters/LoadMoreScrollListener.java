@@ -0,0 +1,49 @@
+package com.example.aerotutorial.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Asks for more rows when the last visible row is within prefetchDistance of the end,
+ * and passes the first visible position on when scrolling up so evicted rows can be read back
+ */
+public class LoadMoreScrollListener extends RecyclerView.OnScrollListener {
+
+    public static final int DEFAULT_PREFETCH_DISTANCE = 15;
+
+    private final LinearLayoutManager layoutManager;
+    private final int prefetchDistance;
+    private final Runnable loadMore;
+    private final IntConsumer loadNewer;
+
+    public LoadMoreScrollListener(LinearLayoutManager layoutManager, Runnable loadMore,
+                                  IntConsumer loadNewer) {
+        this(layoutManager, DEFAULT_PREFETCH_DISTANCE, loadMore, loadNewer);
+    }
+
+    public LoadMoreScrollListener(LinearLayoutManager layoutManager, int prefetchDistance,
+                                  Runnable loadMore, IntConsumer loadNewer) {
+        this.layoutManager = layoutManager;
+        this.prefetchDistance = prefetchDistance;
+        this.loadMore = loadMore;
+        this.loadNewer = loadNewer;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy < 0) {
+            loadNewer.accept(layoutManager.findFirstVisibleItemPosition());
+            return;
+        }
+        if (dy == 0) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= layoutManager.getItemCount() - 1 - prefetchDistance) {
+            loadMore.run();
+        }
+    }
+}
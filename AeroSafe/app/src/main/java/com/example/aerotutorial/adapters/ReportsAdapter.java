@@ -15,20 +15,37 @@ import com.google.android.material.button.MaterialButton;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class ReportsAdapter extends RecyclerView.Adapter<ReportsAdapter.ViewHolder> {
+public class ReportsAdapter extends KeyedListAdapter<Report, ReportsAdapter.ViewHolder> {
 
-    private final List<Report> reportsList;
     private final OnReportActionListener actionListener;
 
     public interface OnReportActionListener {
         void onAction(Report report, String action);
     }
 
-    public ReportsAdapter(List<Report> reportsList, OnReportActionListener actionListener) {
-        this.reportsList = reportsList;
+    private static final KeyedItemCallback<Report> DIFF_CALLBACK = new KeyedItemCallback<Report>() {
+        @Override
+        public String getKey(@NonNull Report report) {
+            return report.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Report oldReport, @NonNull Report newReport) {
+            return Objects.equals(oldReport.getStatus(), newReport.getStatus())
+                && Objects.equals(oldReport.getReporterName(), newReport.getReporterName())
+                && oldReport.getSubmittedDate() == newReport.getSubmittedDate()
+                && Objects.equals(oldReport.getLocation(), newReport.getLocation())
+                && Objects.equals(oldReport.getIssueType(), newReport.getIssueType())
+                && Objects.equals(oldReport.getSeverity(), newReport.getSeverity())
+                && Objects.equals(oldReport.getDescription(), newReport.getDescription());
+        }
+    };
+
+    public ReportsAdapter(OnReportActionListener actionListener) {
+        super(DIFF_CALLBACK);
         this.actionListener = actionListener;
     }
 
@@ -41,11 +58,9 @@ public class ReportsAdapter extends RecyclerView.Adapter<ReportsAdapter.ViewHold
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Report report = reportsList.get(position);
-
-        // Report ID
-        holder.tvReportId.setText("#" + (position + 1));
+    protected void onBindItem(@NonNull ViewHolder holder, @NonNull Report report, int position) {
+        // Report ID (from the key, so the row does not change when others are inserted or removed)
+        holder.tvReportId.setText("#" + shortId(report.getId()));
 
         // Status with color
         holder.tvStatus.setText(report.getStatus());
@@ -96,9 +111,9 @@ public class ReportsAdapter extends RecyclerView.Adapter<ReportsAdapter.ViewHold
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return reportsList.size();
+    private String shortId(String id) {
+        if (id == null) return "";
+        return id.length() > 6 ? id.substring(id.length() - 6) : id;
     }
 
     private int getStatusColor(String status) {
@@ -15,20 +15,41 @@ import com.google.android.material.button.MaterialButton;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class ResearchDataAdapter extends RecyclerView.Adapter<ResearchDataAdapter.ViewHolder> {
+public class ResearchDataAdapter extends KeyedListAdapter<AirQualityData, ResearchDataAdapter.ViewHolder> {
 
-    private final List<AirQualityData> dataList;
     private final OnDeleteClickListener deleteListener;
 
     public interface OnDeleteClickListener {
         void onDelete(AirQualityData data);
     }
 
-    public ResearchDataAdapter(List<AirQualityData> dataList, OnDeleteClickListener deleteListener) {
-        this.dataList = dataList;
+    private static final KeyedItemCallback<AirQualityData> DIFF_CALLBACK =
+        new KeyedItemCallback<AirQualityData>() {
+            @Override
+            public String getKey(@NonNull AirQualityData data) {
+                return data.getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull AirQualityData oldData,
+                                              @NonNull AirQualityData newData) {
+                return oldData.getTimestamp() == newData.getTimestamp()
+                    && Objects.equals(oldData.getLocation(), newData.getLocation())
+                    && oldData.getAqi() == newData.getAqi()
+                    && oldData.getPm25() == newData.getPm25()
+                    && oldData.getPm10() == newData.getPm10()
+                    && oldData.getNo2() == newData.getNo2()
+                    && oldData.getO3() == newData.getO3()
+                    && oldData.getSo2() == newData.getSo2()
+                    && oldData.getCo() == newData.getCo();
+            }
+        };
+
+    public ResearchDataAdapter(OnDeleteClickListener deleteListener) {
+        super(DIFF_CALLBACK);
         this.deleteListener = deleteListener;
     }
 
@@ -41,9 +62,7 @@ public class ResearchDataAdapter extends RecyclerView.Adapter<ResearchDataAdapte
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        AirQualityData data = dataList.get(position);
-
+    protected void onBindItem(@NonNull ViewHolder holder, @NonNull AirQualityData data, int position) {
         // Format timestamp
         SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
         String timestamp = sdf.format(new Date(data.getTimestamp()));
@@ -73,11 +92,6 @@ public class ResearchDataAdapter extends RecyclerView.Adapter<ResearchDataAdapte
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return dataList.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvTimestamp, tvLocation, tvAQI;
         TextView tvPM25, tvPM10, tvNO2, tvO3, tvSO2, tvCO;
@@ -12,14 +12,27 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.aerotutorial.R;
 import com.example.aerotutorial.models.User;
 
-import java.util.List;
+import java.util.Objects;
 
-public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.ViewHolder> {
+public class UsersAdapter extends KeyedListAdapter<User, UsersAdapter.ViewHolder> {
 
-    private final List<User> usersList;
+    private static final KeyedItemCallback<User> DIFF_CALLBACK = new KeyedItemCallback<User>() {
+        @Override
+        public String getKey(@NonNull User user) {
+            return user.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return Objects.equals(oldUser.getUsername(), newUser.getUsername())
+                && Objects.equals(oldUser.getEmail(), newUser.getEmail())
+                && Objects.equals(oldUser.getLocation(), newUser.getLocation())
+                && Objects.equals(oldUser.getRole(), newUser.getRole());
+        }
+    };
 
-    public UsersAdapter(List<User> usersList) {
-        this.usersList = usersList;
+    public UsersAdapter() {
+        super(DIFF_CALLBACK);
     }
 
     @NonNull
@@ -31,9 +44,7 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.ViewHolder>
     }
 
     @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        User user = usersList.get(position);
-
+    protected void onBindItem(@NonNull ViewHolder holder, @NonNull User user, int position) {
         // Username
         holder.tvUsername.setText(user.getUsername());
 
@@ -54,11 +65,6 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.ViewHolder>
         holder.tvRole.setBackgroundColor(getRoleColor(role));
     }
 
-    @Override
-    public int getItemCount() {
-        return usersList.size();
-    }
-
     private String formatRole(String role) {
         if (role == null) return "User";
 
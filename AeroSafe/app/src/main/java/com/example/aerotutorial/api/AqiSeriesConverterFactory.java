@@ -0,0 +1,120 @@
+package com.example.aerotutorial.api;
+
+import com.example.aerotutorial.models.AqiSeries;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Decodes Air Pollution responses straight into an AqiSeries.
+ * Reads the payload with a streaming JsonReader so no AirData, Main or
+ * Components objects are created; fields the series does not store
+ * (main.aqi, no, nh3) are skipped.
+ * Must be registered before GsonConverterFactory.
+ */
+public class AqiSeriesConverterFactory extends Converter.Factory {
+
+    // Typical history chunk: 5 days of hourly points
+    private static final int INITIAL_CAPACITY = 128;
+
+    public static AqiSeriesConverterFactory create() {
+        return new AqiSeriesConverterFactory();
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        if (type == AqiSeries.class) {
+            return new SeriesConverter();
+        }
+        return null;
+    }
+
+    static class SeriesConverter implements Converter<ResponseBody, AqiSeries> {
+        @Override
+        public AqiSeries convert(ResponseBody body) throws IOException {
+            try (JsonReader reader = new JsonReader(body.charStream())) {
+                return read(reader);
+            }
+        }
+    }
+
+    static AqiSeries read(JsonReader reader) throws IOException {
+        AqiSeries.Builder builder = new AqiSeries.Builder(0, 0, INITIAL_CAPACITY);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("coord".equals(name)) {
+                readCoord(reader, builder);
+            } else if ("list".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readEntry(reader, builder);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    private static void readCoord(JsonReader reader, AqiSeries.Builder builder) throws IOException {
+        double lat = 0, lon = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("lat".equals(name)) {
+                lat = reader.nextDouble();
+            } else if ("lon".equals(name)) {
+                lon = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        builder.setCoordinates(lat, lon);
+    }
+
+    private static void readEntry(JsonReader reader, AqiSeries.Builder builder) throws IOException {
+        long dt = 0;
+        float pm25 = 0, pm10 = 0, no2 = 0, o3 = 0, so2 = 0, co = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("dt".equals(name)) {
+                dt = reader.nextLong();
+            } else if ("components".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "pm2_5": pm25 = (float) reader.nextDouble(); break;
+                        case "pm10": pm10 = (float) reader.nextDouble(); break;
+                        case "no2": no2 = (float) reader.nextDouble(); break;
+                        case "o3": o3 = (float) reader.nextDouble(); break;
+                        case "so2": so2 = (float) reader.nextDouble(); break;
+                        case "co": co = (float) reader.nextDouble(); break;
+                        default: reader.skipValue(); break;
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // dt is in seconds, the series stores milliseconds
+        builder.add(dt * 1000L, pm25, pm10, no2, o3, so2, co);
+    }
+}
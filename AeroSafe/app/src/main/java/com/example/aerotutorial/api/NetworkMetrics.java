@@ -0,0 +1,337 @@
+package com.example.aerotutorial.api;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Per-endpoint latency histograms and response sizes for OpenWeather calls.
+ * Timings come from an OkHttp EventListener, so nothing is buffered or logged
+ * on the request path. ResearcherDataViewFragment shows getSnapshot() below
+ * the pollutant cards.
+ */
+public class NetworkMetrics {
+
+    public static final String ENDPOINT_AIR_POLLUTION = "air_pollution";
+    public static final String ENDPOINT_HISTORY = "history";
+    public static final String ENDPOINT_GEOCODE = "geo/1.0/direct";
+    public static final String ENDPOINT_REVERSE = "reverse";
+    public static final String ENDPOINT_OTHER = "other";
+
+    private static final NetworkMetrics INSTANCE = new NetworkMetrics();
+
+    private final Map<String, EndpointMetrics> endpoints = new LinkedHashMap<>();
+
+    private NetworkMetrics() {
+        for (String name : new String[]{ENDPOINT_AIR_POLLUTION, ENDPOINT_HISTORY,
+                ENDPOINT_GEOCODE, ENDPOINT_REVERSE, ENDPOINT_OTHER}) {
+            endpoints.put(name, new EndpointMetrics());
+        }
+    }
+
+    public static NetworkMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public EventListener.Factory eventListenerFactory() {
+        return call -> new CallMetricsListener(endpointFor(call.request().url().encodedPath()));
+    }
+
+    static String endpointFor(String path) {
+        if (path.endsWith("/air_pollution/history")) return ENDPOINT_HISTORY;
+        if (path.endsWith("/air_pollution")) return ENDPOINT_AIR_POLLUTION;
+        if (path.endsWith("/geo/1.0/direct")) return ENDPOINT_GEOCODE;
+        if (path.endsWith("/geo/1.0/reverse")) return ENDPOINT_REVERSE;
+        return ENDPOINT_OTHER;
+    }
+
+    /**
+     * Copy of all counters, safe to read on any thread
+     */
+    public Map<String, EndpointSnapshot> getSnapshot() {
+        Map<String, EndpointSnapshot> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, EndpointMetrics> entry : endpoints.entrySet()) {
+            EndpointMetrics metrics = entry.getValue();
+            synchronized (metrics) {
+                snapshot.put(entry.getKey(), new EndpointSnapshot(entry.getKey(), metrics));
+            }
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        for (String name : endpoints.keySet()) {
+            EndpointMetrics metrics = endpoints.get(name);
+            synchronized (metrics) {
+                metrics.clear();
+            }
+        }
+    }
+
+    /**
+     * Fixed log-scale latency histogram in milliseconds
+     */
+    public static class Histogram {
+        static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+        private final long[] counts;
+        private long count;
+        private long sumMs;
+        private long maxMs;
+
+        Histogram() {
+            counts = new long[BOUNDS_MS.length + 1];
+        }
+
+        Histogram(Histogram other) {
+            counts = other.counts.clone();
+            count = other.count;
+            sumMs = other.sumMs;
+            maxMs = other.maxMs;
+        }
+
+        void record(long ms) {
+            int bucket = 0;
+            while (bucket < BOUNDS_MS.length && ms > BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            count++;
+            sumMs += ms;
+            maxMs = Math.max(maxMs, ms);
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            count = 0;
+            sumMs = 0;
+            maxMs = 0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxMs() {
+            return maxMs;
+        }
+
+        public double getMeanMs() {
+            return count == 0 ? 0 : (double) sumMs / count;
+        }
+
+        public long[] getBucketCounts() {
+            return counts.clone();
+        }
+
+        /**
+         * Upper bucket bound containing the given percentile (0-100)
+         */
+        public long percentileMs(double percentile) {
+            if (count == 0) return 0;
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return i < BOUNDS_MS.length ? BOUNDS_MS[i] : maxMs;
+                }
+            }
+            return maxMs;
+        }
+    }
+
+    private static class EndpointMetrics {
+        final Histogram dns = new Histogram();
+        final Histogram connect = new Histogram();
+        final Histogram tls = new Histogram();
+        final Histogram ttfb = new Histogram();
+        final Histogram total = new Histogram();
+        long requests;
+        long failures;
+        long cacheHits;
+        long responseBytes;
+
+        void clear() {
+            dns.clear();
+            connect.clear();
+            tls.clear();
+            ttfb.clear();
+            total.clear();
+            requests = 0;
+            failures = 0;
+            cacheHits = 0;
+            responseBytes = 0;
+        }
+    }
+
+    /**
+     * Immutable view of one endpoint's metrics
+     */
+    public static class EndpointSnapshot {
+        public final String endpoint;
+        public final Histogram dns;
+        public final Histogram connect;
+        public final Histogram tls;
+        public final Histogram ttfb;
+        public final Histogram total;
+        public final long requests;
+        public final long failures;
+        public final long cacheHits;
+        public final long responseBytes;
+
+        EndpointSnapshot(String endpoint, EndpointMetrics metrics) {
+            this.endpoint = endpoint;
+            this.dns = new Histogram(metrics.dns);
+            this.connect = new Histogram(metrics.connect);
+            this.tls = new Histogram(metrics.tls);
+            this.ttfb = new Histogram(metrics.ttfb);
+            this.total = new Histogram(metrics.total);
+            this.requests = metrics.requests;
+            this.failures = metrics.failures;
+            this.cacheHits = metrics.cacheHits;
+            this.responseBytes = metrics.responseBytes;
+        }
+
+        public long getAverageResponseBytes() {
+            long network = requests - cacheHits;
+            return network <= 0 ? 0 : responseBytes / network;
+        }
+
+        public String toDisplayString() {
+            return String.format(Locale.US,
+                "%s: %d req (%d cached, %d failed), total p50 %dms p95 %dms, "
+                    + "dns %.0fms, connect %.0fms, tls %.0fms, ttfb %.0fms, avg %d B",
+                endpoint, requests, cacheHits, failures,
+                total.percentileMs(50), total.percentileMs(95),
+                dns.getMeanMs(), connect.getMeanMs(), tls.getMeanMs(), ttfb.getMeanMs(),
+                getAverageResponseBytes());
+        }
+    }
+
+    /**
+     * Records the phases of a single call; one instance per call
+     */
+    private class CallMetricsListener extends EventListener {
+        private final String endpoint;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestHeadersStart;
+        private long dnsMs = -1;
+        private long connectMs = -1;
+        private long tlsMs = -1;
+        private long ttfbMs = -1;
+        private long bytes;
+        private boolean cacheHit;
+
+        CallMetricsListener(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                           @NonNull List<InetAddress> inetAddressList) {
+            dnsMs = elapsedMs(dnsStart);
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                                 @NonNull Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+            tlsMs = elapsedMs(secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                               @NonNull Proxy proxy, Protocol protocol) {
+            connectMs = elapsedMs(connectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(@NonNull Call call) {
+            requestHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(@NonNull Call call) {
+            if (requestHeadersStart != 0) {
+                ttfbMs = elapsedMs(requestHeadersStart);
+            }
+        }
+
+        @Override
+        public void responseBodyEnd(@NonNull Call call, long byteCount) {
+            bytes += byteCount;
+        }
+
+        @Override
+        public void cacheHit(@NonNull Call call, @NonNull Response response) {
+            cacheHit = true;
+        }
+
+        @Override
+        public void callEnd(@NonNull Call call) {
+            finish(false);
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            EndpointMetrics metrics = endpoints.get(endpoint);
+            synchronized (metrics) {
+                metrics.requests++;
+                if (failed) metrics.failures++;
+                if (cacheHit) metrics.cacheHits++;
+                if (dnsMs >= 0) metrics.dns.record(dnsMs);
+                if (connectMs >= 0) metrics.connect.record(connectMs);
+                if (tlsMs >= 0) metrics.tls.record(tlsMs);
+                if (ttfbMs >= 0) metrics.ttfb.record(ttfbMs);
+                metrics.total.record(elapsedMs(callStart));
+                if (!cacheHit) metrics.responseBytes += bytes;
+            }
+        }
+
+        private long elapsedMs(long startNanos) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+}
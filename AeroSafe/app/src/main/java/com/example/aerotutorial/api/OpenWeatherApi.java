@@ -1,6 +1,7 @@
 package com.example.aerotutorial.api;
 
 import com.example.aerotutorial.models.AirPollutionResponse;
+import com.example.aerotutorial.models.AqiSeries;
 import com.example.aerotutorial.models.GeocodingResponse;
 
 import java.util.List;
@@ -29,6 +30,16 @@ public interface OpenWeatherApi {
             @Query("appid") String apiKey
     );
 
+    // Historical Air Pollution API decoded straight into columns (see AqiSeriesConverterFactory)
+    @GET("data/2.5/air_pollution/history")
+    Call<AqiSeries> getHistoricalAirPollutionSeries(
+            @Query("lat") double latitude,
+            @Query("lon") double longitude,
+            @Query("start") long start,
+            @Query("end") long end,
+            @Query("appid") String apiKey
+    );
+
     // Geocoding API - Get coordinates from city name
     @GET("geo/1.0/direct")
     Call<List<GeocodingResponse>> geocodeLocation(
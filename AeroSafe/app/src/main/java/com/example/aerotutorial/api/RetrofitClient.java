@@ -1,37 +1,163 @@
 package com.example.aerotutorial.api;
 
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RetrofitClient {
     private static final String BASE_URL = "https://api.openweathermap.org/";
+
+    // Disk cache for API responses (bounded, OkHttp evicts LRU entries)
+    private static final String CACHE_DIR_NAME = "http_cache";
+    private static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024; // 10 MB
+
+    // OpenWeather refreshes air pollution data once per hour
+    private static final long AIR_POLLUTION_UPDATE_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+    private static final long MIN_MAX_AGE_SECONDS = 60;
+    // Past hours and geocoding results don't change
+    private static final long HISTORY_MAX_AGE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    private static final long GEOCODING_MAX_AGE_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
     private static Retrofit retrofit = null;
+    private static OpenWeatherApi openWeatherApi = null;
+    private static File cacheDirectory = null;
 
-    public static Retrofit getClient() {
-        if (retrofit == null) {
-            HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-            logging.setLevel(HttpLoggingInterceptor.Level.BODY);
+    // Body logging is only available in debuggable builds, for 1 in N requests
+    private static final int DEFAULT_BODY_LOG_SAMPLE_RATE = 10;
+    private static volatile boolean debugLoggingAvailable = false;
+    private static volatile int bodyLogSampleRate = 0;
 
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .addInterceptor(logging)
+    /**
+     * Provide the application context so responses can be cached on disk.
+     * Must be called before the first request (see AeroTutorialApp).
+     */
+    public static synchronized void init(Context context) {
+        if (cacheDirectory == null) {
+            cacheDirectory = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR_NAME);
+        }
+        debugLoggingAvailable =
+                (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        if (debugLoggingAvailable && bodyLogSampleRate == 0) {
+            bodyLogSampleRate = DEFAULT_BODY_LOG_SAMPLE_RATE;
+        }
+    }
+
+    /**
+     * Log full request/response bodies for one in every {@code oneInN} calls.
+     * Ignored in release builds; pass 0 to turn body logging off.
+     */
+    public static void setBodyLogSampleRate(int oneInN) {
+        bodyLogSampleRate = debugLoggingAvailable ? Math.max(0, oneInN) : 0;
+    }
+
+    public static NetworkMetrics getNetworkMetrics() {
+        return NetworkMetrics.getInstance();
+    }
+
+    public static synchronized Retrofit getClient() {
+        if (retrofit == null) {
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .addInterceptor(new SampledBodyLoggingInterceptor())
+                    .eventListenerFactory(NetworkMetrics.getInstance().eventListenerFactory())
+                    .addNetworkInterceptor(new CacheControlInterceptor())
+                    .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
                     .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .build();
+                    .readTimeout(30, TimeUnit.SECONDS);
+
+            if (cacheDirectory != null) {
+                builder.cache(new Cache(cacheDirectory, CACHE_SIZE_BYTES));
+            }
 
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
-                    .client(client)
+                    .client(builder.build())
+                    .addConverterFactory(AqiSeriesConverterFactory.create())
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
         return retrofit;
     }
 
-    public static OpenWeatherApi getOpenWeatherApi() {
-        return getClient().create(OpenWeatherApi.class);
+    public static synchronized OpenWeatherApi getOpenWeatherApi() {
+        if (openWeatherApi == null) {
+            openWeatherApi = getClient().create(OpenWeatherApi.class);
+        }
+        return openWeatherApi;
+    }
+
+    /**
+     * Delegates to a BODY-level HttpLoggingInterceptor for a sample of calls;
+     * all other calls pass straight through without buffering the body.
+     */
+    static class SampledBodyLoggingInterceptor implements Interceptor {
+        private final HttpLoggingInterceptor bodyLogger =
+                new HttpLoggingInterceptor().setLevel(HttpLoggingInterceptor.Level.BODY);
+        private final AtomicLong callCount = new AtomicLong();
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            int rate = bodyLogSampleRate;
+            if (rate > 0 && callCount.getAndIncrement() % rate == 0) {
+                return bodyLogger.intercept(chain);
+            }
+            return chain.proceed(chain.request());
+        }
+    }
+
+    /**
+     * Rewrites the Cache-Control header of OpenWeather responses so the disk
+     * cache can serve repeat lookups until the provider publishes new data.
+     */
+    static class CacheControlInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (!response.isSuccessful()) {
+                return response;
+            }
+
+            long maxAge = maxAgeFor(request.url().encodedPath(), System.currentTimeMillis());
+            if (maxAge <= 0) {
+                return response;
+            }
+
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .removeHeader("Expires")
+                    .header("Cache-Control", "public, max-age=" + maxAge)
+                    .build();
+        }
+
+        static long maxAgeFor(String path, long nowMillis) {
+            if (path.endsWith("/air_pollution/history")) {
+                return HISTORY_MAX_AGE_SECONDS;
+            }
+            if (path.endsWith("/air_pollution")) {
+                // Cache until the next hourly update, but never for less than a minute
+                long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(nowMillis);
+                long untilNextUpdate = AIR_POLLUTION_UPDATE_INTERVAL_SECONDS
+                        - (nowSeconds % AIR_POLLUTION_UPDATE_INTERVAL_SECONDS);
+                return Math.max(MIN_MAX_AGE_SECONDS, untilNextUpdate);
+            }
+            if (path.startsWith("/geo/")) {
+                return GEOCODING_MAX_AGE_SECONDS;
+            }
+            return 0;
+        }
     }
 }
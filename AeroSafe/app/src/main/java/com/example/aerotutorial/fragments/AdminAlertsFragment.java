@@ -17,20 +17,22 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aerotutorial.R;
 import com.example.aerotutorial.adapters.AlertsAdapter;
+import com.example.aerotutorial.adapters.LoadMoreScrollListener;
 import com.example.aerotutorial.models.Alert;
+import com.example.aerotutorial.models.GeocodingResponse;
+import com.example.aerotutorial.repository.AQIRepository;
 import com.example.aerotutorial.repository.AlertRepository;
+import com.example.aerotutorial.repository.LiveCollection;
 import com.example.aerotutorial.utils.PreferencesManager;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.textfield.TextInputEditText;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class AdminAlertsFragment extends Fragment {
 
+    // The one alert type that is not about a place, so it may go out without coordinates
+    private static final String GENERAL_NOTICE = "General Notice";
+
     private AutoCompleteTextView actvAlertType, actvSeverity;
     private TextInputEditText etAlertLocation, etAlertMessage;
     private MaterialButton btnCreateAlert;
@@ -38,10 +40,12 @@ public class AdminAlertsFragment extends Fragment {
     private LinearLayout llEmptyState;
 
     private AlertsAdapter adapter;
-    private List<Alert> alertsList;
     private AlertRepository repository;
+    private AQIRepository aqiRepository;
     private PreferencesManager prefsManager;
 
+    private LiveCollection<Alert> alerts;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -59,9 +63,10 @@ public class AdminAlertsFragment extends Fragment {
         setupListeners();
 
         repository = new AlertRepository();
+        aqiRepository = new AQIRepository();
         prefsManager = new PreferencesManager(requireContext());
 
-        loadAlerts();
+        observeAlerts();
     }
 
     private void initViews(View view) {
@@ -81,7 +86,7 @@ public class AdminAlertsFragment extends Fragment {
             "Health Advisory",
             "Pollution Warning",
             "Emergency Alert",
-            "General Notice"
+            GENERAL_NOTICE
         };
         ArrayAdapter<String> typeAdapter = new ArrayAdapter<>(
             requireContext(),
@@ -101,10 +106,19 @@ public class AdminAlertsFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        alertsList = new ArrayList<>();
-        adapter = new AlertsAdapter(alertsList, this::onDeactivateAlert);
+        adapter = new AlertsAdapter(this::onDeactivateAlert);
 
-        rvAlerts.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        rvAlerts.setLayoutManager(layoutManager);
+        rvAlerts.addOnScrollListener(new LoadMoreScrollListener(layoutManager, () -> {
+            if (alerts != null) {
+                alerts.loadMore();
+            }
+        }, position -> {
+            if (alerts != null) {
+                alerts.loadNewer(position);
+            }
+        }));
         rvAlerts.setAdapter(adapter);
     }
 
@@ -134,43 +148,82 @@ public class AdminAlertsFragment extends Fragment {
 
         Alert alert = new Alert(alertType, severity, location, message, createdBy);
 
+        // Coordinates let the alert reach users in and around the location
+        btnCreateAlert.setEnabled(false);
+        aqiRepository.geocodeLocation(location, new AQIRepository.GeocodeCallback() {
+            @Override
+            public void onSuccess(GeocodingResponse place) {
+                alert.setLatitude(place.getLat());
+                alert.setLongitude(place.getLon());
+                saveAlert(alert, true);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                if (!isAdded()) {
+                    return;
+                }
+                if (GENERAL_NOTICE.equals(alertType)) {
+                    saveAlert(alert, false);
+                } else {
+                    confirmSaveWithoutLocation(alert, error);
+                }
+            }
+        });
+    }
+
+    // Without coordinates nearby users are not notified, so only save once the admin agrees
+    private void confirmSaveWithoutLocation(Alert alert, String error) {
+        new MaterialAlertDialogBuilder(requireContext())
+            .setTitle("Location unavailable")
+            .setMessage(error + "\n\nSave the alert anyway? Nearby users will not be notified.")
+            .setPositiveButton("Save anyway", (dialog, which) -> saveAlert(alert, false))
+            .setNegativeButton("Cancel", (dialog, which) -> btnCreateAlert.setEnabled(true))
+            .setOnCancelListener(dialog -> btnCreateAlert.setEnabled(true))
+            .show();
+    }
+
+    private void saveAlert(Alert alert, boolean located) {
+        if (!isAdded()) {
+            return;
+        }
         repository.createAlert(alert)
             .addOnSuccessListener(aVoid -> {
+                if (!isAdded()) return;
+                btnCreateAlert.setEnabled(true);
                 Toast.makeText(requireContext(),
-                    "Alert created successfully",
+                    located ? "Alert created successfully"
+                        : "Alert created, but the location was not found so nearby users will not be notified",
                     Toast.LENGTH_SHORT).show();
                 clearForm();
-                loadAlerts();
             })
             .addOnFailureListener(e -> {
+                if (!isAdded()) return;
+                btnCreateAlert.setEnabled(true);
                 Toast.makeText(requireContext(),
                     "Failed to create alert: " + e.getMessage(),
                     Toast.LENGTH_SHORT).show();
             });
     }
 
-    private void loadAlerts() {
-        repository.getActiveAlerts().addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                alertsList.clear();
-                for (DataSnapshot alertSnapshot : snapshot.getChildren()) {
-                    Alert alert = alertSnapshot.getValue(Alert.class);
-                    if (alert != null) {
-                        alert.setId(alertSnapshot.getKey());
-                        alertsList.add(alert);
-                    }
-                }
-                adapter.notifyDataSetChanged();
-                updateEmptyState();
-            }
+    private void observeAlerts() {
+        if (alerts != null) {
+            alerts.removeObservers(getViewLifecycleOwner());
+            alerts.getError().removeObservers(getViewLifecycleOwner());
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
+        // Shared live copy kept in sync by child events; nothing is re-queried here
+        alerts = repository.observeActiveAlerts();
+        alerts.observe(getViewLifecycleOwner(), items -> {
+            adapter.submitList(items);
+            updateEmptyState(items.isEmpty());
+        });
+        alerts.getError().observe(getViewLifecycleOwner(), error -> {
+            if (error != null) {
                 Toast.makeText(requireContext(),
-                    "Failed to load alerts: " + error.getMessage(),
+                    "Failed to load alerts: " + error,
                     Toast.LENGTH_SHORT).show();
-                updateEmptyState();
+                updateEmptyState(adapter.getItemCount() == 0);
             }
         });
     }
@@ -178,9 +231,6 @@ public class AdminAlertsFragment extends Fragment {
     private void onDeactivateAlert(Alert alert) {
         repository.deactivateAlert(alert.getId())
             .addOnSuccessListener(aVoid -> {
-                alertsList.remove(alert);
-                adapter.notifyDataSetChanged();
-                updateEmptyState();
                 Toast.makeText(requireContext(),
                     "Alert deactivated",
                     Toast.LENGTH_SHORT).show();
@@ -199,8 +249,8 @@ public class AdminAlertsFragment extends Fragment {
         etAlertMessage.setText("");
     }
 
-    private void updateEmptyState() {
-        if (alertsList.isEmpty()) {
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
             rvAlerts.setVisibility(View.GONE);
             llEmptyState.setVisibility(View.VISIBLE);
         } else {
@@ -208,11 +258,4 @@ public class AdminAlertsFragment extends Fragment {
             llEmptyState.setVisibility(View.GONE);
         }
     }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        loadAlerts();
-    }
 }
-
@@ -11,9 +11,7 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.aerotutorial.R;
-import com.example.aerotutorial.repository.AlertRepository;
-import com.example.aerotutorial.repository.AuthRepository;
-import com.example.aerotutorial.repository.ReportRepository;
+import com.example.aerotutorial.repository.StatsRepository;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.ValueEventListener;
@@ -21,9 +19,29 @@ import com.google.firebase.database.ValueEventListener;
 public class AdminOverviewFragment extends Fragment {
 
     private TextView tvTotalUsers, tvTotalResearchers, tvTotalReports, tvActiveAlerts;
-    private AuthRepository authRepository;
-    private ReportRepository reportRepository;
-    private AlertRepository alertRepository;
+    private StatsRepository statsRepository;
+    private boolean reconcileRequested;
+
+    // Counters are a handful of numbers under stats/, so listen while visible
+    private final ValueEventListener statsListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            StatsRepository.Stats stats = StatsRepository.read(snapshot);
+            if (stats.isStale(System.currentTimeMillis())) {
+                // First run against existing data, or counters due a rebuild
+                reconcile();
+                if (!stats.exists()) {
+                    return;
+                }
+            }
+            showStats(stats);
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            showUnavailable();
+        }
+    };
 
     @Nullable
     @Override
@@ -38,11 +56,7 @@ public class AdminOverviewFragment extends Fragment {
 
         initViews(view);
 
-        authRepository = new AuthRepository();
-        reportRepository = new ReportRepository();
-        alertRepository = new AlertRepository();
-
-        loadStatistics();
+        statsRepository = new StatsRepository();
     }
 
     private void initViews(View view) {
@@ -52,63 +66,50 @@ public class AdminOverviewFragment extends Fragment {
         tvActiveAlerts = view.findViewById(R.id.tvActiveAlerts);
     }
 
-    private void loadStatistics() {
-        // Load total users
-        authRepository.getUsersByRole("user").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                tvTotalUsers.setText(String.valueOf(snapshot.getChildrenCount()));
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                tvTotalUsers.setText("--");
-            }
-        });
+    private void showStats(StatsRepository.Stats stats) {
+        tvTotalUsers.setText(String.valueOf(stats.getUsers("user")));
+        tvTotalResearchers.setText(String.valueOf(stats.getUsers("researcher")));
+        tvTotalReports.setText(String.valueOf(stats.getTotalReports()));
+        tvActiveAlerts.setText(String.valueOf(stats.getActiveAlerts()));
+    }
 
-        // Load total researchers
-        authRepository.getUsersByRole("researcher").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                tvTotalResearchers.setText(String.valueOf(snapshot.getChildrenCount()));
-            }
+    private void showUnavailable() {
+        tvTotalUsers.setText("--");
+        tvTotalResearchers.setText("--");
+        tvTotalReports.setText("--");
+        tvActiveAlerts.setText("--");
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                tvTotalResearchers.setText("--");
-            }
-        });
+    private void reconcile() {
+        if (reconcileRequested) {
+            return;
+        }
+        reconcileRequested = true;
 
-        // Load total reports
-        reportRepository.getAllReports().addListenerForSingleValueEvent(new ValueEventListener() {
+        statsRepository.reconcile(new StatsRepository.ReconcileCallback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                tvTotalReports.setText(String.valueOf(snapshot.getChildrenCount()));
+            public void onComplete(StatsRepository.Stats stats) {
+                // statsListener receives the written counters
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                tvTotalReports.setText("--");
+            public void onFailure(String error) {
+                if (isAdded()) {
+                    showUnavailable();
+                }
             }
         });
+    }
 
-        // Load active alerts
-        alertRepository.getActiveAlerts().addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                tvActiveAlerts.setText(String.valueOf(snapshot.getChildrenCount()));
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                tvActiveAlerts.setText("--");
-            }
-        });
+    @Override
+    public void onStart() {
+        super.onStart();
+        statsRepository.getStatsReference().addValueEventListener(statsListener);
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        loadStatistics();
+    public void onStop() {
+        super.onStop();
+        statsRepository.getStatsReference().removeEventListener(statsListener);
     }
 }
@@ -14,18 +14,14 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aerotutorial.R;
+import com.example.aerotutorial.adapters.LoadMoreScrollListener;
 import com.example.aerotutorial.adapters.ReportsAdapter;
 import com.example.aerotutorial.models.Report;
+import com.example.aerotutorial.repository.LiveCollection;
 import com.example.aerotutorial.repository.ReportRepository;
 import com.example.aerotutorial.utils.PreferencesManager;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.button.MaterialButtonToggleGroup;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class AdminReportsFragment extends Fragment {
 
@@ -35,11 +31,12 @@ public class AdminReportsFragment extends Fragment {
     private MaterialButton btnAll, btnPending, btnResolved;
 
     private ReportsAdapter adapter;
-    private List<Report> reportsList;
     private ReportRepository repository;
     private PreferencesManager prefsManager;
     private String currentFilter = "All";
 
+    private LiveCollection<Report> reports;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -58,7 +55,7 @@ public class AdminReportsFragment extends Fragment {
         repository = new ReportRepository();
         prefsManager = new PreferencesManager(requireContext());
 
-        loadReports();
+        observeReports();
     }
 
     private void initViews(View view) {
@@ -71,10 +68,19 @@ public class AdminReportsFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        reportsList = new ArrayList<>();
-        adapter = new ReportsAdapter(reportsList, this::onReportAction);
+        adapter = new ReportsAdapter(this::onReportAction);
 
-        rvReports.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        rvReports.setLayoutManager(layoutManager);
+        rvReports.addOnScrollListener(new LoadMoreScrollListener(layoutManager, () -> {
+            if (reports != null) {
+                reports.loadMore();
+            }
+        }, position -> {
+            if (reports != null) {
+                reports.loadNewer(position);
+            }
+        }));
         rvReports.setAdapter(adapter);
     }
 
@@ -88,62 +94,32 @@ public class AdminReportsFragment extends Fragment {
                 } else if (checkedId == R.id.btnResolved) {
                     currentFilter = "Resolved";
                 }
-                loadReports();
+                observeReports();
             }
         });
     }
 
-    private void loadReports() {
-        if (currentFilter.equals("All")) {
-            repository.getAllReports().addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    reportsList.clear();
-                    for (DataSnapshot reportSnapshot : snapshot.getChildren()) {
-                        Report report = reportSnapshot.getValue(Report.class);
-                        if (report != null) {
-                            report.setId(reportSnapshot.getKey());
-                            reportsList.add(report);
-                        }
-                    }
-                    adapter.notifyDataSetChanged();
-                    updateEmptyState();
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    handleLoadError(error.toException());
-                }
-            });
-        } else {
-            repository.getReportsByStatus(currentFilter).addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    reportsList.clear();
-                    for (DataSnapshot reportSnapshot : snapshot.getChildren()) {
-                        Report report = reportSnapshot.getValue(Report.class);
-                        if (report != null) {
-                            report.setId(reportSnapshot.getKey());
-                            reportsList.add(report);
-                        }
-                    }
-                    adapter.notifyDataSetChanged();
-                    updateEmptyState();
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    handleLoadError(error.toException());
-                }
-            });
+    private void observeReports() {
+        if (reports != null) {
+            reports.removeObservers(getViewLifecycleOwner());
+            reports.getError().removeObservers(getViewLifecycleOwner());
         }
-    }
 
-    private void handleLoadError(Exception e) {
-        Toast.makeText(requireContext(),
-            "Failed to load reports: " + e.getMessage(),
-            Toast.LENGTH_SHORT).show();
-        updateEmptyState();
+        // Shared live copy kept in sync by child events; nothing is re-queried here
+        String status = currentFilter.equals("All") ? null : currentFilter;
+        reports = repository.observeReports(status);
+        reports.observe(getViewLifecycleOwner(), items -> {
+            adapter.submitList(items);
+            updateEmptyState(items.isEmpty());
+        });
+        reports.getError().observe(getViewLifecycleOwner(), error -> {
+            if (error != null) {
+                Toast.makeText(requireContext(),
+                    "Failed to load reports: " + error,
+                    Toast.LENGTH_SHORT).show();
+                updateEmptyState(adapter.getItemCount() == 0);
+            }
+        });
     }
 
     private void onReportAction(Report report, String action) {
@@ -176,7 +152,6 @@ public class AdminReportsFragment extends Fragment {
             .addOnSuccessListener(aVoid -> {
                 Toast.makeText(requireContext(), "Report marked as resolved",
                               Toast.LENGTH_SHORT).show();
-                loadReports();
             })
             .addOnFailureListener(e -> {
                 Toast.makeText(requireContext(),
@@ -188,9 +163,6 @@ public class AdminReportsFragment extends Fragment {
     private void deleteReport(Report report) {
         repository.deleteReport(report.getId())
             .addOnSuccessListener(aVoid -> {
-                reportsList.remove(report);
-                adapter.notifyDataSetChanged();
-                updateEmptyState();
                 Toast.makeText(requireContext(), "Report deleted", Toast.LENGTH_SHORT).show();
             })
             .addOnFailureListener(e -> {
@@ -200,8 +172,8 @@ public class AdminReportsFragment extends Fragment {
             });
     }
 
-    private void updateEmptyState() {
-        if (reportsList.isEmpty()) {
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
             rvReports.setVisibility(View.GONE);
             llEmptyState.setVisibility(View.VISIBLE);
         } else {
@@ -209,11 +181,4 @@ public class AdminReportsFragment extends Fragment {
             llEmptyState.setVisibility(View.GONE);
         }
     }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        loadReports();
-    }
 }
-
@@ -14,17 +14,13 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aerotutorial.R;
+import com.example.aerotutorial.adapters.LoadMoreScrollListener;
 import com.example.aerotutorial.adapters.UsersAdapter;
 import com.example.aerotutorial.models.User;
 import com.example.aerotutorial.repository.AuthRepository;
+import com.example.aerotutorial.repository.LiveCollection;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.button.MaterialButtonToggleGroup;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class AdminUsersFragment extends Fragment {
 
@@ -34,10 +30,11 @@ public class AdminUsersFragment extends Fragment {
     private MaterialButton btnUsers, btnResearchers, btnAdmins;
 
     private UsersAdapter adapter;
-    private List<User> usersList;
     private AuthRepository authRepository;
     private String currentFilter = "user";
 
+    private LiveCollection<User> users;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -55,7 +52,7 @@ public class AdminUsersFragment extends Fragment {
 
         authRepository = new AuthRepository();
 
-        loadUsers();
+        observeUsers();
     }
 
     private void initViews(View view) {
@@ -68,10 +65,19 @@ public class AdminUsersFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        usersList = new ArrayList<>();
-        adapter = new UsersAdapter(usersList);
+        adapter = new UsersAdapter();
 
-        rvUsers.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        rvUsers.setLayoutManager(layoutManager);
+        rvUsers.addOnScrollListener(new LoadMoreScrollListener(layoutManager, () -> {
+            if (users != null) {
+                users.loadMore();
+            }
+        }, position -> {
+            if (users != null) {
+                users.loadNewer(position);
+            }
+        }));
         rvUsers.setAdapter(adapter);
     }
 
@@ -85,39 +91,35 @@ public class AdminUsersFragment extends Fragment {
                 } else if (checkedId == R.id.btnAdmins) {
                     currentFilter = "admin";
                 }
-                loadUsers();
+                observeUsers();
             }
         });
     }
 
-    private void loadUsers() {
-        authRepository.getUsersByRole(currentFilter).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                usersList.clear();
-                for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                    User user = userSnapshot.getValue(User.class);
-                    if (user != null) {
-                        user.setId(userSnapshot.getKey());
-                        usersList.add(user);
-                    }
-                }
-                adapter.notifyDataSetChanged();
-                updateEmptyState();
-            }
+    private void observeUsers() {
+        if (users != null) {
+            users.removeObservers(getViewLifecycleOwner());
+            users.getError().removeObservers(getViewLifecycleOwner());
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
+        // Shared live copy kept in sync by child events; nothing is re-queried here
+        users = authRepository.observeUsersByRole(currentFilter);
+        users.observe(getViewLifecycleOwner(), items -> {
+            adapter.submitList(items);
+            updateEmptyState(items.isEmpty());
+        });
+        users.getError().observe(getViewLifecycleOwner(), error -> {
+            if (error != null) {
                 Toast.makeText(requireContext(),
-                    "Failed to load users: " + error.getMessage(),
+                    "Failed to load users: " + error,
                     Toast.LENGTH_SHORT).show();
-                updateEmptyState();
+                updateEmptyState(adapter.getItemCount() == 0);
             }
         });
     }
 
-    private void updateEmptyState() {
-        if (usersList.isEmpty()) {
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
             rvUsers.setVisibility(View.GONE);
             llEmptyState.setVisibility(View.VISIBLE);
         } else {
@@ -125,10 +127,4 @@ public class AdminUsersFragment extends Fragment {
             llEmptyState.setVisibility(View.GONE);
         }
     }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        loadUsers();
-    }
 }
@@ -1,6 +1,7 @@
 package com.example.aerotutorial.fragments;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,39 +13,51 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.aerotutorial.R;
+import com.example.aerotutorial.api.NetworkMetrics;
 import com.example.aerotutorial.api.RetrofitClient;
-import com.example.aerotutorial.models.AirPollutionResponse;
 import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.repository.AQIRepository;
 import com.example.aerotutorial.repository.ResearchDataRepository;
 import com.example.aerotutorial.utils.AQICalculator;
 import com.example.aerotutorial.utils.PreferencesManager;
+import com.example.aerotutorial.utils.SpatialIndex;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCallback {
+    private static final String TAG = "ResearcherDataView";
+    private static final int SAMPLE_GRID_SIZE = 3;
+    private static final double SAMPLE_SPACING_DEGREES = 0.02; // ~2 km
+    // A saved sample this close to a tap is offered for comparison
+    private static final double NEARBY_SAMPLE_METERS = 5000;
 
     private GoogleMap googleMap;
-    private TextView tvSelectedLocation, tvPM25, tvPM10, tvNO2, tvO3, tvSO2, tvCO;
+    private TextView tvSelectedLocation, tvPM25, tvPM10, tvNO2, tvO3, tvSO2, tvCO, tvNetworkStats;
     private TextInputEditText etSearchLocation;
     private MaterialButton btnSearch, btnSaveToHub;
 
     private ResearchDataRepository researchDataRepository;
+    private AQIRepository aqiRepository;
     private PreferencesManager prefsManager;
 
     private double selectedLat = 23.8103;
     private double selectedLon = 90.4125;
     private String selectedLocation = "Dhaka, Bangladesh";
     private AirQualityData currentData;
+    private final List<Marker> savedSampleMarkers = new ArrayList<>();
 
     @Nullable
     @Override
@@ -62,7 +75,12 @@ public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCa
         setupListeners();
 
         researchDataRepository = new ResearchDataRepository();
+        aqiRepository = new AQIRepository();
         prefsManager = new PreferencesManager(requireContext());
+
+        // The shared hub collection fills the sample index; redraw as it changes
+        researchDataRepository.observeResearchDataByResearcher(prefsManager.getUserId())
+            .observe(getViewLifecycleOwner(), items -> showSavedSamples());
     }
 
     private void initViews(View view) {
@@ -73,6 +91,7 @@ public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCa
         tvO3 = view.findViewById(R.id.tvO3);
         tvSO2 = view.findViewById(R.id.tvSO2);
         tvCO = view.findViewById(R.id.tvCO);
+        tvNetworkStats = view.findViewById(R.id.tvNetworkStats);
         etSearchLocation = view.findViewById(R.id.etSearchLocation);
         btnSearch = view.findViewById(R.id.btnSearch);
         btnSaveToHub = view.findViewById(R.id.btnSaveToHub);
@@ -99,6 +118,7 @@ public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCa
         LatLng initialPos = new LatLng(selectedLat, selectedLon);
         googleMap.addMarker(new MarkerOptions().position(initialPos).title(selectedLocation));
         googleMap.moveCamera(CameraUpdateFactory.newLatLngZoom(initialPos, 10));
+        showSavedSamples();
 
         // Map click listener
         googleMap.setOnMapClickListener(latLng -> {
@@ -106,13 +126,57 @@ public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCa
             selectedLon = latLng.longitude;
             googleMap.clear();
             googleMap.addMarker(new MarkerOptions().position(latLng).title("Selected Location"));
+            showSavedSamples();
+            showNearestSavedSample(latLng);
             fetchPollutantData();
         });
 
+        // Long press samples a grid of points around the pressed location
+        googleMap.setOnMapLongClickListener(this::sampleAroundPoint);
+
         // Fetch initial data
         fetchPollutantData();
     }
 
+    // Saved samples inside the visible map area, from the in-memory index
+    private void showSavedSamples() {
+        if (googleMap == null) return;
+        for (Marker marker : savedSampleMarkers) {
+            marker.remove();
+        }
+        savedSampleMarkers.clear();
+
+        LatLngBounds bounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        if (bounds.southwest.longitude > bounds.northeast.longitude) {
+            return; // View crosses the antimeridian, which the index does not support
+        }
+        List<AirQualityData> samples = ResearchDataRepository.getSampleIndex().within(
+            bounds.southwest.latitude, bounds.southwest.longitude,
+            bounds.northeast.latitude, bounds.northeast.longitude);
+        for (AirQualityData sample : samples) {
+            Marker marker = googleMap.addMarker(new MarkerOptions()
+                .position(new LatLng(sample.getLatitude(), sample.getLongitude()))
+                .title("Saved: AQI " + sample.getAqi())
+                .snippet(sample.getLocation())
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE)));
+            if (marker != null) {
+                savedSampleMarkers.add(marker);
+            }
+        }
+    }
+
+    private void showNearestSavedSample(LatLng point) {
+        List<SpatialIndex.Neighbor<AirQualityData>> nearest =
+            ResearchDataRepository.getSampleIndex().nearest(point.latitude, point.longitude, 1);
+        if (nearest.isEmpty() || nearest.get(0).getDistanceMeters() > NEARBY_SAMPLE_METERS) {
+            return;
+        }
+        AirQualityData sample = nearest.get(0).getItem();
+        Toast.makeText(requireContext(), String.format(Locale.US,
+            "Saved sample %.1f km away: AQI %d", nearest.get(0).getDistanceMeters() / 1000, sample.getAqi()),
+            Toast.LENGTH_SHORT).show();
+    }
+
     private void searchLocation() {
         String query = etSearchLocation.getText().toString().trim();
         if (query.isEmpty()) {
@@ -127,72 +191,94 @@ public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCa
     private void fetchPollutantData() {
         tvSelectedLocation.setText("Fetching data...");
 
-        String apiKey = prefsManager.getApiKey();
-        if (apiKey.isEmpty()) {
-            apiKey = "YOUR_API_KEY"; // Fallback
-        }
+        // Reads through the shared tile cache; a newer tap supersedes this one
+        aqiRepository.fetchAQIForSelection(selectedLat, selectedLon, new AQIRepository.AQICallback() {
+            @Override
+            public void onSuccess(AirQualityData data) {
+                displayPollutantData(data);
+                showNetworkStats();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                showError(error);
+            }
+        });
+    }
 
-        RetrofitClient.getOpenWeatherApi()
-            .getAirPollution(selectedLat, selectedLon, apiKey)
-            .enqueue(new Callback<AirPollutionResponse>() {
-                @Override
-                public void onResponse(Call<AirPollutionResponse> call,
-                                     Response<AirPollutionResponse> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        displayPollutantData(response.body());
-                    } else {
-                        showError("Failed to fetch data");
-                    }
-                }
-
-                @Override
-                public void onFailure(Call<AirPollutionResponse> call, Throwable t) {
-                    showError("Network error: " + t.getMessage());
-                }
-            });
+    // Tile cache hit rate and OpenWeather latency, so cache behaviour is visible in the field
+    private void showNetworkStats() {
+        StringBuilder stats = new StringBuilder(aqiRepository.getCacheStats().toDisplayString());
+        for (NetworkMetrics.EndpointSnapshot endpoint : RetrofitClient.getNetworkMetrics().getSnapshot().values()) {
+            if (endpoint.requests > 0) {
+                stats.append('\n').append(endpoint.toDisplayString());
+            }
+        }
+        tvNetworkStats.setText(stats);
+        Log.d(TAG, stats.toString());
     }
 
-    private void displayPollutantData(AirPollutionResponse response) {
-        if (response.getList() == null || response.getList().isEmpty()) {
-            showError("No data available");
-            return;
+    private void sampleAroundPoint(LatLng center) {
+        List<LatLng> points = new ArrayList<>();
+        int half = SAMPLE_GRID_SIZE / 2;
+        for (int row = -half; row <= half; row++) {
+            for (int col = -half; col <= half; col++) {
+                points.add(new LatLng(center.latitude + row * SAMPLE_SPACING_DEGREES,
+                                      center.longitude + col * SAMPLE_SPACING_DEGREES));
+            }
         }
 
-        AirPollutionResponse.AirData data = response.getList().get(0);
-        AirPollutionResponse.Components components = data.getComponents();
+        Toast.makeText(requireContext(), "Sampling " + points.size() + " points...",
+                      Toast.LENGTH_SHORT).show();
+
+        aqiRepository.fetchAQIBatch(points, new AQIRepository.BatchCallback() {
+            @Override
+            public void onPointResult(int index, LatLng point, AirQualityData data) {
+                if (googleMap == null || !isAdded()) return;
+                googleMap.addMarker(new MarkerOptions()
+                    .position(point)
+                    .title("AQI " + data.getAqi())
+                    .snippet(AQICalculator.getAQICategory(data.getAqi())));
+            }
+
+            @Override
+            public void onPointFailure(int index, LatLng point, String error) {
+                Log.w(TAG, "Sample " + index + " failed: " + error);
+            }
+
+            @Override
+            public void onComplete(int succeeded, int failed) {
+                if (getContext() == null) return;
+                showNetworkStats();
+                Toast.makeText(requireContext(), "Sampled " + succeeded + " points"
+                    + (failed > 0 ? " (" + failed + " failed)" : ""), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
+    private void displayPollutantData(AirQualityData data) {
         // Update UI
-        tvPM25.setText(String.format("%.2f", components.getPm25()));
-        tvPM10.setText(String.format("%.2f", components.getPm10()));
-        tvNO2.setText(String.format("%.2f", components.getNo2()));
-        tvO3.setText(String.format("%.2f", components.getO3()));
-        tvSO2.setText(String.format("%.2f", components.getSo2()));
-        tvCO.setText(String.format("%.2f", components.getCo()));
+        tvPM25.setText(String.format("%.2f", data.getPm25()));
+        tvPM10.setText(String.format("%.2f", data.getPm10()));
+        tvNO2.setText(String.format("%.2f", data.getNo2()));
+        tvO3.setText(String.format("%.2f", data.getO3()));
+        tvSO2.setText(String.format("%.2f", data.getSo2()));
+        tvCO.setText(String.format("%.2f", data.getCo()));
 
         tvSelectedLocation.setText("📍 " + selectedLocation);
 
-        // Calculate AQI
-        int aqi = AQICalculator.calculateOverallAQI(
-            components.getPm25(),
-            components.getPm10(),
-            components.getNo2(),
-            components.getO3(),
-            components.getSo2(),
-            components.getCo()
-        );
-
-        // Store current data
+        // Store current data (copied so the cached tile entry is never modified)
         currentData = new AirQualityData(
             selectedLocation,
             selectedLat,
             selectedLon,
-            aqi,
-            components.getPm25(),
-            components.getPm10(),
-            components.getNo2(),
-            components.getO3(),
-            components.getSo2(),
-            components.getCo()
+            data.getAqi(),
+            data.getPm25(),
+            data.getPm10(),
+            data.getNo2(),
+            data.getO3(),
+            data.getSo2(),
+            data.getCo()
         );
     }
 
@@ -214,6 +300,14 @@ public class ResearcherDataViewFragment extends Fragment implements OnMapReadyCa
             });
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (aqiRepository != null) {
+            aqiRepository.cancelSelection();
+        }
+    }
+
     private void showError(String message) {
         if (getContext() != null) {
             Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
@@ -14,30 +14,39 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aerotutorial.R;
+import com.example.aerotutorial.adapters.LoadMoreScrollListener;
 import com.example.aerotutorial.adapters.ResearchDataAdapter;
 import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.repository.LiveCollection;
 import com.example.aerotutorial.repository.ResearchDataRepository;
+import com.example.aerotutorial.repository.ResearchDataStore;
 import com.example.aerotutorial.utils.CSVExporter;
 import com.example.aerotutorial.utils.PreferencesManager;
 import com.google.android.material.button.MaterialButton;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
+import com.google.android.material.button.MaterialButtonToggleGroup;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ResearcherHubFragment extends Fragment {
 
+    // Start of the "Unhealthy for Sensitive Groups" band
+    private static final int HIGH_AQI_THRESHOLD = 101;
+
     private RecyclerView rvResearchData;
     private LinearLayout llEmptyState;
     private MaterialButton btnExportCSV;
+    private MaterialButtonToggleGroup toggleGroupFilter;
 
     private ResearchDataAdapter adapter;
-    private List<AirQualityData> dataList;
     private ResearchDataRepository repository;
     private PreferencesManager prefsManager;
 
+    private LiveCollection<AirQualityData> researchData;
+    private int currentFilter = R.id.btnFilterAll;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -56,51 +65,135 @@ public class ResearcherHubFragment extends Fragment {
         repository = new ResearchDataRepository();
         prefsManager = new PreferencesManager(requireContext());
 
-        loadResearchData();
+        observeResearchData();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // An export still running reports back after the views are gone
+        btnExportCSV = null;
     }
 
     private void initViews(View view) {
         rvResearchData = view.findViewById(R.id.rvResearchData);
         llEmptyState = view.findViewById(R.id.llEmptyState);
         btnExportCSV = view.findViewById(R.id.btnExportCSV);
+        toggleGroupFilter = view.findViewById(R.id.toggleGroupFilter);
     }
 
     private void setupRecyclerView() {
-        dataList = new ArrayList<>();
-        adapter = new ResearchDataAdapter(dataList, this::onDeleteItem);
+        adapter = new ResearchDataAdapter(this::onDeleteItem);
 
-        rvResearchData.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        rvResearchData.setLayoutManager(layoutManager);
+        rvResearchData.addOnScrollListener(new LoadMoreScrollListener(layoutManager, () -> {
+            // Filtered results come from the local mirror in one query
+            if (researchData != null && currentFilter == R.id.btnFilterAll) {
+                researchData.loadMore();
+            }
+        }, position -> {
+            if (researchData != null && currentFilter == R.id.btnFilterAll) {
+                researchData.loadNewer(position);
+            }
+        }));
         rvResearchData.setAdapter(adapter);
     }
 
     private void setupListeners() {
-        btnExportCSV.setOnClickListener(v -> exportToCSV());
+        btnExportCSV.setOnClickListener(v -> chooseExportFormat());
+
+        toggleGroupFilter.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+            if (isChecked && checkedId != currentFilter) {
+                currentFilter = checkedId;
+                if (checkedId == R.id.btnFilterAll) {
+                    observeResearchData();
+                } else {
+                    queryResearchData();
+                }
+            }
+        });
+    }
+
+    private void stopObserving() {
+        if (researchData != null) {
+            researchData.removeObservers(getViewLifecycleOwner());
+            researchData.getError().removeObservers(getViewLifecycleOwner());
+            researchData = null;
+        }
+    }
+
+    private void observeResearchData() {
+        stopObserving();
+
+        // Shared live copy kept in sync by child events; nothing is re-queried here
+        researchData = repository.observeResearchDataByResearcher(prefsManager.getUserId());
+        researchData.observe(getViewLifecycleOwner(), items -> {
+            adapter.submitList(items);
+            updateEmptyState(items.isEmpty());
+        });
+        researchData.getError().observe(getViewLifecycleOwner(), error -> {
+            if (error != null) {
+                Toast.makeText(requireContext(),
+                    "Failed to load data: " + error,
+                    Toast.LENGTH_SHORT).show();
+                updateEmptyState(adapter.getItemCount() == 0);
+            }
+        });
     }
 
-    private void loadResearchData() {
+    private void queryResearchData() {
+        ResearchDataStore store = repository.getLocalStore();
+        if (store == null) {
+            Toast.makeText(requireContext(), "Filters are unavailable", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        stopObserving();
+
         String userId = prefsManager.getUserId();
+        int filter = currentFilter;
+        // Pull only samples added since the last sync, then filter locally
+        store.sync(userId, new ResearchDataStore.SyncCallback() {
+            @Override
+            public void onSuccess(int newSamples) {
+                runQuery(store, userId, filter);
+            }
 
-        repository.getResearchDataByResearcher(userId).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                dataList.clear();
-                for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
-                    AirQualityData data = dataSnapshot.getValue(AirQualityData.class);
-                    if (data != null) {
-                        data.setId(dataSnapshot.getKey());
-                        dataList.add(data);
-                    }
+            public void onFailure(String error) {
+                // Offline: the mirror still answers with what it has
+                runQuery(store, userId, filter);
+            }
+        });
+    }
+
+    private void runQuery(ResearchDataStore store, String userId, int filter) {
+        ResearchDataStore.Filter query = new ResearchDataStore.Filter().researcher(userId);
+        if (filter == R.id.btnFilterWeek) {
+            long now = System.currentTimeMillis();
+            query.between(now - TimeUnit.DAYS.toMillis(7), now);
+        } else if (filter == R.id.btnFilterHighAqi) {
+            query.minAqi(HIGH_AQI_THRESHOLD);
+        }
+
+        store.query(query, new ResearchDataStore.QueryCallback() {
+            @Override
+            public void onSuccess(List<AirQualityData> samples) {
+                // Ignore results for a filter the user has already left
+                if (!isAdded() || currentFilter != filter) {
+                    return;
                 }
-                adapter.notifyDataSetChanged();
-                updateEmptyState();
+                adapter.submitList(samples);
+                updateEmptyState(samples.isEmpty());
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Toast.makeText(requireContext(),
-                    "Failed to load data: " + error.getMessage(),
-                    Toast.LENGTH_SHORT).show();
-                updateEmptyState();
+            public void onFailure(String error) {
+                if (isAdded()) {
+                    Toast.makeText(requireContext(),
+                        "Failed to load data: " + error,
+                        Toast.LENGTH_SHORT).show();
+                }
             }
         });
     }
@@ -108,10 +201,11 @@ public class ResearcherHubFragment extends Fragment {
     private void onDeleteItem(AirQualityData data) {
         repository.deleteResearchData(data.getId())
             .addOnSuccessListener(aVoid -> {
-                dataList.remove(data);
-                adapter.notifyDataSetChanged();
-                updateEmptyState();
                 Toast.makeText(requireContext(), "Data deleted", Toast.LENGTH_SHORT).show();
+                // The live list updates itself; filtered results are re-read
+                if (currentFilter != R.id.btnFilterAll) {
+                    queryResearchData();
+                }
             })
             .addOnFailureListener(e -> {
                 Toast.makeText(requireContext(),
@@ -120,32 +214,114 @@ public class ResearcherHubFragment extends Fragment {
             });
     }
 
-    private void exportToCSV() {
-        if (dataList.isEmpty()) {
-            Toast.makeText(requireContext(), "No data to export", Toast.LENGTH_SHORT).show();
+    private void chooseExportFormat() {
+        String[] formats = {"CSV", "Columnar binary (.aqcol)"};
+        new MaterialAlertDialogBuilder(requireContext())
+            .setTitle("Export format")
+            .setItems(formats, (dialog, which) -> exportData(which == 1))
+            .show();
+    }
+
+    private void exportData(boolean columnar) {
+        // The list only holds the newest window of samples, so stream the full
+        // set from the local mirror instead of loading it from Firebase
+        ResearchDataStore store = repository.getLocalStore();
+        if (store == null) {
+            Toast.makeText(requireContext(), "Export is unavailable", Toast.LENGTH_SHORT).show();
             return;
         }
+        String userId = prefsManager.getUserId();
+        btnExportCSV.setEnabled(false);
+
+        store.sync(userId, new ResearchDataStore.SyncCallback() {
+            @Override
+            public void onSuccess(int newSamples) {
+                openExport(store, userId, columnar);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                // Offline: export what the mirror already has
+                openExport(store, userId, columnar);
+            }
+        });
+    }
+
+    private void openExport(ResearchDataStore store, String userId, boolean columnar) {
+        store.openSamples(userId, new ResearchDataStore.OpenCallback() {
+            @Override
+            public void onSuccess(ResearchDataStore.SampleCursor samples, long count) {
+                if (count == 0 || !isAdded()) {
+                    samples.close();
+                    finishExport();
+                    if (isAdded()) {
+                        Toast.makeText(requireContext(), "No data to export", Toast.LENGTH_SHORT).show();
+                    }
+                    return;
+                }
+                // Rows are read from the cursor on the export thread, which closes it
+                exportData(samples, count, columnar);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                finishExport();
+                if (isAdded()) {
+                    Toast.makeText(requireContext(),
+                        "Export failed: " + error,
+                        Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
 
+    private void exportData(Iterator<AirQualityData> rows, long totalRows, boolean columnar) {
         CSVExporter exporter = new CSVExporter(requireContext());
-        exporter.exportResearchData(dataList, new CSVExporter.ExportCallback() {
+        CSVExporter.ExportCallback callback = new CSVExporter.ExportCallback() {
             @Override
             public void onSuccess(String filePath) {
-                Toast.makeText(requireContext(),
-                    "Exported to: " + filePath,
-                    Toast.LENGTH_LONG).show();
+                finishExport();
+                if (isAdded()) {
+                    Toast.makeText(requireContext(),
+                        "Exported to: " + filePath,
+                        Toast.LENGTH_LONG).show();
+                }
             }
 
             @Override
             public void onFailure(String error) {
-                Toast.makeText(requireContext(),
-                    "Export failed: " + error,
-                    Toast.LENGTH_SHORT).show();
+                finishExport();
+                if (isAdded()) {
+                    Toast.makeText(requireContext(),
+                        "Export failed: " + error,
+                        Toast.LENGTH_SHORT).show();
+                }
             }
-        });
+
+            @Override
+            public void onProgress(long rowsWritten, long total) {
+                if (btnExportCSV != null && total > 0) {
+                    btnExportCSV.setText("Exporting " + (rowsWritten * 100 / total) + "%");
+                }
+            }
+        };
+
+        if (columnar) {
+            exporter.exportResearchDataColumnar(rows, totalRows, callback);
+        } else {
+            exporter.exportResearchData(rows, totalRows, callback);
+        }
+    }
+
+    private void finishExport() {
+        if (btnExportCSV != null) {
+            btnExportCSV.setEnabled(true);
+            btnExportCSV.setText("Export CSV");
+        }
     }
 
-    private void updateEmptyState() {
-        if (dataList.isEmpty()) {
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
             rvResearchData.setVisibility(View.GONE);
             llEmptyState.setVisibility(View.VISIBLE);
         } else {
@@ -153,10 +329,4 @@ public class ResearcherHubFragment extends Fragment {
             llEmptyState.setVisibility(View.GONE);
         }
     }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        loadResearchData(); // Refresh data when fragment becomes visible
-    }
 }
@@ -34,6 +34,22 @@ public class AirQualityData {
         this.timestamp = System.currentTimeMillis();
     }
 
+    public AirQualityData(AirQualityData other) {
+        this.id = other.id;
+        this.location = other.location;
+        this.latitude = other.latitude;
+        this.longitude = other.longitude;
+        this.aqi = other.aqi;
+        this.pm25 = other.pm25;
+        this.pm10 = other.pm10;
+        this.no2 = other.no2;
+        this.o3 = other.o3;
+        this.so2 = other.so2;
+        this.co = other.co;
+        this.timestamp = other.timestamp;
+        this.date = other.date;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -9,6 +9,11 @@ public class Alert {
     private String createdBy;
     private long createdDate;
     private String status; // "Active", "Inactive"
+    private long expiresAt; // Archived by the sweeper after this time; 0 until saved
+    // Where the alert applies; null when the location could not be resolved
+    private Double latitude;
+    private Double longitude;
+    private String geohash; // Cell under alerts_by_cell this alert is indexed in
 
     public Alert() {
         // Required empty constructor for Firestore
@@ -88,5 +93,36 @@ public class Alert {
     public void setStatus(String status) {
         this.status = status;
     }
-}
 
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.aerotutorial.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar air quality time series.
+ * Point i is described by timestamps[i] and the pollutant arrays at index i,
+ * so long histories are stored without one object per hour.
+ * Timestamps are in milliseconds and ascending; pollutants are in μg/m³.
+ */
+public class AqiSeries {
+    private final double latitude;
+    private final double longitude;
+    private final int size;
+    private final long[] timestamps;
+    private final float[] pm25;
+    private final float[] pm10;
+    private final float[] no2;
+    private final float[] o3;
+    private final float[] so2;
+    private final float[] co;
+
+    private AqiSeries(Builder builder) {
+        this.latitude = builder.latitude;
+        this.longitude = builder.longitude;
+        this.size = builder.size;
+        this.timestamps = Arrays.copyOf(builder.timestamps, size);
+        this.pm25 = Arrays.copyOf(builder.pm25, size);
+        this.pm10 = Arrays.copyOf(builder.pm10, size);
+        this.no2 = Arrays.copyOf(builder.no2, size);
+        this.o3 = Arrays.copyOf(builder.o3, size);
+        this.so2 = Arrays.copyOf(builder.so2, size);
+        this.co = Arrays.copyOf(builder.co, size);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Column accessors return the backing arrays; callers must not modify them
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public float[] getPm25() {
+        return pm25;
+    }
+
+    public float[] getPm10() {
+        return pm10;
+    }
+
+    public float[] getNo2() {
+        return no2;
+    }
+
+    public float[] getO3() {
+        return o3;
+    }
+
+    public float[] getSo2() {
+        return so2;
+    }
+
+    public float[] getCo() {
+        return co;
+    }
+
+    /**
+     * Materialize a single point, e.g. for code that still works with AirQualityData
+     *
+     * @param index Point index
+     * @param aqi Precomputed AQI for the point
+     */
+    public AirQualityData toAirQualityData(int index, String location, int aqi) {
+        AirQualityData data = new AirQualityData(location, latitude, longitude, aqi,
+                pm25[index], pm10[index], no2[index], o3[index], so2[index], co[index]);
+        data.setTimestamp(timestamps[index]);
+        return data;
+    }
+
+    /**
+     * Merge series into one ordered by timestamp.
+     * Each input must already be ascending; duplicate timestamps are kept once.
+     */
+    public static AqiSeries merge(List<AqiSeries> parts, double latitude, double longitude) {
+        int total = 0;
+        for (AqiSeries part : parts) {
+            total += part.size;
+        }
+
+        Builder builder = new Builder(latitude, longitude, total);
+        int[] cursors = new int[parts.size()];
+        long last = Long.MIN_VALUE;
+
+        while (true) {
+            int next = -1;
+            long nextTs = Long.MAX_VALUE;
+            for (int p = 0; p < parts.size(); p++) {
+                AqiSeries part = parts.get(p);
+                if (cursors[p] < part.size && part.timestamps[cursors[p]] < nextTs) {
+                    next = p;
+                    nextTs = part.timestamps[cursors[p]];
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+
+            AqiSeries part = parts.get(next);
+            int i = cursors[next]++;
+            if (nextTs != last) {
+                builder.add(nextTs, part.pm25[i], part.pm10[i], part.no2[i],
+                        part.o3[i], part.so2[i], part.co[i]);
+                last = nextTs;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Appends points into growable primitive columns
+     */
+    public static class Builder {
+        private double latitude;
+        private double longitude;
+        private int size;
+        private long[] timestamps;
+        private float[] pm25;
+        private float[] pm10;
+        private float[] no2;
+        private float[] o3;
+        private float[] so2;
+        private float[] co;
+
+        public Builder(double latitude, double longitude, int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 8);
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamps = new long[capacity];
+            this.pm25 = new float[capacity];
+            this.pm10 = new float[capacity];
+            this.no2 = new float[capacity];
+            this.o3 = new float[capacity];
+            this.so2 = new float[capacity];
+            this.co = new float[capacity];
+        }
+
+        public Builder setCoordinates(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            return this;
+        }
+
+        public Builder add(long timestamp, float pm25, float pm10, float no2,
+                           float o3, float so2, float co) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            this.timestamps[size] = timestamp;
+            this.pm25[size] = pm25;
+            this.pm10[size] = pm10;
+            this.no2[size] = no2;
+            this.o3[size] = o3;
+            this.so2[size] = so2;
+            this.co[size] = co;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public AqiSeries build() {
+            return new AqiSeries(this);
+        }
+
+        private void grow() {
+            int capacity = timestamps.length * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            pm25 = Arrays.copyOf(pm25, capacity);
+            pm10 = Arrays.copyOf(pm10, capacity);
+            no2 = Arrays.copyOf(no2, capacity);
+            o3 = Arrays.copyOf(o3, capacity);
+            so2 = Arrays.copyOf(so2, capacity);
+            co = Arrays.copyOf(co, capacity);
+        }
+    }
+}
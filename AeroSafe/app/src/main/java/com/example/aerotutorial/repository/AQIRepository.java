@@ -1,11 +1,31 @@
 package com.example.aerotutorial.repository;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import com.example.aerotutorial.api.OpenWeatherApi;
 import com.example.aerotutorial.api.RetrofitClient;
 import com.example.aerotutorial.models.AirPollutionResponse;
 import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.models.AqiSeries;
+import com.example.aerotutorial.models.GeocodingResponse;
 import com.example.aerotutorial.utils.AQICalculator;
+import com.example.aerotutorial.utils.AqiTileCache;
+import com.example.aerotutorial.utils.TokenBucket;
+import com.google.android.gms.maps.model.LatLng;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -27,6 +47,58 @@ public class AQIRepository {
     // 5. Replace the key below with your actual key
     private static final String API_KEY = "98e192f418b2437e52cb54df708958f9";
 
+    // OpenWeather free tier allows 60 calls per minute per key
+    private static final int FREE_TIER_CALLS_PER_MINUTE = 60;
+    private static final int FREE_TIER_BURST = 10;
+    public static final int DEFAULT_BATCH_CONCURRENCY = 4;
+    public static final int MAX_BATCH_THREADS = 8;
+
+    // Long history ranges are split into chunks of this many seconds (5 days)
+    private static final long HISTORY_CHUNK_SECONDS = 5L * 24 * 60 * 60;
+
+    // Shared by all batches so the quota holds across screens
+    private static final TokenBucket RATE_LIMITER =
+        new TokenBucket(FREE_TIER_BURST, FREE_TIER_CALLS_PER_MINUTE);
+
+    // One pool for every batch; threads exit when idle so nothing lingers between batches
+    private static final ThreadPoolExecutor BATCH_EXECUTOR = createExecutor(MAX_BATCH_THREADS);
+
+    // Geocodes waiting for a rate limit token, kept apart so they do not queue behind a batch
+    private static final ThreadPoolExecutor GEOCODE_EXECUTOR = createExecutor(1);
+
+    // Requests in flight across all repository instances, keyed by tile
+    private static final Map<String, InFlightRequest> IN_FLIGHT = new HashMap<>();
+
+    private final AqiTileCache tileCache;
+    private final OpenWeatherApi openWeatherApi;
+    private final Executor callbackExecutor;
+    private Selection currentSelection;
+    private int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+
+    public AQIRepository() {
+        this(AqiTileCache.getInstance());
+    }
+
+    public AQIRepository(AqiTileCache tileCache) {
+        this(tileCache, RetrofitClient.getOpenWeatherApi(), new Handler(Looper.getMainLooper())::post);
+    }
+
+    /**
+     * @param callbackExecutor Where batch results are delivered; the main thread in the app
+     */
+    AQIRepository(AqiTileCache tileCache, OpenWeatherApi openWeatherApi, Executor callbackExecutor) {
+        this.tileCache = tileCache;
+        this.openWeatherApi = openWeatherApi;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    private static ThreadPoolExecutor createExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /**
      * Callback interface for AQI data retrieval
      */
@@ -35,54 +107,403 @@ public class AQIRepository {
         void onFailure(String error);
     }
 
+    /**
+     * Callback interface for place name lookup
+     */
+    public interface GeocodeCallback {
+        void onSuccess(GeocodingResponse place);
+        void onFailure(String error);
+    }
+
+    /**
+     * Callback interface for historical series retrieval
+     */
+    public interface SeriesCallback {
+        void onChunk(AqiSeries chunk, int chunksReceived, int totalChunks);
+        void onSuccess(AqiSeries series);
+        void onFailure(String error);
+    }
+
+    /**
+     * Callback interface for batch AQI retrieval
+     */
+    public interface BatchCallback {
+        void onPointResult(int index, LatLng point, AirQualityData data);
+        void onPointFailure(int index, LatLng point, String error);
+        void onComplete(int succeeded, int failed);
+    }
+
     /**
      * Fetch AQI data for specific coordinates
+     * Served from the tile cache when a fresh reading exists for the same grid cell.
+     * Concurrent requests for the same tile share one network call.
      *
      * @param latitude Location latitude
      * @param longitude Location longitude
      * @param callback Callback for results
      */
     public void fetchAQIByCoordinates(double latitude, double longitude, AQICallback callback) {
+        String tileKey = tileCache.tileKey(latitude, longitude);
+        AirQualityData cached = tileCache.get(tileKey);
+        if (cached != null) {
+            Log.d(TAG, "AQI served from tile cache " + tileKey + ": AQI = " + cached.getAqi());
+            callback.onSuccess(cached);
+            return;
+        }
+
+        InFlightRequest request;
+        synchronized (IN_FLIGHT) {
+            request = IN_FLIGHT.get(tileKey);
+            if (request != null) {
+                Log.d(TAG, "Joining in-flight AQI request for tile " + tileKey);
+                request.callbacks.add(callback);
+                return;
+            }
+            request = new InFlightRequest(tileKey,
+                openWeatherApi.getAirPollution(latitude, longitude, API_KEY));
+            request.callbacks.add(callback);
+            IN_FLIGHT.put(tileKey, request);
+        }
+
         Log.d(TAG, "Fetching AQI for coordinates: " + latitude + ", " + longitude);
 
-        RetrofitClient.getOpenWeatherApi()
-            .getAirPollution(latitude, longitude, API_KEY)
-            .enqueue(new Callback<AirPollutionResponse>() {
-                @Override
-                public void onResponse(Call<AirPollutionResponse> call, Response<AirPollutionResponse> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        AirPollutionResponse airPollutionResponse = response.body();
+        final InFlightRequest inFlight = request;
+        inFlight.call.enqueue(new Callback<AirPollutionResponse>() {
+            @Override
+            public void onResponse(Call<AirPollutionResponse> call, Response<AirPollutionResponse> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    AirPollutionResponse airPollutionResponse = response.body();
 
-                        if (airPollutionResponse.getList() != null &&
-                            !airPollutionResponse.getList().isEmpty()) {
+                    if (airPollutionResponse.getList() != null &&
+                        !airPollutionResponse.getList().isEmpty()) {
 
-                            // Convert API response to AirQualityData
-                            AirQualityData aqiData = convertToAQIData(
-                                airPollutionResponse,
-                                latitude,
-                                longitude
-                            );
+                        // Convert API response to AirQualityData
+                        AirQualityData aqiData = convertToAQIData(
+                            airPollutionResponse,
+                            latitude,
+                            longitude
+                        );
 
-                            Log.d(TAG, "AQI data fetched successfully: AQI = " + aqiData.getAqi());
-                            callback.onSuccess(aqiData);
-                        } else {
-                            Log.e(TAG, "No air quality data available in response");
-                            callback.onFailure("No air quality data available");
-                        }
+                        tileCache.put(tileKey, aqiData, AqiTileCache.DEFAULT_TTL_MILLIS);
+
+                        Log.d(TAG, "AQI data fetched successfully: AQI = " + aqiData.getAqi());
+                        complete(inFlight, aqiData, null);
                     } else {
-                        String errorMsg = "Failed to fetch AQI data: " + response.message();
-                        Log.e(TAG, errorMsg);
-                        callback.onFailure(errorMsg);
+                        Log.e(TAG, "No air quality data available in response");
+                        complete(inFlight, null, "No air quality data available");
                     }
+                } else {
+                    String errorMsg = "Failed to fetch AQI data: " + response.message();
+                    Log.e(TAG, errorMsg);
+                    complete(inFlight, null, errorMsg);
                 }
+            }
 
-                @Override
-                public void onFailure(Call<AirPollutionResponse> call, Throwable t) {
-                    String errorMsg = "Network error: " + t.getMessage();
-                    Log.e(TAG, errorMsg, t);
-                    callback.onFailure(errorMsg);
+            @Override
+            public void onFailure(Call<AirPollutionResponse> call, Throwable t) {
+                if (call.isCanceled()) {
+                    Log.d(TAG, "AQI request for tile " + tileKey + " cancelled");
+                    complete(inFlight, null, null);
+                    return;
                 }
-            });
+                String errorMsg = "Network error: " + t.getMessage();
+                Log.e(TAG, errorMsg, t);
+                complete(inFlight, null, errorMsg);
+            }
+        });
+    }
+
+    /**
+     * Fetch AQI for the location the user just selected.
+     * A newer selection supersedes the previous one: its callback is dropped
+     * and its network call is cancelled if no other caller is waiting on it,
+     * so a stale response can never overwrite the latest one on screen.
+     * Selecting the same tile again while it loads keeps the call and only
+     * hands its result to the new callback.
+     *
+     * @param latitude Location latitude
+     * @param longitude Location longitude
+     * @param callback Callback for results
+     */
+    public void fetchAQIForSelection(double latitude, double longitude, AQICallback callback) {
+        String tileKey = tileCache.tileKey(latitude, longitude);
+        if (currentSelection != null) {
+            if (currentSelection.tileKey.equals(tileKey)) {
+                currentSelection.callback = callback;
+                return;
+            }
+            detach(currentSelection);
+        }
+
+        Selection selection = new Selection(tileKey, callback);
+        currentSelection = selection;
+        fetchAQIByCoordinates(latitude, longitude, selection);
+    }
+
+    /**
+     * The pending selection's place among a tile request's callbacks;
+     * only delivers while it is still the current selection
+     */
+    private class Selection implements AQICallback {
+        final String tileKey;
+        AQICallback callback;
+
+        Selection(String tileKey, AQICallback callback) {
+            this.tileKey = tileKey;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(AirQualityData data) {
+            if (currentSelection != this) return;
+            currentSelection = null;
+            callback.onSuccess(data);
+        }
+
+        @Override
+        public void onFailure(String error) {
+            if (currentSelection != this) return;
+            currentSelection = null;
+            callback.onFailure(error);
+        }
+    }
+
+    /**
+     * Cancel the pending user selection, e.g. when the screen is destroyed
+     */
+    public void cancelSelection() {
+        if (currentSelection != null) {
+            detach(currentSelection);
+            currentSelection = null;
+        }
+    }
+
+    // Remove a waiting callback; cancel the shared call once nobody is waiting on it
+    private static void detach(AQICallback callback) {
+        synchronized (IN_FLIGHT) {
+            for (InFlightRequest request : IN_FLIGHT.values()) {
+                if (request.callbacks.remove(callback)) {
+                    if (request.callbacks.isEmpty()) {
+                        IN_FLIGHT.remove(request.tileKey);
+                        request.call.cancel();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    // Deliver one result to every caller that joined the request
+    private static void complete(InFlightRequest request, AirQualityData data, String error) {
+        List<AQICallback> callbacks;
+        synchronized (IN_FLIGHT) {
+            if (IN_FLIGHT.get(request.tileKey) == request) {
+                IN_FLIGHT.remove(request.tileKey);
+            }
+            callbacks = new ArrayList<>(request.callbacks);
+            request.callbacks.clear();
+        }
+
+        for (AQICallback callback : callbacks) {
+            if (data != null) {
+                callback.onSuccess(data);
+            } else if (error != null) {
+                callback.onFailure(error);
+            }
+        }
+    }
+
+    /**
+     * Fetch AQI data for many points at once.
+     * Requests run on a shared bounded pool, at most batchConcurrency at a
+     * time per batch, and share the free-tier rate limit. Results are
+     * delivered on the main thread one point at a time as they arrive; a
+     * failed point is reported without stopping the rest.
+     *
+     * @param points Coordinates to sample
+     * @param callback Callback for per-point results and completion
+     */
+    public void fetchAQIBatch(List<LatLng> points, BatchCallback callback) {
+        if (points == null || points.isEmpty()) {
+            callback.onComplete(0, 0);
+            return;
+        }
+
+        int workers = Math.min(batchConcurrency, points.size());
+        Log.d(TAG, "Fetching AQI batch of " + points.size() + " points with concurrency " + workers);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(points.size());
+
+        // Each worker takes the next unclaimed point until none are left
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < points.size()) {
+                fetchBatchPoint(index, points.get(index), callback, succeeded, failed, remaining);
+            }
+        };
+        for (int i = 0; i < workers; i++) {
+            BATCH_EXECUTOR.execute(worker);
+        }
+    }
+
+    private void fetchBatchPoint(int index, LatLng point, BatchCallback callback,
+                                 AtomicInteger succeeded, AtomicInteger failed, AtomicInteger remaining) {
+        AirQualityData data = null;
+        String error = null;
+        try {
+            data = fetchPointBlocking(point);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Batch interrupted";
+        } catch (IOException e) {
+            error = "Network error: " + e.getMessage();
+        } catch (RuntimeException e) {
+            // Malformed responses surface here; the point fails but the batch still completes
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        final AirQualityData result = data;
+        final String errorMsg = error;
+        callbackExecutor.execute(() -> {
+            if (result != null) {
+                succeeded.incrementAndGet();
+                callback.onPointResult(index, point, result);
+            } else {
+                failed.incrementAndGet();
+                Log.e(TAG, "Batch point " + index + " failed: " + errorMsg);
+                callback.onPointFailure(index, point, errorMsg);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                callback.onComplete(succeeded.get(), failed.get());
+            }
+        });
+    }
+
+    /**
+     * Set the maximum number of concurrent requests used by fetchAQIBatch
+     */
+    public void setBatchConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.batchConcurrency = concurrency;
+    }
+
+    /**
+     * Fetch AQI for a saved place name on the calling thread, e.g. from a background worker.
+     * Geocoding answers come from the HTTP cache and readings from the tile cache
+     * when fresh, so repeated polls of the same place rarely hit the network.
+     *
+     * @param location Place name as entered at signup, e.g. "Lahore"
+     */
+    public AirQualityData fetchAQIForLocationBlocking(String location) throws IOException, InterruptedException {
+        RATE_LIMITER.acquire();
+        Response<List<GeocodingResponse>> response = geocodeCall(location).execute();
+        GeocodingResponse place = firstPlace(location, response);
+        return fetchPointBlocking(new LatLng(place.getLat(), place.getLon()));
+    }
+
+    /**
+     * Resolve a place name to coordinates; the best match is returned.
+     * If a batch has drained the rate limiter, the call waits for a token on
+     * a background thread instead of failing.
+     *
+     * @param location Place name, e.g. "Dhaka, Bangladesh"
+     * @param callback Callback for results
+     */
+    public void geocodeLocation(String location, GeocodeCallback callback) {
+        if (RATE_LIMITER.tryAcquire()) {
+            enqueueGeocode(location, callback);
+            return;
+        }
+        GEOCODE_EXECUTOR.execute(() -> {
+            try {
+                RATE_LIMITER.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callbackExecutor.execute(() -> callback.onFailure("Geocoding was interrupted"));
+                return;
+            }
+            enqueueGeocode(location, callback);
+        });
+    }
+
+    private void enqueueGeocode(String location, GeocodeCallback callback) {
+        geocodeCall(location).enqueue(new Callback<List<GeocodingResponse>>() {
+            @Override
+            public void onResponse(Call<List<GeocodingResponse>> call, Response<List<GeocodingResponse>> response) {
+                try {
+                    callback.onSuccess(firstPlace(location, response));
+                } catch (IllegalStateException e) {
+                    Log.e(TAG, e.getMessage());
+                    callback.onFailure(e.getMessage());
+                }
+            }
+
+            @Override
+            public void onFailure(Call<List<GeocodingResponse>> call, Throwable t) {
+                String errorMsg = "Network error: " + t.getMessage();
+                Log.e(TAG, errorMsg, t);
+                callback.onFailure(errorMsg);
+            }
+        });
+    }
+
+    private Call<List<GeocodingResponse>> geocodeCall(String location) {
+        return openWeatherApi.geocodeLocation(location, 1, API_KEY);
+    }
+
+    private static GeocodingResponse firstPlace(String location, Response<List<GeocodingResponse>> response) {
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IllegalStateException("Failed to geocode location: " + response.message());
+        }
+        if (response.body().isEmpty()) {
+            throw new IllegalStateException("Location not found: " + location);
+        }
+        return response.body().get(0);
+    }
+
+    // Runs on a batch worker thread
+    private AirQualityData fetchPointBlocking(LatLng point) throws IOException, InterruptedException {
+        String tileKey = tileCache.tileKey(point.latitude, point.longitude);
+        AirQualityData cached = tileCache.get(tileKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        RATE_LIMITER.acquire();
+        Response<AirPollutionResponse> response = openWeatherApi
+            .getAirPollution(point.latitude, point.longitude, API_KEY)
+            .execute();
+
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IllegalStateException("Failed to fetch AQI data: " + response.message());
+        }
+        AirPollutionResponse body = response.body();
+        if (body.getList() == null || body.getList().isEmpty()) {
+            throw new IllegalStateException("No air quality data available");
+        }
+
+        AirQualityData aqiData = convertToAQIData(body, point.latitude, point.longitude);
+        tileCache.put(tileKey, aqiData, AqiTileCache.DEFAULT_TTL_MILLIS);
+        return aqiData;
+    }
+
+    /**
+     * A network call shared by every caller asking for the same tile
+     */
+    private static class InFlightRequest {
+        final String tileKey;
+        final Call<AirPollutionResponse> call;
+        final List<AQICallback> callbacks = new ArrayList<>();
+
+        InFlightRequest(String tileKey, Call<AirPollutionResponse> call) {
+            this.tileKey = tileKey;
+            this.call = call;
+        }
     }
 
     /**
@@ -131,6 +552,7 @@ public class AQIRepository {
     /**
      * Fetch historical AQI data for specific coordinates
      * Note: OpenWeatherMap requires start and end timestamps for historical data
+     * Only the first point is returned; use fetchHistoricalSeries for the full range
      *
      * @param latitude Location latitude
      * @param longitude Location longitude
@@ -141,7 +563,7 @@ public class AQIRepository {
     public void fetchHistoricalAQI(double latitude, double longitude, long start, long end, AQICallback callback) {
         Log.d(TAG, "Fetching historical AQI for coordinates: " + latitude + ", " + longitude);
 
-        RetrofitClient.getOpenWeatherApi()
+        openWeatherApi
             .getHistoricalAirPollution(latitude, longitude, start, end, API_KEY)
             .enqueue(new Callback<AirPollutionResponse>() {
                 @Override
@@ -181,6 +603,86 @@ public class AQIRepository {
             });
     }
 
+    /**
+     * Fetch every hourly point between start and end as a columnar series.
+     * Long ranges are split into chunks that are requested in parallel;
+     * each chunk is reported as it arrives and the merged, timestamp-ordered
+     * series is delivered once all chunks are in.
+     *
+     * @param latitude Location latitude
+     * @param longitude Location longitude
+     * @param start Start timestamp (Unix time in seconds)
+     * @param end End timestamp (Unix time in seconds)
+     * @param callback Callback for chunks and the merged series
+     */
+    public void fetchHistoricalSeries(double latitude, double longitude, long start, long end,
+                                      SeriesCallback callback) {
+        if (end <= start) {
+            callback.onFailure("Invalid time range");
+            return;
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        for (long chunkStart = start; chunkStart < end; chunkStart += HISTORY_CHUNK_SECONDS) {
+            ranges.add(new long[]{chunkStart, Math.min(end, chunkStart + HISTORY_CHUNK_SECONDS)});
+        }
+
+        Log.d(TAG, "Fetching historical series for " + latitude + ", " + longitude
+            + " in " + ranges.size() + " chunks");
+
+        AqiSeries[] chunks = new AqiSeries[ranges.size()];
+        int[] received = {0};
+        boolean[] failed = {false};
+
+        for (int i = 0; i < ranges.size(); i++) {
+            final int index = i;
+            long[] range = ranges.get(i);
+            openWeatherApi
+                .getHistoricalAirPollutionSeries(latitude, longitude, range[0], range[1], API_KEY)
+                .enqueue(new Callback<AqiSeries>() {
+                    @Override
+                    public void onResponse(Call<AqiSeries> call, Response<AqiSeries> response) {
+                        if (failed[0]) return;
+                        if (!response.isSuccessful() || response.body() == null) {
+                            failed[0] = true;
+                            String errorMsg = "Failed to fetch historical data: " + response.message();
+                            Log.e(TAG, errorMsg);
+                            callback.onFailure(errorMsg);
+                            return;
+                        }
+
+                        AqiSeries chunk = response.body();
+                        chunks[index] = chunk;
+                        received[0]++;
+                        callback.onChunk(chunk, received[0], chunks.length);
+
+                        if (received[0] == chunks.length) {
+                            AqiSeries series = AqiSeries.merge(Arrays.asList(chunks), latitude, longitude);
+                            Log.d(TAG, "Historical series fetched: " + series.size() + " points");
+                            callback.onSuccess(series);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<AqiSeries> call, Throwable t) {
+                        if (failed[0]) return;
+                        failed[0] = true;
+                        String errorMsg = "Network error: " + t.getMessage();
+                        Log.e(TAG, errorMsg, t);
+                        callback.onFailure(errorMsg);
+                    }
+                });
+        }
+    }
+
+    /**
+     * Get hit/miss/eviction counters of the tile cache
+     * @return Snapshot of cache statistics
+     */
+    public AqiTileCache.Stats getCacheStats() {
+        return tileCache.getStats();
+    }
+
     /**
      * Get API key (for testing purposes)
      * @return Current API key
@@ -1,18 +1,71 @@
 package com.example.aerotutorial.repository;
 
+import androidx.annotation.NonNull;
+
 import com.example.aerotutorial.models.Alert;
+import com.example.aerotutorial.utils.GeoHash;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class AlertRepository {
 
+    // Active alerts are also indexed by area under alerts_by_cell/{geohash}/{alertId},
+    // so users can listen to the few cells around them instead of every alert
+    private static final String CELLS = "alerts_by_cell";
+
+    // Expired alerts are moved here by sweepExpired
+    private static final String ARCHIVE = "alerts_archive";
+
+    // Alerts without an explicit expiry stop being active this long after creation
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    // Alerts archived per multi-path update
+    public static final int SWEEP_BATCH_SIZE = 100;
+
+    // Precision 4 cells are about 39 x 20 km; a cell and its neighbours cover a metro area
+    public static final int CELL_PRECISION = 4;
+
     private final DatabaseReference databaseReference;
 
+    public interface SweepCallback {
+        void onComplete(int archived);
+        void onFailure(String error);
+    }
+
+    public interface NearbyAlertListener {
+        void onAlert(Alert alert);
+        void onFailure(String error);
+    }
+
+    /**
+     * Live listeners on the cells around a point; call cancel() to detach them
+     */
+    public static class NearbySubscription {
+        private final List<Query> queries = new ArrayList<>();
+        private final List<ChildEventListener> listeners = new ArrayList<>();
+
+        public void cancel() {
+            for (int i = 0; i < queries.size(); i++) {
+                queries.get(i).removeEventListener(listeners.get(i));
+            }
+            queries.clear();
+            listeners.clear();
+        }
+    }
+
     public AlertRepository() {
         this.databaseReference = FirebaseDatabase.getInstance().getReference().child("alerts");
     }
@@ -30,14 +83,64 @@ public class AlertRepository {
             alertMap.put("createdBy", alert.getCreatedBy());
             alertMap.put("createdDate", alert.getCreatedDate());
             alertMap.put("status", alert.getStatus());
+            if (alert.getExpiresAt() <= 0) {
+                alert.setExpiresAt(alert.getCreatedDate() + DEFAULT_TTL_MILLIS);
+            }
+            alertMap.put("expiresAt", alert.getExpiresAt());
+            if (alert.getLatitude() != null && alert.getLongitude() != null) {
+                alert.setGeohash(GeoHash.encode(alert.getLatitude(), alert.getLongitude(), CELL_PRECISION));
+                alertMap.put("latitude", alert.getLatitude());
+                alertMap.put("longitude", alert.getLongitude());
+                alertMap.put("geohash", alert.getGeohash());
+            }
 
-            return databaseReference.child(alertId).setValue(alertMap);
+            BatchWriter batch = new BatchWriter(databaseReference.getRoot())
+                .set("alerts/" + alertId, alertMap);
+            if (StatsRepository.ALERT_STATUS_ACTIVE.equals(alert.getStatus())) {
+                batch.increment(StatsRepository.activeAlertsPath(), 1);
+                if (alert.getGeohash() != null) {
+                    batch.set(cellPath(alert.getGeohash(), alertId), alertMap);
+                }
+            }
+            return batch.commit();
         }
         return null;
     }
 
+    /**
+     * Alerts that had not expired when the query was built. Deactivating an
+     * alert expires it, so new queries skip it instead of reading every alert
+     * ever marked Active; a listener already attached keeps receiving it.
+     */
     public Query getActiveAlerts() {
-        return databaseReference.orderByChild("status").equalTo("Active");
+        return databaseReference.orderByChild("expiresAt").startAt(System.currentTimeMillis());
+    }
+
+    /**
+     * Live active alerts, latest-expiring first. Deactivated alerts and alerts
+     * whose expiresAt passes while the listener is attached are dropped from
+     * the list by the parser, since the startAt bound is only read again when
+     * a query is built.
+     */
+    public LiveCollection<Alert> observeActiveAlerts() {
+        LiveCollection.Source source = LiveCollection.Source.startAt(databaseReference, "expiresAt",
+            System::currentTimeMillis);
+        return LiveCollection.shared("alerts/Active", source, new LiveCollection.Parser<Alert>() {
+            @Override
+            public Alert parse(DataSnapshot snapshot) {
+                Alert alert = snapshot.getValue(Alert.class);
+                if (alert == null || !StatsRepository.ALERT_STATUS_ACTIVE.equals(alert.getStatus())) {
+                    return null;
+                }
+                alert.setId(snapshot.getKey());
+                return alert;
+            }
+
+            @Override
+            public long validUntil(Alert alert) {
+                return alert.getExpiresAt();
+            }
+        });
     }
 
     public DatabaseReference getAllAlerts() {
@@ -49,12 +152,270 @@ public class AlertRepository {
     }
 
     public Task<Void> deactivateAlert(String alertId) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", "Inactive");
-        return databaseReference.child(alertId).updateChildren(updates);
+        String[] cell = new String[1];
+        return StatsRepository.transact(databaseReference.child(alertId), currentData -> {
+            if (currentData.getValue() == null) {
+                return null;
+            }
+            String previous = currentData.child("status").getValue(String.class);
+            cell[0] = currentData.child("geohash").getValue(String.class);
+            currentData.child("status").setValue("Inactive");
+            // Drops out of observeActiveAlerts now and is archived by the next sweep
+            currentData.child("expiresAt").setValue(System.currentTimeMillis());
+            return previous == null ? "" : previous;
+        }).onSuccessTask(previous -> afterDeactivate(alertId, cell[0], previous));
     }
 
     public Task<Void> deleteAlert(String alertId) {
-        return databaseReference.child(alertId).removeValue();
+        String[] cell = new String[1];
+        return StatsRepository.transact(databaseReference.child(alertId), currentData -> {
+            if (currentData.getValue() == null) {
+                return null;
+            }
+            String previous = currentData.child("status").getValue(String.class);
+            cell[0] = currentData.child("geohash").getValue(String.class);
+            currentData.setValue(null);
+            return previous == null ? "" : previous;
+        }).onSuccessTask(previous -> afterDeactivate(alertId, cell[0], previous));
+    }
+
+    // Only an alert that was active when we changed it leaves the active count and its cell.
+    // Not atomic with the transaction; StatsRepository.reconcileIfStale repairs a lost decrement.
+    private Task<Void> afterDeactivate(String alertId, String cell, String previousStatus) {
+        if (!StatsRepository.ALERT_STATUS_ACTIVE.equals(previousStatus)) {
+            return Tasks.forResult(null);
+        }
+        BatchWriter batch = new BatchWriter(databaseReference.getRoot())
+            .increment(StatsRepository.activeAlertsPath(), -1);
+        if (cell != null) {
+            batch.remove(cellPath(cell, alertId));
+        }
+        return batch.commit();
+    }
+
+    /**
+     * Move every alert whose expiresAt has passed to alerts_archive.
+     * Alerts are read SWEEP_BATCH_SIZE at a time, soonest expiry first, and
+     * each batch is archived, removed from alerts and its cell, and taken off
+     * the active counter in one multi-path update. Alerts saved before
+     * expiresAt existed get createdDate + DEFAULT_TTL_MILLIS.
+     * An alert still Active is first set Inactive by a status transaction, as
+     * deactivateAlert does, so of a sweep and a concurrent deactivate or delete
+     * only the one that saw it Active takes it off the counter.
+     */
+    public void sweepExpired(SweepCallback callback) {
+        sweepBatch(System.currentTimeMillis(), 0, callback);
+    }
+
+    private void sweepBatch(long now, int archivedSoFar, SweepCallback callback) {
+        // Children without expiresAt sort first, so older alerts are picked up too
+        databaseReference.orderByChild("expiresAt").endAt(now).limitToFirst(SWEEP_BATCH_SIZE)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    BatchWriter batch = new BatchWriter(databaseReference.getRoot());
+                    int[] archived = {0};
+                    List<Task<Void>> claims = new ArrayList<>();
+                    for (DataSnapshot child : snapshot.getChildren()) {
+                        if (backfillExpiry(child, now, batch)) {
+                            continue;
+                        }
+                        if (!StatsRepository.ALERT_STATUS_ACTIVE.equals(child.child("status").getValue(String.class))) {
+                            // Not counted as active, so there is nothing to race over
+                            addArchive(child.getKey(), child.getValue(), now, false, batch);
+                            archived[0]++;
+                            continue;
+                        }
+                        claims.add(claimActive(child.getKey(), now, batch)
+                            .onSuccessTask(wasArchived -> {
+                                if (wasArchived) {
+                                    archived[0]++;
+                                }
+                                return Tasks.forResult(null);
+                            }));
+                    }
+
+                    boolean lastBatch = snapshot.getChildrenCount() < SWEEP_BATCH_SIZE;
+                    Tasks.whenAllComplete(claims)
+                        .onSuccessTask(done -> batch.commit())
+                        .addOnSuccessListener(aVoid -> {
+                            int total = archivedSoFar + archived[0];
+                            if (!allSuccessful(claims)) {
+                                // The alerts left behind are picked up by the next sweep
+                                callback.onFailure("Some expired alerts could not be archived");
+                            } else if (lastBatch) {
+                                callback.onComplete(total);
+                            } else {
+                                sweepBatch(now, total, callback);
+                            }
+                        })
+                        .addOnFailureListener(e -> callback.onFailure(e.getMessage()));
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    callback.onFailure(error.getMessage());
+                }
+            });
+    }
+
+    // Give an alert saved without expiresAt one; returns true if that leaves it unexpired
+    private static boolean backfillExpiry(DataSnapshot child, long now, BatchWriter batch) {
+        if (child.child("expiresAt").getValue(Long.class) != null) {
+            return false;
+        }
+        Long createdDate = child.child("createdDate").getValue(Long.class);
+        long backfilled = (createdDate != null ? createdDate : now) + DEFAULT_TTL_MILLIS;
+        if (backfilled <= now) {
+            return false;
+        }
+        batch.set("alerts/" + child.getKey() + "/expiresAt", backfilled);
+        return true;
+    }
+
+    /**
+     * Set an alert Inactive in a transaction and add its archive writes to batch,
+     * with a counter decrement only if this transaction replaced Active.
+     * Resolves to false if the alert was deleted meanwhile.
+     */
+    private Task<Boolean> claimActive(String alertId, long now, BatchWriter batch) {
+        Object[] record = new Object[1];
+        return StatsRepository.transact(databaseReference.child(alertId), currentData -> {
+            if (currentData.getValue() == null) {
+                return null;
+            }
+            String previous = currentData.child("status").getValue(String.class);
+            record[0] = currentData.getValue();
+            currentData.child("status").setValue("Inactive");
+            return previous == null ? "" : previous;
+        }).onSuccessTask(previous -> {
+            if (previous == null) {
+                return Tasks.forResult(false);
+            }
+            addArchive(alertId, record[0], now, StatsRepository.ALERT_STATUS_ACTIVE.equals(previous), batch);
+            return Tasks.forResult(true);
+        });
+    }
+
+    // Add the writes that archive one expired alert, as it was before the sweep changed it
+    @SuppressWarnings("unchecked")
+    private static void addArchive(String alertId, Object value, long now, boolean wasActive,
+                                   BatchWriter batch) {
+        String cell = null;
+        if (value instanceof Map) {
+            Map<String, Object> archived = new HashMap<>((Map<String, Object>) value);
+            archived.put("archivedAt", now);
+            batch.set(ARCHIVE + "/" + alertId, archived);
+            Object geohash = archived.get("geohash");
+            cell = geohash instanceof String ? (String) geohash : null;
+        }
+        batch.remove("alerts/" + alertId);
+
+        if (cell != null) {
+            batch.remove(cellPath(cell, alertId));
+        }
+        if (wasActive) {
+            batch.increment(StatsRepository.activeAlertsPath(), -1);
+        }
+    }
+
+    private static boolean allSuccessful(List<? extends Task<?>> tasks) {
+        for (Task<?> task : tasks) {
+            if (!task.isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Listen for active alerts created after `since` in the cell containing a
+     * point and its neighbours. Alerts already in those cells are delivered
+     * first, then new ones as they are created.
+     */
+    public NearbySubscription subscribeNearby(double latitude, double longitude, long since,
+                                              NearbyAlertListener listener) {
+        NearbySubscription subscription = new NearbySubscription();
+        for (Query query : nearbyQueries(latitude, longitude, since)) {
+            ChildEventListener childListener = new ChildEventListener() {
+                @Override
+                public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                    deliver(snapshot, listener);
+                }
+
+                @Override
+                public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                }
+
+                @Override
+                public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                }
+
+                @Override
+                public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    listener.onFailure(error.getMessage());
+                }
+            };
+            query.addChildEventListener(childListener);
+            subscription.queries.add(query);
+            subscription.listeners.add(childListener);
+        }
+        return subscription;
+    }
+
+    /**
+     * One-shot read of the alerts subscribeNearby would deliver, e.g. from a background worker
+     */
+    public void fetchNearby(double latitude, double longitude, long since, NearbyAlertListener listener) {
+        for (Query query : nearbyQueries(latitude, longitude, since)) {
+            query.addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    for (DataSnapshot child : snapshot.getChildren()) {
+                        deliver(child, listener);
+                    }
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    listener.onFailure(error.getMessage());
+                }
+            });
+        }
+    }
+
+    private List<Query> nearbyQueries(double latitude, double longitude, long since) {
+        String home = GeoHash.encode(latitude, longitude, CELL_PRECISION);
+        List<String> cells = new ArrayList<>();
+        cells.add(home);
+        cells.addAll(GeoHash.neighbors(home));
+
+        DatabaseReference cellsRef = databaseReference.getRoot().child(CELLS);
+        List<Query> queries = new ArrayList<>();
+        for (String cell : cells) {
+            queries.add(cellsRef.child(cell).orderByChild("createdDate").startAfter(since));
+        }
+        return queries;
+    }
+
+    private static void deliver(DataSnapshot snapshot, NearbyAlertListener listener) {
+        Alert alert = snapshot.getValue(Alert.class);
+        if (alert == null || !StatsRepository.ALERT_STATUS_ACTIVE.equals(alert.getStatus())) {
+            return;
+        }
+        // Expired but not swept yet
+        if (alert.getExpiresAt() > 0 && alert.getExpiresAt() <= System.currentTimeMillis()) {
+            return;
+        }
+        alert.setId(snapshot.getKey());
+        listener.onAlert(alert);
+    }
+
+    private static String cellPath(String cell, String alertId) {
+        return CELLS + "/" + cell + "/" + alertId;
     }
 }
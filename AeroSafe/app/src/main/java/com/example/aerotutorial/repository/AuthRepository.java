@@ -3,6 +3,7 @@ package com.example.aerotutorial.repository;
 import com.example.aerotutorial.models.User;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -111,7 +112,11 @@ public class AuthRepository {
         userMap.put("createdAt", System.currentTimeMillis());
         userMap.put("active", true);
 
-        return databaseReference.child("users").child(userId).setValue(userMap);
+        // Profile and role counter in one atomic write
+        return new BatchWriter(databaseReference)
+            .set("users/" + userId, userMap)
+            .increment(StatsRepository.userRolePath(user.getRole()), 1)
+            .commit();
     }
 
     public Task<com.google.firebase.database.DataSnapshot> getUserProfile(String userId) {
@@ -119,7 +124,31 @@ public class AuthRepository {
     }
 
     public Task<Void> updateUserProfile(String userId, Map<String, Object> updates) {
-        return databaseReference.child("users").child(userId).updateChildren(updates);
+        if (!updates.containsKey("role")) {
+            return databaseReference.child("users").child(userId).updateChildren(updates);
+        }
+
+        // Role changes move the user between counters, so learn the old role atomically
+        String role = (String) updates.get("role");
+        return StatsRepository.transact(databaseReference.child("users").child(userId), currentData -> {
+            if (currentData.getValue() == null) {
+                return null;
+            }
+            String previous = currentData.child("role").getValue(String.class);
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                currentData.child(update.getKey()).setValue(update.getValue());
+            }
+            return previous == null ? "" : previous;
+        }).onSuccessTask(previous -> {
+            if (previous == null || StatsRepository.key(previous).equals(StatsRepository.key(role))) {
+                return Tasks.forResult(null);
+            }
+            // The role counters move in a follow-up write that reconcileIfStale backs up
+            return new BatchWriter(databaseReference)
+                .increment(StatsRepository.userRolePath(previous), -1)
+                .increment(StatsRepository.userRolePath(role), 1)
+                .commit();
+        });
     }
 
     public DatabaseReference getAllUsers() {
@@ -129,4 +158,16 @@ public class AuthRepository {
     public Query getUsersByRole(String role) {
         return databaseReference.child("users").orderByChild("role").equalTo(role);
     }
+
+    // Live users with a role
+    public LiveCollection<User> observeUsersByRole(String role) {
+        LiveCollection.Source source = LiveCollection.Source.equalTo(databaseReference.child("users"), "role", role);
+        return LiveCollection.shared("users/" + role, source, snapshot -> {
+            User user = snapshot.getValue(User.class);
+            if (user != null) {
+                user.setId(snapshot.getKey());
+            }
+            return user;
+        });
+    }
 }
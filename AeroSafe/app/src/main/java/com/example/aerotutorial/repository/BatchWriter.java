@@ -0,0 +1,161 @@
+package com.example.aerotutorial.repository;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Collects writes to several paths and commits them with a single
+ * multi-path updateChildren call. Realtime Database applies a multi-path
+ * update atomically: either every path is written or none is.
+ * Paths are relative to the root reference given to the constructor.
+ * Invalid or overlapping paths are rejected here, before anything is sent,
+ * so a bad batch fails as a whole instead of at the server.
+ */
+public class BatchWriter {
+
+    /**
+     * Where a batch is written: the database root in the app, a fake in tests
+     */
+    interface Target {
+        String newKey(String collection);
+        Task<Void> updateChildren(Map<String, Object> updates);
+    }
+
+    private static final Pattern INVALID_KEY_CHARS = Pattern.compile("[.$#\\[\\]]");
+
+    private final Target target;
+    private final Map<String, Object> updates = new HashMap<>();
+    private final Map<String, Long> increments = new HashMap<>();
+
+    public BatchWriter(DatabaseReference root) {
+        this(new Target() {
+            @Override
+            public String newKey(String collection) {
+                return root.child(collection).push().getKey();
+            }
+
+            @Override
+            public Task<Void> updateChildren(Map<String, Object> updates) {
+                return root.updateChildren(updates);
+            }
+        });
+    }
+
+    BatchWriter(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Generate a new push key under a collection without writing anything
+     */
+    public String newKey(String collection) {
+        return target.newKey(collection);
+    }
+
+    /**
+     * Replace the value at a path
+     */
+    public BatchWriter set(String path, Object value) {
+        updates.put(checkPath(path), value);
+        return this;
+    }
+
+    /**
+     * Replace individual fields of a node, leaving the other fields untouched
+     */
+    public BatchWriter update(String path, Map<String, Object> fields) {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            updates.put(checkPath(path + "/" + field.getKey()), field.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Delete the node at a path
+     */
+    public BatchWriter remove(String path) {
+        updates.put(checkPath(path), null);
+        return this;
+    }
+
+    /**
+     * Add delta to a numeric counter on the server; deltas to one path are summed
+     */
+    public BatchWriter increment(String path, long delta) {
+        Long current = increments.get(checkPath(path));
+        increments.put(path, current == null ? delta : current + delta);
+        return this;
+    }
+
+    public int size() {
+        return updates.size() + increments.size();
+    }
+
+    public boolean isEmpty() {
+        return updates.isEmpty() && increments.isEmpty();
+    }
+
+    /**
+     * Write every collected path in one round trip.
+     * Fails without writing anything if one path lies inside another.
+     */
+    public Task<Void> commit() {
+        Map<String, Object> all;
+        try {
+            all = buildUpdates();
+        } catch (IllegalStateException e) {
+            return Tasks.forException(e);
+        }
+        if (all.isEmpty()) {
+            return Tasks.forResult(null);
+        }
+        return target.updateChildren(all);
+    }
+
+    // The single update map sent by commit; zero increments are dropped
+    Map<String, Object> buildUpdates() {
+        Map<String, Object> all = new HashMap<>(updates);
+        for (Map.Entry<String, Long> increment : increments.entrySet()) {
+            if (increment.getValue() != 0) {
+                if (all.containsKey(increment.getKey())) {
+                    throw new IllegalStateException("Path both set and incremented: " + increment.getKey());
+                }
+                all.put(increment.getKey(), ServerValue.increment(increment.getValue()));
+            }
+        }
+        checkNoOverlap(all.keySet());
+        return all;
+    }
+
+    // Firebase keys cannot be empty or contain . $ # [ ]
+    private static String checkPath(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Empty database path");
+        }
+        for (String key : path.split("/", -1)) {
+            if (key.isEmpty() || INVALID_KEY_CHARS.matcher(key).find()) {
+                throw new IllegalArgumentException("Invalid database path: " + path);
+            }
+        }
+        return path;
+    }
+
+    // The server rejects an update where one path is an ancestor of another
+    private static void checkNoOverlap(Set<String> paths) {
+        for (String path : paths) {
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                String ancestor = path.substring(0, slash);
+                if (paths.contains(ancestor)) {
+                    throw new IllegalStateException("Overlapping paths in one batch: " + ancestor + " and " + path);
+                }
+            }
+        }
+    }
+}
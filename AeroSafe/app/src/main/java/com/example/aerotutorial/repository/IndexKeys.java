@@ -0,0 +1,36 @@
+package com.example.aerotutorial.repository;
+
+import java.util.Locale;
+
+/**
+ * Composite "length:owner_timestamp" index values for Realtime Database queries.
+ * The timestamp is zero-padded so lexicographic order of the value equals
+ * chronological order for one owner, letting a single orderByChild query
+ * combine an equality filter with time ordering and limits.
+ * The owner is prefixed with its length, so one owner's range never holds
+ * another owner's keys: without it "Zone_1_..." would sort inside "Zone"'s range.
+ */
+final class IndexKeys {
+
+    private static final long MAX_TIMESTAMP = 9_999_999_999_999L;
+
+    private IndexKeys() {
+    }
+
+    static String compositeKey(String owner, long timestamp) {
+        return ownerPrefix(owner) + String.format(Locale.US, "%013d", timestamp);
+    }
+
+    // Smallest and largest values an owner's keys can take
+    static String lowerBound(String owner) {
+        return compositeKey(owner, 0);
+    }
+
+    static String upperBound(String owner) {
+        return compositeKey(owner, MAX_TIMESTAMP);
+    }
+
+    private static String ownerPrefix(String owner) {
+        return owner.length() + ":" + owner + "_";
+    }
+}
@@ -3,6 +3,7 @@ package com.example.aerotutorial.repository;
 import android.util.Log;
 
 import com.example.aerotutorial.models.Issue;
+import com.example.aerotutorial.utils.SpatialIndex;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
@@ -11,6 +12,7 @@ import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +21,19 @@ public class IssueRepository {
     private static final String TAG = "IssueRepository";
     private static final String ISSUES_COLLECTION = "issues";
 
+    // Composite index fields (see IndexKeys): length-prefixed owner + zero-padded createdAt
+    private static final String KEY_USER_CREATED = "userId_createdAt";
+    private static final String KEY_STATUS_CREATED = "status_createdAt";
+    private static final String CURSOR_SEPARATOR = "|";
+
+    // v2: keys rewritten in the length-prefixed format
+    public static final String INDEX_KEYS_MIGRATION = "issue_index_keys_v2";
+
+    // Located issues this process has seen, for nearest and area lookups;
+    // the oldest are evicted past MAX_INDEXED_ISSUES
+    private static final int MAX_INDEXED_ISSUES = 2000;
+    private static final SpatialIndex<Issue> ISSUE_INDEX = new SpatialIndex<>(MAX_INDEXED_ISSUES);
+
     private final DatabaseReference databaseReference;
 
     public IssueRepository() {
@@ -35,6 +50,75 @@ public class IssueRepository {
         void onFailure(String error);
     }
 
+    public interface IssuePageCallback {
+        void onSuccess(IssuePage page);
+        void onFailure(String error);
+    }
+
+    public interface MigrationCallback {
+        void onComplete(int updatedCount);
+        void onFailure(String error);
+    }
+
+    /**
+     * Which issues a page query returns
+     */
+    public static class IssueFilter {
+        final String field;
+        final String owner;
+
+        private IssueFilter(String field, String owner) {
+            this.field = field;
+            this.owner = owner;
+        }
+
+        public static IssueFilter all() {
+            return new IssueFilter("createdAt", null);
+        }
+
+        public static IssueFilter forUser(String userId) {
+            return new IssueFilter(KEY_USER_CREATED, userId);
+        }
+
+        public static IssueFilter withStatus(String status) {
+            return new IssueFilter(KEY_STATUS_CREATED, status);
+        }
+
+        String sortValue(Issue issue) {
+            return owner == null
+                ? String.valueOf(issue.getCreatedAt())
+                : IndexKeys.compositeKey(owner, issue.getCreatedAt());
+        }
+    }
+
+    /**
+     * One page of issues, newest first, plus the token for the next page
+     */
+    public static class IssuePage {
+        private final List<Issue> issues;
+        private final String nextCursor;
+
+        IssuePage(List<Issue> issues, String nextCursor) {
+            this.issues = issues;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Issue> getIssues() {
+            return issues;
+        }
+
+        /**
+         * Pass to getIssuesPage to continue; null when there are no older issues
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasMore() {
+            return nextCursor != null;
+        }
+    }
+
     // Submit a new issue
     public void submitIssue(Issue issue, IssueCallback callback) {
         String issueId = databaseReference.push().getKey();
@@ -58,10 +142,13 @@ public class IssueRepository {
             issueMap.put("adminResponse", issue.getAdminResponse());
             issueMap.put("createdAt", issue.getCreatedAt());
             issueMap.put("updatedAt", issue.getUpdatedAt());
+            issueMap.put(KEY_USER_CREATED, IndexKeys.compositeKey(issue.getUserId(), issue.getCreatedAt()));
+            issueMap.put(KEY_STATUS_CREATED, IndexKeys.compositeKey(issue.getStatus(), issue.getCreatedAt()));
 
             databaseReference.child(issueId).setValue(issueMap)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Issue submitted with ID: " + issueId);
+                    indexIssue(issue);
                     callback.onSuccess(issue);
                 })
                 .addOnFailureListener(e -> {
@@ -73,7 +160,82 @@ public class IssueRepository {
         }
     }
 
-    // Get user's issues
+    /**
+     * Load one page of issues, newest first.
+     * Only pageSize children are downloaded; pass the returned cursor to
+     * load the next (older) page.
+     * Requires ".indexOn": ["createdAt", "userId_createdAt", "status_createdAt"] on issues.
+     *
+     * @param filter All issues, one user's, or one status
+     * @param cursor Token from the previous page, or null for the first page
+     * @param pageSize Maximum number of issues to return
+     */
+    public void getIssuesPage(IssueFilter filter, String cursor, int pageSize, IssuePageCallback callback) {
+        Query query = databaseReference.orderByChild(filter.field);
+        if (filter.owner != null) {
+            query = query.startAt(IndexKeys.lowerBound(filter.owner));
+        }
+
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator <= 0 || separator == cursor.length() - 1) {
+                callback.onFailure("Invalid page cursor");
+                return;
+            }
+            String value = cursor.substring(0, separator);
+            String key = cursor.substring(separator + 1);
+            if (filter.owner != null) {
+                query = query.endBefore(value, key);
+            } else {
+                try {
+                    query = query.endBefore(Double.parseDouble(value), key);
+                } catch (NumberFormatException e) {
+                    callback.onFailure("Invalid page cursor");
+                    return;
+                }
+            }
+        } else if (filter.owner != null) {
+            query = query.endAt(IndexKeys.upperBound(filter.owner));
+        }
+
+        // One extra child tells whether an older page exists
+        query.limitToLast(pageSize + 1).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                List<Issue> issues = new ArrayList<>();
+                for (DataSnapshot issueSnapshot : snapshot.getChildren()) {
+                    Issue issue = issueSnapshot.getValue(Issue.class);
+                    if (issue != null) {
+                        issue.setId(issueSnapshot.getKey());
+                        indexIssue(issue);
+                        issues.add(issue);
+                    }
+                }
+
+                // Children arrive oldest first
+                boolean hasMore = issues.size() > pageSize;
+                if (hasMore) {
+                    issues.remove(0);
+                }
+                Collections.reverse(issues);
+
+                String nextCursor = null;
+                if (hasMore && !issues.isEmpty()) {
+                    Issue oldest = issues.get(issues.size() - 1);
+                    nextCursor = filter.sortValue(oldest) + CURSOR_SEPARATOR + oldest.getId();
+                }
+                callback.onSuccess(new IssuePage(issues, nextCursor));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                Log.e(TAG, "Error fetching issues page", error.toException());
+                callback.onFailure(error.getMessage());
+            }
+        });
+    }
+
+    // Get user's issues (loads every match; prefer getIssuesPage for lists)
     public void getUserIssues(String userId, IssueListCallback callback) {
         Query query = databaseReference.orderByChild("userId").equalTo(userId);
 
@@ -85,6 +247,7 @@ public class IssueRepository {
                     Issue issue = issueSnapshot.getValue(Issue.class);
                     if (issue != null) {
                         issue.setId(issueSnapshot.getKey());
+                        indexIssue(issue);
                         issues.add(issue);
                     }
                 }
@@ -101,7 +264,7 @@ public class IssueRepository {
         });
     }
 
-    // Get all issues (for admin/researcher)
+    // Get all issues (loads the whole node; prefer getIssuesPage for lists)
     public void getAllIssues(IssueListCallback callback) {
         databaseReference.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
@@ -111,6 +274,7 @@ public class IssueRepository {
                     Issue issue = issueSnapshot.getValue(Issue.class);
                     if (issue != null) {
                         issue.setId(issueSnapshot.getKey());
+                        indexIssue(issue);
                         issues.add(issue);
                     }
                 }
@@ -127,7 +291,7 @@ public class IssueRepository {
         });
     }
 
-    // Get issues by status
+    // Get issues by status (loads every match; prefer getIssuesPage for lists)
     public void getIssuesByStatus(String status, IssueListCallback callback) {
         Query query = databaseReference.orderByChild("status").equalTo(status);
 
@@ -139,6 +303,7 @@ public class IssueRepository {
                     Issue issue = issueSnapshot.getValue(Issue.class);
                     if (issue != null) {
                         issue.setId(issueSnapshot.getKey());
+                        indexIssue(issue);
                         issues.add(issue);
                     }
                 }
@@ -157,11 +322,24 @@ public class IssueRepository {
 
     // Update issue status
     public void updateIssueStatus(String issueId, String newStatus, IssueCallback callback) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", newStatus);
-        updates.put("updatedAt", System.currentTimeMillis());
+        // The status index embeds createdAt, so read it before rewriting the index.
+        // If the read fails nothing is written, so status and index never disagree.
+        databaseReference.child(issueId).child("createdAt").get()
+            .continueWithTask(task -> {
+                if (!task.isSuccessful()) {
+                    throw task.getException();
+                }
+                Long createdAt = task.getResult().getValue(Long.class);
+                if (createdAt == null) {
+                    throw new IllegalStateException("Issue not found");
+                }
 
-        databaseReference.child(issueId).updateChildren(updates)
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("status", newStatus);
+                updates.put("updatedAt", System.currentTimeMillis());
+                updates.put(KEY_STATUS_CREATED, IndexKeys.compositeKey(newStatus, createdAt));
+                return databaseReference.child(issueId).updateChildren(updates);
+            })
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Issue status updated");
                 getIssue(issueId, callback);
@@ -197,6 +375,7 @@ public class IssueRepository {
                 Issue issue = snapshot.getValue(Issue.class);
                 if (issue != null) {
                     issue.setId(snapshot.getKey());
+                    indexIssue(issue);
                     callback.onSuccess(issue);
                 } else {
                     callback.onFailure("Issue not found");
@@ -216,6 +395,7 @@ public class IssueRepository {
         databaseReference.child(issueId).removeValue()
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Issue deleted");
+                ISSUE_INDEX.remove(issueId);
                 callback.onSuccess(null);
             })
             .addOnFailureListener(e -> {
@@ -224,6 +404,49 @@ public class IssueRepository {
             });
     }
 
+    /**
+     * One-time backfill of userId_createdAt and status_createdAt on issues
+     * written before the composite keys existed, in their old format, or whose
+     * status index fell behind the status. Writes only the keys that differ,
+     * a page at a time (see PagedBackfill). Run from the admin dashboard,
+     * since only admins may write every issue.
+     */
+    public void migrateIndexKeys(MigrationCallback callback) {
+        PagedBackfill.run(ISSUES_COLLECTION, INDEX_KEYS_MIGRATION, (issueSnapshot, path, batch) -> {
+            String userId = issueSnapshot.child("userId").getValue(String.class);
+            String status = issueSnapshot.child("status").getValue(String.class);
+            Long createdAt = issueSnapshot.child("createdAt").getValue(Long.class);
+            long created = createdAt != null ? createdAt : 0;
+
+            boolean changed = false;
+            if (userId != null) {
+                changed |= PagedBackfill.setIfDifferent(batch, issueSnapshot, path, KEY_USER_CREATED,
+                    IndexKeys.compositeKey(userId, created));
+            }
+            if (status != null) {
+                changed |= PagedBackfill.setIfDifferent(batch, issueSnapshot, path, KEY_STATUS_CREATED,
+                    IndexKeys.compositeKey(status, created));
+            }
+            return changed;
+        }, callback::onComplete, callback::onFailure);
+    }
+
+    /**
+     * Recently delivered issues, indexed by position; updated as records arrive
+     */
+    public static SpatialIndex<Issue> getIssueIndex() {
+        return ISSUE_INDEX;
+    }
+
+    private static void indexIssue(Issue issue) {
+        // 0,0 is what an issue without a location deserializes to
+        if (issue.getLatitude() == 0 && issue.getLongitude() == 0) {
+            ISSUE_INDEX.remove(issue.getId());
+        } else {
+            ISSUE_INDEX.put(issue.getId(), issue.getLatitude(), issue.getLongitude(), issue);
+        }
+    }
+
     // Get database reference (for real-time listeners if needed)
     public DatabaseReference getDatabaseReference() {
         return databaseReference;
@@ -0,0 +1,580 @@
+package com.example.aerotutorial.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Local copy of a Realtime Database collection for a list screen.
+ * Only the newest page is kept in sync, by a ChildEventListener on
+ * limitToLast(pageSize); every add/change/remove is applied to the copy
+ * instead of reloading the query. loadMore() reads one older page at a time
+ * with a single endBefore(oldest).limitToLast(pageSize) query, so scrolling
+ * never downloads what is already held. Older pages are snapshots: they are
+ * not updated until the collection is attached again. A child pushed out of
+ * the live page by a newer one moves to the top of the older pages; one
+ * deleted from it is told apart by the window's value event, without a read.
+ * At most MAX_OLDER_PAGES older pages are retained (see OlderPages). Loading
+ * past that evicts the page farthest from the one being read, and the evicted
+ * range is read again by loadNewer() / loadMore() when the list is scrolled
+ * back to it.
+ * The listener is attached while the collection has active observers and
+ * stays attached for LINGER_MILLIS after the last one stops, so switching
+ * tabs does not download it again. Observers get a new list, newest first in
+ * query order, after each batch of changes. Changed children are parsed into
+ * new objects, so lists can be diffed by content.
+ */
+public class LiveCollection<T> extends LiveData<List<T>> {
+    private static final String TAG = "LiveCollection";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    // Older pages held besides the live one; bounds memory at 9 pages of rows
+    static final int MAX_OLDER_PAGES = 8;
+    private static final long LINGER_MILLIS = 60_000;
+
+    // One collection per query, shared by every screen that shows it
+    private static final Map<String, LiveCollection<?>> SHARED = new HashMap<>();
+
+    public interface Parser<T> {
+        // Return null to skip a child that cannot be read or should not be shown
+        T parse(DataSnapshot snapshot);
+
+        // Time after which an item is hidden even though its child has not changed
+        default long validUntil(T item) {
+            return Long.MAX_VALUE;
+        }
+
+        // Called when a child is deleted from the database or leaves the query
+        default void removed(String key) {
+        }
+    }
+
+    /**
+     * Which children a collection shows and how to read the pages around a child.
+     * Order is by key, or by one child field that is either fixed with equalTo
+     * or bounded below with startAt.
+     */
+    public static final class Source {
+        private final DatabaseReference reference;
+        private final String orderField;
+        private final String equalTo;
+        private final LongSupplier lowerBound;
+
+        private Source(DatabaseReference reference, String orderField, String equalTo,
+                       LongSupplier lowerBound) {
+            this.reference = reference;
+            this.orderField = orderField;
+            this.equalTo = equalTo;
+            this.lowerBound = lowerBound;
+        }
+
+        // Every child, in key order
+        public static Source byKey(DatabaseReference reference) {
+            return new Source(reference, null, null, null);
+        }
+
+        // Children whose field equals value, in key order
+        public static Source equalTo(DatabaseReference reference, String field, String value) {
+            return new Source(reference, field, value, null);
+        }
+
+        // Children whose numeric field is at least lowerBound, read again for every query
+        public static Source startAt(DatabaseReference reference, String field, LongSupplier lowerBound) {
+            return new Source(reference, field, null, lowerBound);
+        }
+
+        Query all() {
+            if (orderField == null) {
+                return reference.orderByKey();
+            }
+            Query query = reference.orderByChild(orderField);
+            return equalTo != null
+                ? query.equalTo(equalTo)
+                : query.startAt(lowerBound.getAsLong());
+        }
+
+        // Children ordered before child
+        Query before(DataSnapshot child) {
+            if (orderField == null) {
+                return reference.orderByKey().endBefore(child.getKey());
+            }
+            Query query = reference.orderByChild(orderField);
+            return equalTo != null
+                ? query.startAt(equalTo).endBefore(equalTo, child.getKey())
+                : query.startAt(lowerBound.getAsLong()).endBefore(sortValue(child), child.getKey());
+        }
+
+        // Children ordered after child
+        Query after(DataSnapshot child) {
+            if (orderField == null) {
+                return reference.orderByKey().startAfter(child.getKey());
+            }
+            Query query = reference.orderByChild(orderField);
+            return equalTo != null
+                ? query.startAfter(equalTo, child.getKey()).endAt(equalTo)
+                : query.startAfter(sortValue(child), child.getKey());
+        }
+
+        // Query order of two children: by the order field when it varies, then by key
+        int compare(DataSnapshot a, DataSnapshot b) {
+            if (orderField != null && equalTo == null) {
+                int byValue = Double.compare(sortValue(a), sortValue(b));
+                if (byValue != 0) {
+                    return byValue;
+                }
+            }
+            return compareKeys(a.getKey(), b.getKey());
+        }
+
+        // Realtime Database key order: 32-bit integer keys first, numerically, then strings
+        static int compareKeys(String a, String b) {
+            Long intA = intKey(a);
+            Long intB = intKey(b);
+            if (intA != null && intB != null) {
+                return Long.compare(intA, intB);
+            }
+            if (intA != null || intB != null) {
+                return intA != null ? -1 : 1;
+            }
+            return a.compareTo(b);
+        }
+
+        private static Long intKey(String key) {
+            int start = key.startsWith("-") ? 1 : 0;
+            int length = key.length() - start;
+            if (length == 0 || length > 10 || (key.charAt(start) == '0' && length > 1)
+                    || (start == 1 && key.charAt(1) == '0')) {
+                return null;
+            }
+            for (int i = start; i < key.length(); i++) {
+                if (key.charAt(i) < '0' || key.charAt(i) > '9') {
+                    return null;
+                }
+            }
+            long value = Long.parseLong(key);
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? value : null;
+        }
+
+        private double sortValue(DataSnapshot child) {
+            Object value = child.child(orderField).getValue();
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+    }
+
+    private final Source source;
+    private final Parser<T> parser;
+    private final int pageSize;
+
+    // Live page in query order, oldest first, and its parsed items by key
+    private final List<DataSnapshot> live = new ArrayList<>();
+    private final Map<String, T> liveItems = new HashMap<>();
+    private final OlderPages<DataSnapshot, T> older;
+    // Children that left the live page since its last value event, and their items
+    private final List<DataSnapshot> leftWindow = new ArrayList<>();
+    private final Map<String, T> leftItems = new HashMap<>();
+
+    private final MutableLiveData<String> error = new MutableLiveData<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Query listenedQuery;
+    private boolean loaded;
+    private boolean publishScheduled;
+    private boolean loadingOlder;
+    private boolean loadingNewer;
+    // Published position of the first older row
+    private int olderStart;
+    // Bumped on attach so replies to an earlier window are ignored
+    private int generation;
+
+    private final Runnable publishTask = this::publish;
+
+    // Republishes when the soonest validUntil passes
+    private final Runnable expiryTask = this::schedulePublish;
+
+    private final Runnable detachTask = this::detach;
+
+    private final ChildEventListener childListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            live.add(indexAfter(previousChildName), snapshot);
+            // Back in the live page: refilled after a delete, or left and returned in one change
+            older.remove(snapshot.getKey());
+            if (!leftWindow.isEmpty()) {
+                leftWindow.removeIf(child -> child.getKey().equals(snapshot.getKey()));
+                leftItems.remove(snapshot.getKey());
+            }
+            put(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            int index = indexOf(snapshot.getKey());
+            if (index >= 0) {
+                live.set(index, snapshot);
+            }
+            put(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            int index = indexOf(snapshot.getKey());
+            if (index >= 0) {
+                live.remove(index);
+            }
+            // Either deleted or pushed out of limitToLast by a newer child;
+            // settled by the value event that follows this change
+            leftWindow.add(snapshot);
+            T item = liveItems.remove(snapshot.getKey());
+            if (item != null) {
+                leftItems.put(snapshot.getKey(), item);
+            }
+            schedulePublish();
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            int index = indexOf(snapshot.getKey());
+            if (index >= 0) {
+                live.remove(index);
+            }
+            live.add(indexAfter(previousChildName), snapshot);
+            schedulePublish();
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError databaseError) {
+            Log.e(TAG, "Listener cancelled", databaseError.toException());
+            listenedQuery = null;
+            error.setValue(databaseError.getMessage());
+        }
+    };
+
+    // Value events of the live page follow its child events for the same change
+    private final ValueEventListener windowListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            if (!loaded) {
+                loaded = true;
+                older.setEndReached(snapshot.getChildrenCount() < pageSize);
+            }
+            settleLeftWindow(snapshot.getChildrenCount() >= pageSize);
+            schedulePublish();
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError databaseError) {
+            // Reported by the child listener
+        }
+    };
+
+    LiveCollection(Source source, Parser<T> parser, int pageSize) {
+        this.source = source;
+        this.parser = parser;
+        this.pageSize = Math.max(1, pageSize);
+        this.older = new OlderPages<>(this.pageSize, MAX_OLDER_PAGES);
+    }
+
+    /**
+     * Shared collection for a source; name must identify the source and its filter
+     */
+    @SuppressWarnings("unchecked")
+    static synchronized <T> LiveCollection<T> shared(String name, Source source, Parser<T> parser) {
+        LiveCollection<T> collection = (LiveCollection<T>) SHARED.get(name);
+        if (collection == null) {
+            collection = new LiveCollection<>(source, parser, DEFAULT_PAGE_SIZE);
+            SHARED.put(name, collection);
+        }
+        return collection;
+    }
+
+    /**
+     * Last listener error, or null; observers get it again on resubscribe
+     */
+    public LiveData<String> getError() {
+        return error;
+    }
+
+    /**
+     * True once the live page has been delivered
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * True if older children may exist below the last page held
+     */
+    public boolean hasMore() {
+        return loaded && !older.isEndReached();
+    }
+
+    /**
+     * Read the next pageSize older children once.
+     * Ignored while the live page or another older page is still loading.
+     */
+    public void loadMore() {
+        if (!hasMore() || loadingOlder || listenedQuery == null) {
+            return;
+        }
+        DataSnapshot cursor = !older.isEmpty() ? older.oldestCursor()
+            : !live.isEmpty() ? live.get(0) : null;
+        if (cursor == null) {
+            return;
+        }
+
+        loadingOlder = true;
+        int readGeneration = generation;
+        source.before(cursor).limitToLast(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (readGeneration != generation) {
+                    return;
+                }
+                loadingOlder = false;
+                boolean end = snapshot.getChildrenCount() < pageSize;
+
+                // Reading downwards drops the page farthest up, next to the live one
+                OlderPages.Page<DataSnapshot, T> page = readPage(snapshot.getChildren());
+                if (page != null) {
+                    older.addOlder(page, end);
+                } else {
+                    older.setEndReached(end);
+                }
+                schedulePublish();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                if (readGeneration == generation) {
+                    loadingOlder = false;
+                    error.setValue(databaseError.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Read back pages evicted above the older pages once the first visible
+     * position is within a page of them. Call as the list scrolls up.
+     */
+    public void loadNewer(int firstVisiblePosition) {
+        if (loadingNewer || listenedQuery == null || !older.shouldLoadNewer(firstVisiblePosition, olderStart)) {
+            return;
+        }
+
+        loadingNewer = true;
+        int readGeneration = generation;
+        source.after(older.newestCursor()).limitToFirst(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (readGeneration != generation) {
+                    return;
+                }
+                loadingNewer = false;
+
+                // Children from the live page onwards are already held
+                List<DataSnapshot> children = new ArrayList<>();
+                boolean reachedLive = false;
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    if (indexOf(child.getKey()) >= 0) {
+                        reachedLive = true;
+                        break;
+                    }
+                    children.add(child);
+                }
+                boolean gapRemains = !reachedLive && snapshot.getChildrenCount() >= pageSize;
+
+                // Reading upwards drops the oldest page; loadMore reads it again
+                OlderPages.Page<DataSnapshot, T> page = readPage(children);
+                if (page != null) {
+                    older.addNewer(page, gapRemains);
+                }
+                schedulePublish();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError databaseError) {
+                if (readGeneration == generation) {
+                    loadingNewer = false;
+                    error.setValue(databaseError.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onActive() {
+        mainHandler.removeCallbacks(detachTask);
+        if (listenedQuery == null) {
+            attach();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        mainHandler.postDelayed(detachTask, LINGER_MILLIS);
+    }
+
+    private void attach() {
+        // Children are delivered again from the start, so nothing removed while detached lingers
+        generation++;
+        live.clear();
+        liveItems.clear();
+        older.clear();
+        leftWindow.clear();
+        leftItems.clear();
+        loaded = false;
+        loadingOlder = false;
+        loadingNewer = false;
+        error.setValue(null);
+
+        // Both listeners share one synced query, so the value events cost no extra download
+        Query windowQuery = source.all().limitToLast(pageSize);
+        listenedQuery = windowQuery;
+        windowQuery.addChildEventListener(childListener);
+        windowQuery.addValueEventListener(windowListener);
+    }
+
+    private void detach() {
+        mainHandler.removeCallbacks(detachTask);
+        mainHandler.removeCallbacks(expiryTask);
+        if (listenedQuery != null) {
+            listenedQuery.removeEventListener(childListener);
+            listenedQuery.removeEventListener(windowListener);
+            listenedQuery = null;
+        }
+    }
+
+    private void put(DataSnapshot snapshot) {
+        T item = parser.parse(snapshot);
+        if (item != null) {
+            liveItems.put(snapshot.getKey(), item);
+        } else {
+            // A changed child that no longer parses leaves the list
+            liveItems.remove(snapshot.getKey());
+        }
+        schedulePublish();
+    }
+
+    /**
+     * Settle the children that left the live page in the change just applied.
+     * limitToLast only pushes a child out when a newer one arrives, so one that
+     * sorts below a still full page moved to the older pages. Any other was
+     * deleted or no longer matches the source.
+     */
+    private void settleLeftWindow(boolean windowFull) {
+        if (leftWindow.isEmpty()) {
+            return;
+        }
+        DataSnapshot oldestLive = live.isEmpty() ? null : live.get(0);
+        List<DataSnapshot> pushedOut = new ArrayList<>();
+        for (DataSnapshot child : leftWindow) {
+            if (windowFull && oldestLive != null && source.compare(child, oldestLive) < 0) {
+                pushedOut.add(child);
+            } else {
+                parser.removed(child.getKey());
+            }
+        }
+        // Oldest first, so each one lands above the one before
+        pushedOut.sort(source::compare);
+        for (DataSnapshot child : pushedOut) {
+            T item = leftItems.get(child.getKey());
+            if (item != null) {
+                older.spill(child.getKey(), child, item);
+            }
+        }
+        leftWindow.clear();
+        leftItems.clear();
+    }
+
+    // Children in query order, oldest first; null if nothing was read
+    private OlderPages.Page<DataSnapshot, T> readPage(Iterable<DataSnapshot> children) {
+        OlderPages.Page<DataSnapshot, T> page = older.newPage();
+        for (DataSnapshot child : children) {
+            if (page.oldest == null) {
+                page.oldest = child;
+            }
+            page.newest = child;
+            if (older.contains(child.getKey()) || indexOf(child.getKey()) >= 0) {
+                continue;
+            }
+            T item = parser.parse(child);
+            if (item != null) {
+                page.addOlderRow(child.getKey(), item);
+            }
+        }
+        return page.newest == null ? null : page;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < live.size(); i++) {
+            if (live.get(i).getKey().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Position for a child that follows previousChildName in query order
+    private int indexAfter(String previousChildName) {
+        return previousChildName == null ? 0 : indexOf(previousChildName) + 1;
+    }
+
+    private void publish() {
+        publishScheduled = false;
+        mainHandler.removeCallbacks(expiryTask);
+
+        long now = System.currentTimeMillis();
+        long[] nextExpiry = {Long.MAX_VALUE};
+        List<T> list = new ArrayList<>(liveItems.size() + older.rowCount());
+        for (int i = live.size() - 1; i >= 0; i--) {
+            add(list, liveItems.get(live.get(i).getKey()), now, nextExpiry);
+        }
+        olderStart = list.size();
+        for (T item : older.items()) {
+            add(list, item, now, nextExpiry);
+        }
+
+        if (nextExpiry[0] != Long.MAX_VALUE && listenedQuery != null) {
+            mainHandler.postDelayed(expiryTask, nextExpiry[0] - now);
+        }
+        setValue(list);
+    }
+
+    private void add(List<T> list, T item, long now, long[] nextExpiry) {
+        if (item == null) {
+            return;
+        }
+        long validUntil = parser.validUntil(item);
+        if (validUntil > now) {
+            list.add(item);
+            nextExpiry[0] = Math.min(nextExpiry[0], validUntil);
+        }
+    }
+
+    // One list per main-thread turn, and nothing before the live page has loaded
+    private void schedulePublish() {
+        if (loaded && !publishScheduled) {
+            publishScheduled = true;
+            mainHandler.post(publishTask);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.aerotutorial.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The pages LiveCollection holds below its live page, newest page first.
+ * Each page keeps its rows newest first and the cursors it was read between.
+ * At most maxPages pages are kept: reading downwards evicts the page next to
+ * the live one and leaves a gap above, reading upwards or spilling rows out
+ * of the live page evicts the oldest page so it is read again.
+ * Plain Java so the bookkeeping can be tested on the JVM.
+ *
+ * @param <C> Cursor a page is read from, a DataSnapshot in the app
+ */
+final class OlderPages<C, T> {
+
+    static final class Row<T> {
+        final String key;
+        final T item;
+
+        Row(String key, T item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+
+    static final class Page<C, T> {
+        final List<Row<T>> rows = new ArrayList<>();
+        C newest;
+        C oldest;
+
+        // Rows are added oldest first, as a query returns them
+        void addOlderRow(String key, T item) {
+            rows.add(0, new Row<>(key, item));
+        }
+    }
+
+    private final int pageSize;
+    private final int maxPages;
+    private final ArrayDeque<Page<C, T>> pages = new ArrayDeque<>();
+    private final Set<String> keys = new HashSet<>();
+
+    // Pages between the live page and the first page held were evicted
+    private boolean gapAbove;
+    // Nothing older than the last page exists
+    private boolean endReached;
+
+    OlderPages(int pageSize, int maxPages) {
+        this.pageSize = Math.max(1, pageSize);
+        this.maxPages = Math.max(1, maxPages);
+    }
+
+    void clear() {
+        pages.clear();
+        keys.clear();
+        gapAbove = false;
+        endReached = false;
+    }
+
+    boolean contains(String key) {
+        return keys.contains(key);
+    }
+
+    boolean isEmpty() {
+        return pages.isEmpty();
+    }
+
+    int pageCount() {
+        return pages.size();
+    }
+
+    int rowCount() {
+        return keys.size();
+    }
+
+    boolean hasGapAbove() {
+        return gapAbove;
+    }
+
+    boolean isEndReached() {
+        return endReached;
+    }
+
+    void setEndReached(boolean endReached) {
+        this.endReached = endReached;
+    }
+
+    // Cursor below which loadMore reads, or null when no page is held
+    C oldestCursor() {
+        return pages.isEmpty() ? null : pages.getLast().oldest;
+    }
+
+    // Cursor above which loadNewer reads, or null when no page is held
+    C newestCursor() {
+        return pages.isEmpty() ? null : pages.getFirst().newest;
+    }
+
+    /**
+     * Whether the evicted range above should be read back: only when there is
+     * one and the first visible position is within a page of the first older row
+     */
+    boolean shouldLoadNewer(int firstVisiblePosition, int olderStart) {
+        return gapAbove && !pages.isEmpty() && firstVisiblePosition <= olderStart + pageSize;
+    }
+
+    /**
+     * New empty page; its rows count as held once it is added
+     */
+    Page<C, T> newPage() {
+        return new Page<>();
+    }
+
+    /**
+     * Add a page read below the last one; drops the page farthest up past the cap
+     */
+    void addOlder(Page<C, T> page, boolean endReached) {
+        this.endReached = endReached;
+        hold(page);
+        pages.addLast(page);
+        if (pages.size() > maxPages) {
+            evict(pages.removeFirst());
+            gapAbove = true;
+        }
+    }
+
+    /**
+     * Add a page read above the first one; drops the oldest page past the cap,
+     * which loadMore then reads again
+     */
+    void addNewer(Page<C, T> page, boolean gapRemains) {
+        gapAbove = gapRemains;
+        hold(page);
+        pages.addFirst(page);
+        if (pages.size() > maxPages) {
+            evict(pages.removeLast());
+            endReached = false;
+        }
+    }
+
+    /**
+     * Put a row pushed out of the live page on top of the first page, starting
+     * a new page once that one is full. Ignored while there is a gap above,
+     * since the row belongs to the evicted range.
+     *
+     * @return Whether the row is now held
+     */
+    boolean spill(String key, C cursor, T item) {
+        if (gapAbove || keys.contains(key)) {
+            return false;
+        }
+        Page<C, T> page = pages.peekFirst();
+        if (page == null || page.rows.size() >= pageSize) {
+            page = new Page<>();
+            page.oldest = cursor;
+            pages.addFirst(page);
+            if (pages.size() > maxPages) {
+                evict(pages.removeLast());
+                endReached = false;
+            }
+        }
+        page.rows.add(0, new Row<>(key, item));
+        page.newest = cursor;
+        keys.add(key);
+        return true;
+    }
+
+    // A row that moved back into the live page
+    void remove(String key) {
+        if (!keys.remove(key)) {
+            return;
+        }
+        for (Page<C, T> page : pages) {
+            for (int i = 0; i < page.rows.size(); i++) {
+                if (page.rows.get(i).key.equals(key)) {
+                    page.rows.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Every row held, newest first
+     */
+    List<T> items() {
+        List<T> items = new ArrayList<>(keys.size());
+        for (Page<C, T> page : pages) {
+            for (Row<T> row : page.rows) {
+                items.add(row.item);
+            }
+        }
+        return items;
+    }
+
+    private void hold(Page<C, T> page) {
+        for (Row<T> row : page.rows) {
+            keys.add(row.key);
+        }
+    }
+
+    private void evict(Page<C, T> page) {
+        for (Row<T> row : page.rows) {
+            keys.remove(row.key);
+        }
+    }
+}
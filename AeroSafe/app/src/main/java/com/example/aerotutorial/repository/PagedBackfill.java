@@ -0,0 +1,149 @@
+package com.example.aerotutorial.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * One-time rewrite of fields on every child of a collection, for migrations.
+ * Reads the collection PAGE_SIZE children at a time in key order and commits
+ * each page's writes in one multi-path update before reading the next, so
+ * memory and in-flight writes stay bounded however large the collection is.
+ * Completion is recorded under migrations/{name}; later runs return at once.
+ */
+final class PagedBackfill {
+    private static final String TAG = "PagedBackfill";
+
+    private static final String MIGRATIONS_NODE = "migrations";
+    // Children read, and their fields written, per step
+    private static final int PAGE_SIZE = 250;
+
+    interface Rewriter {
+        /**
+         * Add the writes one child needs to batch
+         *
+         * @param path The child's path from the root, ending in "/"
+         * @return Whether anything was written
+         */
+        boolean rewrite(DataSnapshot child, String path, BatchWriter batch);
+    }
+
+    private final DatabaseReference root;
+    private final String collection;
+    private final DatabaseReference marker;
+    private final Rewriter rewriter;
+    private final IntConsumer onComplete;
+    private final Consumer<String> onFailure;
+
+    private PagedBackfill(String collection, String migration, Rewriter rewriter,
+                          IntConsumer onComplete, Consumer<String> onFailure) {
+        this.root = FirebaseDatabase.getInstance().getReference();
+        this.collection = collection;
+        this.marker = root.child(MIGRATIONS_NODE).child(migration);
+        this.rewriter = rewriter;
+        this.onComplete = onComplete;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Run the migration unless it already completed
+     *
+     * @param onComplete Receives how many children were changed
+     */
+    static void run(String collection, String migration, Rewriter rewriter,
+                    IntConsumer onComplete, Consumer<String> onFailure) {
+        new PagedBackfill(collection, migration, rewriter, onComplete, onFailure).start();
+    }
+
+    /**
+     * Write field on a child unless it already holds expected
+     */
+    static boolean setIfDifferent(BatchWriter batch, DataSnapshot child, String path,
+                                  String field, String expected) {
+        if (expected.equals(child.child(field).getValue(String.class))) {
+            return false;
+        }
+        batch.set(path + field, expected);
+        return true;
+    }
+
+    private void start() {
+        marker.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot done) {
+                if (Boolean.TRUE.equals(done.getValue(Boolean.class))) {
+                    onComplete.accept(0);
+                    return;
+                }
+                page(null, 0);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                onFailure.accept(error.getMessage());
+            }
+        });
+    }
+
+    private void page(String afterKey, int updatedSoFar) {
+        Query query = root.child(collection).orderByKey();
+        if (afterKey != null) {
+            query = query.startAfter(afterKey);
+        }
+
+        query.limitToFirst(PAGE_SIZE).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                BatchWriter batch = new BatchWriter(root);
+                int updated = 0;
+                String lastKey = null;
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    lastKey = child.getKey();
+                    if (rewriter.rewrite(child, collection + "/" + lastKey + "/", batch)) {
+                        updated++;
+                    }
+                }
+
+                int total = updatedSoFar + updated;
+                boolean lastPage = snapshot.getChildrenCount() < PAGE_SIZE;
+                String resumeKey = lastKey;
+                batch.commit()
+                    .continueWithTask(task -> {
+                        if (!task.isSuccessful() || !lastPage) {
+                            return task;
+                        }
+                        return marker.setValue(true);
+                    })
+                    .addOnSuccessListener(aVoid -> {
+                        if (!lastPage) {
+                            page(resumeKey, total);
+                            return;
+                        }
+                        Log.d(TAG, "Backfilled " + total + " children of " + collection);
+                        onComplete.accept(total);
+                    })
+                    .addOnFailureListener(e -> {
+                        // Pages already committed are skipped as unchanged on the next run
+                        Log.e(TAG, "Backfill of " + collection + " failed", e);
+                        onFailure.accept(e.getMessage());
+                    });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Error reading " + collection + " for backfill", error.toException());
+                onFailure.accept(error.getMessage());
+            }
+        });
+    }
+}
@@ -2,7 +2,13 @@ package com.example.aerotutorial.repository;
 
 import android.util.Log;
 
+import com.example.aerotutorial.models.AqiSeries;
 import com.example.aerotutorial.models.Prediction;
+import com.example.aerotutorial.utils.AQICalculator;
+import com.example.aerotutorial.utils.EwmaForecaster;
+import com.example.aerotutorial.utils.Forecaster;
+import com.example.aerotutorial.utils.GeoHash;
+import com.example.aerotutorial.utils.HoltWintersForecaster;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
@@ -12,21 +18,53 @@ import com.google.firebase.database.ValueEventListener;
 import androidx.annotation.NonNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class PredictionRepository {
     private static final String TAG = "PredictionRepository";
     private static final String PREDICTIONS_COLLECTION = "predictions";
 
+    // Composite index fields (see IndexKeys): length-prefixed owner + zero-padded predictionTimestamp
+    private static final String KEY_USER_TS = "userId_ts";
+    private static final String KEY_LOCATION_TS = "location_ts";
+
+    // v2: keys rewritten in the length-prefixed format
+    public static final String COMPOSITE_KEYS_MIGRATION = "prediction_composite_keys_v2";
+
+    // Models are trained on the last week of hourly history
+    private static final long TRAINING_WINDOW_SECONDS = TimeUnit.DAYS.toSeconds(7);
+    private static final long HOUR_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+    // Fitted models per location tile, shared by all repository instances
+    private static final Map<String, FittedModel> MODEL_CACHE = new HashMap<>();
+
     private final DatabaseReference databaseReference;
-    private final Random random;
+    private final AQIRepository aqiRepository;
+    private Supplier<Forecaster> forecasterSupplier;
 
     public PredictionRepository() {
+        this(new AQIRepository());
+    }
+
+    public PredictionRepository(AQIRepository aqiRepository) {
         this.databaseReference = FirebaseDatabase.getInstance().getReference().child(PREDICTIONS_COLLECTION);
-        this.random = new Random();
+        this.aqiRepository = aqiRepository;
+    }
+
+    /**
+     * Use a specific model instead of the default choice
+     * (Holt-Winters with enough history, EWMA otherwise)
+     */
+    public void setForecasterSupplier(Supplier<Forecaster> forecasterSupplier) {
+        this.forecasterSupplier = forecasterSupplier;
+        synchronized (MODEL_CACHE) {
+            MODEL_CACHE.clear();
+        }
     }
 
     public interface PredictionCallback {
@@ -39,32 +77,27 @@ public class PredictionRepository {
         void onFailure(String error);
     }
 
+    public interface MigrationCallback {
+        void onComplete(int updatedCount);
+        void onFailure(String error);
+    }
+
     // Generate prediction based on current AQI
     public void generatePrediction(String location, int currentAqi, int hoursAhead, String userId, PredictionCallback callback) {
         // Simple prediction algorithm (can be enhanced with ML model)
-        int predictedAqi = calculatePrediction(currentAqi, hoursAhead);
+        int predictedAqi = calculatePrediction(currentAqi);
 
         Prediction prediction = new Prediction(location, predictedAqi, hoursAhead);
         prediction.setUserId(userId);
-        prediction.setModel("Simple Linear Model");
-        prediction.setConfidence(0.75 + (random.nextDouble() * 0.15)); // 75-90% confidence
+        prediction.setModel("Persistence");
+        prediction.setConfidence(persistenceConfidence(hoursAhead));
 
         // Save to Realtime Database
         String predictionId = databaseReference.push().getKey();
         if (predictionId != null) {
             prediction.setId(predictionId);
 
-            Map<String, Object> predictionMap = new HashMap<>();
-            predictionMap.put("id", prediction.getId());
-            predictionMap.put("location", prediction.getLocation());
-            predictionMap.put("predictedAqi", prediction.getPredictedAqi());
-            predictionMap.put("hoursAhead", prediction.getHoursAhead());
-            predictionMap.put("userId", prediction.getUserId());
-            predictionMap.put("model", prediction.getModel());
-            predictionMap.put("confidence", prediction.getConfidence());
-            predictionMap.put("predictionTimestamp", System.currentTimeMillis());
-
-            databaseReference.child(predictionId).setValue(predictionMap)
+            databaseReference.child(predictionId).setValue(toMap(prediction))
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Prediction saved with ID: " + predictionId);
                     callback.onSuccess(prediction);
@@ -78,25 +111,25 @@ public class PredictionRepository {
         }
     }
 
-    // Simple prediction calculation (can be replaced with ML model)
-    private int calculatePrediction(int currentAqi, int hoursAhead) {
-        // Simple algorithm: slight random variation over time
-        double variation = (random.nextDouble() - 0.5) * 20; // -10 to +10
-        double timeImpact = (hoursAhead / 24.0) * 5; // slight increase over days
+    // Without history the best estimate is the current reading
+    private int calculatePrediction(int currentAqi) {
+        return Math.max(0, Math.min(500, currentAqi)); // Keep within 0-500 range
+    }
 
-        int predicted = (int) (currentAqi + variation + timeImpact);
-        return Math.max(0, Math.min(500, predicted)); // Keep within 0-500 range
+    // Confidence of the persistence estimate decays over the horizon
+    private double persistenceConfidence(int hoursAhead) {
+        return Math.max(0.3, 0.80 - (hoursAhead / 24.0) * 0.05);
     }
 
-    // Generate multiple predictions (hourly forecast)
+    // Generate multiple predictions (hourly forecast) when only the current AQI is known
     public void generateHourlyForecast(String location, int currentAqi, String userId, PredictionListCallback callback) {
         List<Prediction> predictions = new ArrayList<>();
 
         for (int hour = 1; hour <= 24; hour++) {
-            int predictedAqi = calculatePrediction(currentAqi, hour);
+            int predictedAqi = calculatePrediction(currentAqi);
             Prediction prediction = new Prediction(location, predictedAqi, hour);
             prediction.setUserId(userId);
-            prediction.setModel("Hourly Forecast Model");
+            prediction.setModel("Persistence");
             prediction.setConfidence(0.80 - (hour * 0.01)); // Confidence decreases over time
             predictions.add(prediction);
         }
@@ -105,16 +138,16 @@ public class PredictionRepository {
         savePredictionsBatch(predictions, callback);
     }
 
-    // Generate daily forecast
+    // Generate daily forecast when only the current AQI is known
     public void generateDailyForecast(String location, int currentAqi, String userId, PredictionListCallback callback) {
         List<Prediction> predictions = new ArrayList<>();
 
         for (int day = 1; day <= 7; day++) {
             int hoursAhead = day * 24;
-            int predictedAqi = calculatePrediction(currentAqi, hoursAhead);
+            int predictedAqi = calculatePrediction(currentAqi);
             Prediction prediction = new Prediction(location, predictedAqi, hoursAhead);
             prediction.setUserId(userId);
-            prediction.setModel("Daily Forecast Model");
+            prediction.setModel("Persistence");
             prediction.setConfidence(0.75 - (day * 0.05)); // Confidence decreases over days
             predictions.add(prediction);
         }
@@ -122,84 +155,237 @@ public class PredictionRepository {
         savePredictionsBatch(predictions, callback);
     }
 
-    private void savePredictionsBatch(List<Prediction> predictions, PredictionListCallback callback) {
-        if (predictions.isEmpty()) {
-            callback.onSuccess(predictions);
-            return;
-        }
+    // Generate hourly forecast for the next 24 hours from the location's AQI history
+    public void generateHourlyForecast(String location, double latitude, double longitude,
+                                       String userId, PredictionListCallback callback) {
+        loadModel(latitude, longitude, new ModelCallback() {
+            @Override
+            public void onReady(FittedModel model) {
+                double[] forecast = model.forecaster.forecast(24);
+                List<Prediction> predictions = new ArrayList<>();
+                for (int hour = 1; hour <= 24; hour++) {
+                    predictions.add(buildPrediction(location, userId, model, forecast[hour - 1], hour));
+                }
+                savePredictionsBatch(predictions, callback);
+            }
 
-        // Save predictions one by one
-        int[] savedCount = {0};
-        for (Prediction prediction : predictions) {
-            String predictionId = databaseReference.push().getKey();
-            if (predictionId != null) {
-                prediction.setId(predictionId);
-
-                Map<String, Object> predictionMap = new HashMap<>();
-                predictionMap.put("id", prediction.getId());
-                predictionMap.put("location", prediction.getLocation());
-                predictionMap.put("predictedAqi", prediction.getPredictedAqi());
-                predictionMap.put("hoursAhead", prediction.getHoursAhead());
-                predictionMap.put("userId", prediction.getUserId());
-                predictionMap.put("model", prediction.getModel());
-                predictionMap.put("confidence", prediction.getConfidence());
-                predictionMap.put("predictionTimestamp", System.currentTimeMillis());
-
-                databaseReference.child(predictionId).setValue(predictionMap)
-                    .addOnSuccessListener(aVoid -> {
-                        savedCount[0]++;
-                        if (savedCount[0] == predictions.size()) {
-                            callback.onSuccess(predictions);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error saving prediction batch", e);
-                        callback.onFailure(e.getMessage());
-                    });
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
             }
-        }
+        });
     }
 
-    // Get user's predictions
-    public void getUserPredictions(String userId, int limit, PredictionListCallback callback) {
-        databaseReference.orderByChild("userId").equalTo(userId)
-            .addListenerForSingleValueEvent(new ValueEventListener() {
+    // Generate daily forecast for the next 7 days from the location's AQI history
+    public void generateDailyForecast(String location, double latitude, double longitude,
+                                      String userId, PredictionListCallback callback) {
+        loadModel(latitude, longitude, new ModelCallback() {
+            @Override
+            public void onReady(FittedModel model) {
+                double[] forecast = model.forecaster.forecast(7 * 24);
+                List<Prediction> predictions = new ArrayList<>();
+                for (int day = 1; day <= 7; day++) {
+                    int hoursAhead = day * 24;
+                    predictions.add(buildPrediction(location, userId, model,
+                        forecast[hoursAhead - 1], hoursAhead));
+                }
+                savePredictionsBatch(predictions, callback);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    private Prediction buildPrediction(String location, String userId, FittedModel model,
+                                       double value, int hoursAhead) {
+        int predictedAqi = (int) Math.round(Math.max(0, Math.min(500, value)));
+        Prediction prediction = new Prediction(location, predictedAqi, hoursAhead);
+        prediction.setUserId(userId);
+        prediction.setModel(model.forecaster.getName());
+        prediction.setConfidence(model.confidence(value, hoursAhead));
+        return prediction;
+    }
+
+    /**
+     * Get the fitted model for a location, refitting only when the
+     * provider has published hourly data newer than the cached fit
+     */
+    private void loadModel(double latitude, double longitude, ModelCallback callback) {
+        String tileKey = GeoHash.encode(latitude, longitude);
+        long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long end = nowSeconds - (nowSeconds % HOUR_SECONDS); // hour-aligned so the HTTP cache is reused
+        long latestExpectedMillis = TimeUnit.SECONDS.toMillis(end - HOUR_SECONDS);
+
+        FittedModel cached;
+        synchronized (MODEL_CACHE) {
+            cached = MODEL_CACHE.get(tileKey);
+        }
+        if (cached != null && cached.lastTimestamp >= latestExpectedMillis) {
+            Log.d(TAG, "Using cached " + cached.forecaster.getName() + " model for tile " + tileKey);
+            callback.onReady(cached);
+            return;
+        }
+
+        aqiRepository.fetchHistoricalSeries(latitude, longitude, end - TRAINING_WINDOW_SECONDS, end,
+            new AQIRepository.SeriesCallback() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    List<Prediction> predictions = new ArrayList<>();
-                    for (DataSnapshot predSnapshot : snapshot.getChildren()) {
-                        Prediction prediction = predSnapshot.getValue(Prediction.class);
-                        if (prediction != null) {
-                            prediction.setId(predSnapshot.getKey());
-                            predictions.add(prediction);
-                        }
+                public void onChunk(AqiSeries chunk, int chunksReceived, int totalChunks) {
+                    // Wait for the merged series
+                }
+
+                @Override
+                public void onSuccess(AqiSeries series) {
+                    if (series.isEmpty()) {
+                        callback.onFailure("No historical data available");
+                        return;
                     }
 
-                    // Sort by timestamp descending and limit
-                    predictions.sort((p1, p2) -> Long.compare(p2.getPredictionTimestamp(), p1.getPredictionTimestamp()));
-                    if (predictions.size() > limit) {
-                        predictions = predictions.subList(0, limit);
+                    long lastTimestamp = series.getTimestamps()[series.size() - 1];
+                    if (cached != null && cached.lastTimestamp >= lastTimestamp) {
+                        callback.onReady(cached);
+                        return;
                     }
 
-                    callback.onSuccess(predictions);
+                    FittedModel model = fit(series, lastTimestamp);
+                    synchronized (MODEL_CACHE) {
+                        MODEL_CACHE.put(tileKey, model);
+                    }
+                    callback.onReady(model);
                 }
 
                 @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "Error fetching user predictions", error.toException());
-                    callback.onFailure(error.getMessage());
+                public void onFailure(String error) {
+                    callback.onFailure(error);
                 }
             });
     }
 
-    // Get predictions by location
+    private FittedModel fit(AqiSeries series, long lastTimestamp) {
+        int[] aqi = AQICalculator.computeAqi(series);
+        double[] values = new double[aqi.length];
+        for (int i = 0; i < aqi.length; i++) {
+            values[i] = aqi[i];
+        }
+
+        Forecaster forecaster;
+        if (forecasterSupplier != null) {
+            forecaster = forecasterSupplier.get();
+        } else if (values.length >= 2 * HoltWintersForecaster.DAILY_PERIOD) {
+            forecaster = new HoltWintersForecaster();
+        } else {
+            forecaster = new EwmaForecaster();
+        }
+
+        long start = System.nanoTime();
+        forecaster.fit(values);
+        long fitMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        Log.d(TAG, "Fitted " + forecaster.getName() + " on " + values.length + " points in " + fitMicros + " us");
+
+        return new FittedModel(forecaster, lastTimestamp);
+    }
+
+    private interface ModelCallback {
+        void onReady(FittedModel model);
+        void onFailure(String error);
+    }
+
+    /**
+     * A trained model and the newest sample it has seen
+     */
+    private static class FittedModel {
+        final Forecaster forecaster;
+        final long lastTimestamp;
+
+        FittedModel(Forecaster forecaster, long lastTimestamp) {
+            this.forecaster = forecaster;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        // Shrinks as the expected error (residual spread growing with the horizon) nears the forecast
+        double confidence(double value, int hoursAhead) {
+            double expectedError = forecaster.getResidualStdDev() * Math.sqrt(hoursAhead);
+            double scale = Math.max(50, Math.abs(value));
+            return Math.max(0.05, Math.min(0.95, 1 - expectedError / scale));
+        }
+    }
+
+    // Writes the whole forecast in one atomic multi-path update
+    private void savePredictionsBatch(List<Prediction> predictions, PredictionListCallback callback) {
+        if (predictions.isEmpty()) {
+            callback.onSuccess(predictions);
+            return;
+        }
+
+        BatchWriter batch = new BatchWriter(FirebaseDatabase.getInstance().getReference());
+        for (Prediction prediction : predictions) {
+            String predictionId = batch.newKey(PREDICTIONS_COLLECTION);
+            if (predictionId == null) {
+                callback.onFailure("Failed to generate prediction ID");
+                return;
+            }
+            prediction.setId(predictionId);
+            batch.set(PREDICTIONS_COLLECTION + "/" + predictionId, toMap(prediction));
+        }
+
+        batch.commit()
+            .addOnSuccessListener(aVoid -> {
+                Log.d(TAG, "Saved batch of " + predictions.size() + " predictions");
+                callback.onSuccess(predictions);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error saving prediction batch", e);
+                callback.onFailure(e.getMessage());
+            });
+    }
+
+    private Map<String, Object> toMap(Prediction prediction) {
+        Map<String, Object> predictionMap = new HashMap<>();
+        predictionMap.put("id", prediction.getId());
+        predictionMap.put("location", prediction.getLocation());
+        predictionMap.put("predictedAqi", prediction.getPredictedAqi());
+        predictionMap.put("hoursAhead", prediction.getHoursAhead());
+        predictionMap.put("userId", prediction.getUserId());
+        predictionMap.put("model", prediction.getModel());
+        predictionMap.put("confidence", prediction.getConfidence());
+        predictionMap.put("predictionTimestamp", prediction.getPredictionTimestamp());
+        if (prediction.getUserId() != null) {
+            predictionMap.put(KEY_USER_TS, IndexKeys.compositeKey(prediction.getUserId(), prediction.getPredictionTimestamp()));
+        }
+        if (prediction.getLocation() != null) {
+            predictionMap.put(KEY_LOCATION_TS, IndexKeys.compositeKey(prediction.getLocation(), prediction.getPredictionTimestamp()));
+        }
+        return predictionMap;
+    }
+
+    // Get user's newest predictions; only the requested page is downloaded
+    public void getUserPredictions(String userId, int limit, PredictionListCallback callback) {
+        queryNewest(KEY_USER_TS, "userId", userId, limit, callback);
+    }
+
+    // Get newest predictions for a location; only the requested page is downloaded
     public void getPredictionsByLocation(String location, int limit, PredictionListCallback callback) {
-        databaseReference.orderByChild("location").equalTo(location)
+        queryNewest(KEY_LOCATION_TS, "location", location, limit, callback);
+    }
+
+    // Requires ".indexOn": ["userId_ts", "location_ts"] on predictions in the database rules
+    private void queryNewest(String compositeField, String ownerField, String owner, int limit,
+                             PredictionListCallback callback) {
+        databaseReference.orderByChild(compositeField)
+            .startAt(IndexKeys.lowerBound(owner))
+            .endAt(IndexKeys.upperBound(owner))
+            .limitToLast(limit)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
                     List<Prediction> predictions = new ArrayList<>();
                     for (DataSnapshot predSnapshot : snapshot.getChildren()) {
+                        // The range is one owner's, but a key written by an older client may not be
+                        if (!owner.equals(predSnapshot.child(ownerField).getValue(String.class))) {
+                            continue;
+                        }
                         Prediction prediction = predSnapshot.getValue(Prediction.class);
                         if (prediction != null) {
                             prediction.setId(predSnapshot.getKey());
@@ -207,21 +393,42 @@ public class PredictionRepository {
                         }
                     }
 
-                    // Sort by timestamp descending and limit
-                    predictions.sort((p1, p2) -> Long.compare(p2.getPredictionTimestamp(), p1.getPredictionTimestamp()));
-                    if (predictions.size() > limit) {
-                        predictions = predictions.subList(0, limit);
-                    }
-
+                    // Children arrive oldest first; callers expect newest first
+                    Collections.reverse(predictions);
                     callback.onSuccess(predictions);
                 }
 
                 @Override
                 public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "Error fetching location predictions", error.toException());
+                    Log.e(TAG, "Error fetching predictions by " + ownerField, error.toException());
                     callback.onFailure(error.getMessage());
                 }
             });
     }
-}
 
+    /**
+     * One-time backfill of userId_ts and location_ts on predictions written
+     * before the composite keys existed or in their old format. Writes only
+     * the keys that differ, a page at a time (see PagedBackfill). Run from the
+     * admin dashboard, since only admins may write every prediction.
+     */
+    public void migrateCompositeKeys(MigrationCallback callback) {
+        PagedBackfill.run(PREDICTIONS_COLLECTION, COMPOSITE_KEYS_MIGRATION, (predSnapshot, path, batch) -> {
+            String userId = predSnapshot.child("userId").getValue(String.class);
+            String location = predSnapshot.child("location").getValue(String.class);
+            Long timestamp = predSnapshot.child("predictionTimestamp").getValue(Long.class);
+            long ts = timestamp != null ? timestamp : 0;
+
+            boolean changed = false;
+            if (userId != null) {
+                changed |= PagedBackfill.setIfDifferent(batch, predSnapshot, path, KEY_USER_TS,
+                    IndexKeys.compositeKey(userId, ts));
+            }
+            if (location != null) {
+                changed |= PagedBackfill.setIfDifferent(batch, predSnapshot, path, KEY_LOCATION_TS,
+                    IndexKeys.compositeKey(location, ts));
+            }
+            return changed;
+        }, callback::onComplete, callback::onFailure);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.aerotutorial.repository;
 
 import com.example.aerotutorial.models.Report;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.Query;
@@ -37,7 +38,12 @@ public class ReportRepository {
             reportMap.put("resolvedBy", report.getResolvedBy());
             reportMap.put("resolvedDate", report.getResolvedDate());
 
-            return databaseReference.child(reportId).setValue(reportMap);
+            // Report and its counters in one atomic write
+            return new BatchWriter(databaseReference.getRoot())
+                .set("reports/" + reportId, reportMap)
+                .increment(StatsRepository.reportsTotalPath(), 1)
+                .increment(StatsRepository.reportStatusPath(report.getStatus()), 1)
+                .commit();
         }
         return null;
     }
@@ -47,6 +53,20 @@ public class ReportRepository {
         return databaseReference;
     }
 
+    // Live reports, newest first; status null for all reports
+    public LiveCollection<Report> observeReports(String status) {
+        LiveCollection.Source source = status == null
+            ? LiveCollection.Source.byKey(databaseReference)
+            : LiveCollection.Source.equalTo(databaseReference, "status", status);
+        return LiveCollection.shared("reports/" + (status == null ? "*" : status), source, snapshot -> {
+            Report report = snapshot.getValue(Report.class);
+            if (report != null) {
+                report.setId(snapshot.getKey());
+            }
+            return report;
+        });
+    }
+
     // Get reports by status
     public Query getReportsByStatus(String status) {
         return databaseReference.orderByChild("status").equalTo(status);
@@ -59,17 +79,49 @@ public class ReportRepository {
 
     // Update report status
     public Task<Void> updateReportStatus(String reportId, String status, String resolvedBy, String notes) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", status);
-        updates.put("resolvedBy", resolvedBy);
-        updates.put("resolvedDate", System.currentTimeMillis());
-        updates.put("resolutionNotes", notes);
+        long resolvedDate = System.currentTimeMillis();
 
-        return databaseReference.child(reportId).updateChildren(updates);
+        // The transaction tells us which status this write replaced
+        return StatsRepository.transact(databaseReference.child(reportId), currentData -> {
+            if (currentData.getValue() == null) {
+                return null;
+            }
+            String previous = currentData.child("status").getValue(String.class);
+            currentData.child("status").setValue(status);
+            currentData.child("resolvedBy").setValue(resolvedBy);
+            currentData.child("resolvedDate").setValue(resolvedDate);
+            currentData.child("resolutionNotes").setValue(notes);
+            return previous == null ? "" : previous;
+        }).onSuccessTask(previous -> {
+            if (previous == null || StatsRepository.key(previous).equals(StatsRepository.key(status))) {
+                return Tasks.forResult(null);
+            }
+            // A second write; if it is lost the counters drift until StatsRepository.reconcileIfStale
+            return new BatchWriter(databaseReference.getRoot())
+                .increment(StatsRepository.reportStatusPath(previous), -1)
+                .increment(StatsRepository.reportStatusPath(status), 1)
+                .commit();
+        });
     }
 
     // Delete report
     public Task<Void> deleteReport(String reportId) {
-        return databaseReference.child(reportId).removeValue();
+        return StatsRepository.transact(databaseReference.child(reportId), currentData -> {
+            if (currentData.getValue() == null) {
+                return null;
+            }
+            String previous = currentData.child("status").getValue(String.class);
+            currentData.setValue(null);
+            return previous == null ? "" : previous;
+        }).onSuccessTask(previous -> {
+            if (previous == null) {
+                return Tasks.forResult(null);
+            }
+            // Also separate from the transaction, as in updateReportStatus
+            return new BatchWriter(databaseReference.getRoot())
+                .increment(StatsRepository.reportsTotalPath(), -1)
+                .increment(StatsRepository.reportStatusPath(previous), -1)
+                .commit();
+        });
     }
 }
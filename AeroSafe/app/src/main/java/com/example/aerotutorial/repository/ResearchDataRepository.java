@@ -1,7 +1,9 @@
 package com.example.aerotutorial.repository;
 
 import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.utils.SpatialIndex;
 import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.Query;
@@ -11,6 +13,11 @@ import java.util.Map;
 
 public class ResearchDataRepository {
 
+    // Samples this process has seen, for nearest and area lookups without the network;
+    // the oldest are evicted past MAX_INDEXED_SAMPLES
+    private static final int MAX_INDEXED_SAMPLES = 5000;
+    private static final SpatialIndex<AirQualityData> SAMPLE_INDEX = new SpatialIndex<>(MAX_INDEXED_SAMPLES);
+
     private final DatabaseReference databaseReference;
 
     public ResearchDataRepository() {
@@ -36,7 +43,13 @@ public class ResearchDataRepository {
             dataMap.put("timestamp", data.getTimestamp());
             dataMap.put("researcherId", researcherId);
 
-            return databaseReference.child(dataId).setValue(dataMap);
+            Task<Void> task = databaseReference.child(dataId).setValue(dataMap);
+            ResearchDataStore store = ResearchDataStore.getInstance();
+            if (store != null) {
+                task.addOnSuccessListener(aVoid -> store.put(researcherId, data));
+            }
+            task.addOnSuccessListener(aVoid -> indexSample(data));
+            return task;
         }
         return null;
     }
@@ -45,6 +58,41 @@ public class ResearchDataRepository {
         return databaseReference.orderByChild("researcherId").equalTo(researcherId);
     }
 
+    // Live samples of one researcher, newest first
+    public LiveCollection<AirQualityData> observeResearchDataByResearcher(String researcherId) {
+        return LiveCollection.shared("research_data/" + researcherId,
+            LiveCollection.Source.equalTo(databaseReference, "researcherId", researcherId),
+            new LiveCollection.Parser<AirQualityData>() {
+                @Override
+                public AirQualityData parse(DataSnapshot snapshot) {
+                    AirQualityData data = snapshot.getValue(AirQualityData.class);
+                    if (data != null) {
+                        data.setId(snapshot.getKey());
+                        indexSample(data);
+                    }
+                    return data;
+                }
+
+                @Override
+                public void removed(String key) {
+                    SAMPLE_INDEX.remove(key);
+                }
+            });
+    }
+
+    /**
+     * Recently delivered samples, indexed by position; updated as records arrive
+     */
+    public static SpatialIndex<AirQualityData> getSampleIndex() {
+        return SAMPLE_INDEX;
+    }
+
+    private static void indexSample(AirQualityData data) {
+        if (data.getId() != null) {
+            SAMPLE_INDEX.put(data.getId(), data.getLatitude(), data.getLongitude(), data);
+        }
+    }
+
     public DatabaseReference getAllResearchData() {
         return databaseReference;
     }
@@ -53,11 +101,36 @@ public class ResearchDataRepository {
         return databaseReference.orderByChild("location").equalTo(location);
     }
 
+    // Local mirror for time, area and AQI queries; null if it was never set up
+    public ResearchDataStore getLocalStore() {
+        return ResearchDataStore.getInstance();
+    }
+
     public Task<Void> deleteResearchData(String dataId) {
-        return databaseReference.child(dataId).removeValue();
+        Task<Void> task = databaseReference.child(dataId).removeValue();
+        task.addOnSuccessListener(aVoid -> SAMPLE_INDEX.remove(dataId));
+        ResearchDataStore store = ResearchDataStore.getInstance();
+        if (store != null) {
+            task.addOnSuccessListener(aVoid -> store.delete(dataId));
+        }
+        return task;
     }
 
     public Task<Void> updateResearchData(String dataId, Map<String, Object> updates) {
-        return databaseReference.child(dataId).updateChildren(updates);
+        Task<Void> task = databaseReference.child(dataId).updateChildren(updates);
+        ResearchDataStore store = ResearchDataStore.getInstance();
+        // Mirror and index the merged record rather than patching fields one by one
+        task.addOnSuccessListener(aVoid -> databaseReference.child(dataId).get()
+            .addOnSuccessListener(snapshot -> {
+                AirQualityData data = snapshot.getValue(AirQualityData.class);
+                if (data != null) {
+                    data.setId(dataId);
+                    indexSample(data);
+                    if (store != null) {
+                        store.put(snapshot.child("researcherId").getValue(String.class), data);
+                    }
+                }
+            }));
+        return task;
     }
 }
@@ -0,0 +1,549 @@
+package com.example.aerotutorial.repository;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.aerotutorial.models.AirQualityData;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local SQLite mirror of research_data for queries Firebase cannot serve:
+ * time ranges, bounding boxes and AQI thresholds.
+ * Samples are indexed by (researcher_id, timestamp) in a B-tree and by
+ * position in an R*Tree, when the platform SQLite has the rtree module.
+ * sync() pulls only samples newer than the last synced push key, one page
+ * at a time. All database work runs on one background thread and callbacks
+ * are delivered on the main thread.
+ */
+public class ResearchDataStore extends SQLiteOpenHelper {
+    private static final String TAG = "ResearchDataStore";
+
+    private static final String DATABASE_NAME = "research_data.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_SAMPLES = "samples";
+    private static final String TABLE_GEO = "samples_geo";
+    private static final String TABLE_SYNC = "sync_state";
+
+    // Children requested per sync round trip
+    private static final int SYNC_PAGE_SIZE = 500;
+
+    private static ResearchDataStore instance;
+
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final DatabaseReference remote;
+
+    // Set on the db thread once the schema is open
+    private boolean hasRtree;
+
+    public interface QueryCallback {
+        void onSuccess(List<AirQualityData> samples);
+        void onFailure(String error);
+    }
+
+    public interface SyncCallback {
+        void onSuccess(int newSamples);
+        void onFailure(String error);
+    }
+
+    public interface OpenCallback {
+        void onSuccess(SampleCursor samples, long count);
+        void onFailure(String error);
+    }
+
+    /**
+     * Sample filter; unset bounds do not restrict the result
+     */
+    public static class Filter {
+        String researcherId;
+        Long fromTime;
+        Long toTime;
+        double[] bounds;
+        Integer minAqi;
+        int limit = 500;
+
+        public Filter researcher(String researcherId) {
+            this.researcherId = researcherId;
+            return this;
+        }
+
+        // Inclusive time range in millis
+        public Filter between(long fromTime, long toTime) {
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            return this;
+        }
+
+        public Filter within(double minLat, double minLon, double maxLat, double maxLon) {
+            this.bounds = new double[] {minLat, minLon, maxLat, maxLon};
+            return this;
+        }
+
+        // Samples with AQI at or above the threshold
+        public Filter minAqi(int minAqi) {
+            this.minAqi = minAqi;
+            return this;
+        }
+
+        public Filter limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+    }
+
+    /**
+     * Set up the shared store. Called once from AeroTutorialApp.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new ResearchDataStore(context.getApplicationContext());
+        }
+    }
+
+    /**
+     * Shared store, or null if init was never called
+     */
+    public static synchronized ResearchDataStore getInstance() {
+        return instance;
+    }
+
+    private ResearchDataStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.remote = FirebaseDatabase.getInstance().getReference().child("research_data");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SAMPLES + " ("
+            + "rowid INTEGER PRIMARY KEY, "
+            + "id TEXT NOT NULL UNIQUE, "
+            + "researcher_id TEXT, "
+            + "location TEXT, "
+            + "latitude REAL, "
+            + "longitude REAL, "
+            + "aqi INTEGER, "
+            + "pm25 REAL, pm10 REAL, no2 REAL, o3 REAL, so2 REAL, co REAL, "
+            + "timestamp INTEGER)");
+        db.execSQL("CREATE INDEX idx_samples_researcher_time ON "
+            + TABLE_SAMPLES + " (researcher_id, timestamp)");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC + " (name TEXT PRIMARY KEY, value TEXT)");
+
+        try {
+            // Keyed by samples.rowid; a point is a box with min == max
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_GEO
+                + " USING rtree(id, min_lat, max_lat, min_lon, max_lon)");
+        } catch (SQLiteException e) {
+            Log.w(TAG, "rtree module unavailable, indexing positions in a B-tree", e);
+            db.execSQL("CREATE INDEX idx_samples_position ON "
+                + TABLE_SAMPLES + " (latitude, longitude)");
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // A mirror: drop it and let sync() pull everything again
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_GEO);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SAMPLES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC);
+        onCreate(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        try (Cursor cursor = db.rawQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[] {TABLE_GEO})) {
+            hasRtree = cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Pull a researcher's samples added since the last sync.
+     * Samples are read in push-key order after the stored cursor, so each
+     * sample is downloaded once. Edits made elsewhere to samples already
+     * mirrored are not seen; resync() starts over.
+     */
+    public void sync(String researcherId, SyncCallback callback) {
+        dbExecutor.execute(() -> {
+            String cursor = readCursor(researcherId);
+            mainHandler.post(() -> syncPage(researcherId, cursor, 0, callback));
+        });
+    }
+
+    /**
+     * Drop a researcher's mirrored samples and pull them all again
+     */
+    public void resync(String researcherId, SyncCallback callback) {
+        dbExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                if (hasRtree) {
+                    db.execSQL("DELETE FROM " + TABLE_GEO + " WHERE id IN (SELECT rowid FROM "
+                        + TABLE_SAMPLES + " WHERE researcher_id = ?)", new Object[] {researcherId});
+                }
+                db.delete(TABLE_SAMPLES, "researcher_id = ?", new String[] {researcherId});
+                db.delete(TABLE_SYNC, "name = ?", new String[] {cursorName(researcherId)});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            mainHandler.post(() -> syncPage(researcherId, null, 0, callback));
+        });
+    }
+
+    private void syncPage(String researcherId, String afterKey, int synced, SyncCallback callback) {
+        // Ties on researcherId are ordered by key, so the key pages through one researcher
+        Query query = remote.orderByChild("researcherId");
+        query = afterKey == null
+            ? query.startAt(researcherId)
+            : query.startAfter(researcherId, afterKey);
+        query = query.endAt(researcherId).limitToFirst(SYNC_PAGE_SIZE);
+
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<AirQualityData> page = new ArrayList<>();
+                String lastKey = afterKey;
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    AirQualityData data = child.getValue(AirQualityData.class);
+                    if (data != null) {
+                        data.setId(child.getKey());
+                        page.add(data);
+                    }
+                    lastKey = child.getKey();
+                }
+                boolean more = snapshot.getChildrenCount() >= SYNC_PAGE_SIZE;
+                String cursor = lastKey;
+
+                dbExecutor.execute(() -> {
+                    try {
+                        write(researcherId, page, cursor);
+                    } catch (SQLiteException e) {
+                        Log.e(TAG, "Error writing synced samples", e);
+                        mainHandler.post(() -> callback.onFailure(e.getMessage()));
+                        return;
+                    }
+                    int total = synced + page.size();
+                    mainHandler.post(() -> {
+                        if (more) {
+                            syncPage(researcherId, cursor, total, callback);
+                        } else {
+                            Log.d(TAG, "Synced " + total + " samples for " + researcherId);
+                            callback.onSuccess(total);
+                        }
+                    });
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Sync cancelled", error.toException());
+                callback.onFailure(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Mirror a sample written by this client without waiting for the next sync
+     */
+    public void put(String researcherId, AirQualityData data) {
+        List<AirQualityData> samples = new ArrayList<>();
+        samples.add(data);
+        dbExecutor.execute(() -> write(researcherId, samples, null));
+    }
+
+    public void delete(String id) {
+        dbExecutor.execute(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                if (hasRtree) {
+                    db.execSQL("DELETE FROM " + TABLE_GEO + " WHERE id = (SELECT rowid FROM "
+                        + TABLE_SAMPLES + " WHERE id = ?)", new Object[] {id});
+                }
+                db.delete(TABLE_SAMPLES, "id = ?", new String[] {id});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    /**
+     * Samples matching the filter, newest first
+     */
+    public void query(Filter filter, QueryCallback callback) {
+        dbExecutor.execute(() -> {
+            List<AirQualityData> samples = new ArrayList<>();
+            try (Cursor cursor = runQuery(filter)) {
+                while (cursor.moveToNext()) {
+                    samples.add(readSample(cursor));
+                }
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Query failed", e);
+                mainHandler.post(() -> callback.onFailure(e.getMessage()));
+                return;
+            }
+            mainHandler.post(() -> callback.onSuccess(samples));
+        });
+    }
+
+    /**
+     * Open every mirrored sample of a researcher, oldest first, for a streaming
+     * read such as an export. Rows are read from the SQLite cursor as the
+     * caller iterates, so the set is never held in memory. The caller must
+     * close the result.
+     */
+    public void openSamples(String researcherId, OpenCallback callback) {
+        dbExecutor.execute(() -> {
+            SampleCursor samples;
+            long count;
+            try {
+                SQLiteDatabase db = getReadableDatabase();
+                String[] args = {researcherId};
+                count = DatabaseUtils.queryNumEntries(db, TABLE_SAMPLES, "researcher_id = ?", args);
+                samples = new SampleCursor(db.rawQuery("SELECT " + SampleCursor.COLUMNS + " FROM "
+                    + TABLE_SAMPLES + " WHERE researcher_id = ? ORDER BY timestamp", args));
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Opening samples failed", e);
+                mainHandler.post(() -> callback.onFailure(e.getMessage()));
+                return;
+            }
+            mainHandler.post(() -> callback.onSuccess(samples, count));
+        });
+    }
+
+    private Cursor runQuery(Filter filter) {
+        // Opening the database runs onOpen, which sets hasRtree
+        SQLiteDatabase db = getReadableDatabase();
+        StringBuilder sql = new StringBuilder("SELECT s.* FROM ").append(TABLE_SAMPLES).append(" s");
+        List<String> args = new ArrayList<>();
+        List<String> where = new ArrayList<>();
+
+        if (filter.bounds != null) {
+            if (hasRtree) {
+                // R*Tree stores 32-bit floats rounded outward, so it narrows the
+                // candidates and the exact comparison below settles the edges
+                sql.append(" JOIN ").append(TABLE_GEO).append(" g ON g.id = s.rowid");
+                where.add("g.max_lat >= ? AND g.min_lat <= ? AND g.max_lon >= ? AND g.min_lon <= ?");
+                args.add(String.valueOf(filter.bounds[0]));
+                args.add(String.valueOf(filter.bounds[2]));
+                args.add(String.valueOf(filter.bounds[1]));
+                args.add(String.valueOf(filter.bounds[3]));
+            }
+            where.add("s.latitude BETWEEN ? AND ? AND s.longitude BETWEEN ? AND ?");
+            args.add(String.valueOf(filter.bounds[0]));
+            args.add(String.valueOf(filter.bounds[2]));
+            args.add(String.valueOf(filter.bounds[1]));
+            args.add(String.valueOf(filter.bounds[3]));
+        }
+        if (filter.researcherId != null) {
+            where.add("s.researcher_id = ?");
+            args.add(filter.researcherId);
+        }
+        if (filter.fromTime != null) {
+            where.add("s.timestamp BETWEEN ? AND ?");
+            args.add(String.valueOf(filter.fromTime));
+            args.add(String.valueOf(filter.toTime));
+        }
+        if (filter.minAqi != null) {
+            where.add("s.aqi >= ?");
+            args.add(String.valueOf(filter.minAqi));
+        }
+
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        sql.append(" ORDER BY s.timestamp DESC LIMIT ").append(Math.max(1, filter.limit));
+
+        return db.rawQuery(sql.toString(), args.toArray(new String[0]));
+    }
+
+    // Runs on dbExecutor
+    private void write(String researcherId, List<AirQualityData> samples, String cursor) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            // Update in place so a sample keeps its rowid, which keys the R*Tree
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_SAMPLES
+                + " SET researcher_id = ?, location = ?, latitude = ?, longitude = ?, aqi = ?,"
+                + " pm25 = ?, pm10 = ?, no2 = ?, o3 = ?, so2 = ?, co = ?, timestamp = ?"
+                + " WHERE id = ?");
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_SAMPLES
+                + " (researcher_id, location, latitude, longitude, aqi,"
+                + " pm25, pm10, no2, o3, so2, co, timestamp, id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement rowid = db.compileStatement(
+                "SELECT rowid FROM " + TABLE_SAMPLES + " WHERE id = ?");
+            SQLiteStatement geo = hasRtree ? db.compileStatement("INSERT OR REPLACE INTO "
+                + TABLE_GEO + " (id, min_lat, max_lat, min_lon, max_lon) VALUES (?, ?, ?, ?, ?)") : null;
+
+            for (AirQualityData data : samples) {
+                bindSample(update, researcherId, data);
+                long id;
+                if (update.executeUpdateDelete() > 0) {
+                    rowid.bindString(1, data.getId());
+                    id = rowid.simpleQueryForLong();
+                } else {
+                    bindSample(insert, researcherId, data);
+                    id = insert.executeInsert();
+                }
+
+                if (geo != null) {
+                    geo.bindLong(1, id);
+                    geo.bindDouble(2, data.getLatitude());
+                    geo.bindDouble(3, data.getLatitude());
+                    geo.bindDouble(4, data.getLongitude());
+                    geo.bindDouble(5, data.getLongitude());
+                    geo.executeInsert();
+                }
+            }
+
+            if (cursor != null) {
+                ContentValues values = new ContentValues();
+                values.put("name", cursorName(researcherId));
+                values.put("value", cursor);
+                db.insertWithOnConflict(TABLE_SYNC, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Binds columns 1..13 in the order shared by the update and insert statements
+    private static void bindSample(SQLiteStatement statement, String researcherId, AirQualityData data) {
+        statement.clearBindings();
+        if (researcherId != null) {
+            statement.bindString(1, researcherId);
+        }
+        if (data.getLocation() != null) {
+            statement.bindString(2, data.getLocation());
+        }
+        statement.bindDouble(3, data.getLatitude());
+        statement.bindDouble(4, data.getLongitude());
+        statement.bindLong(5, data.getAqi());
+        statement.bindDouble(6, data.getPm25());
+        statement.bindDouble(7, data.getPm10());
+        statement.bindDouble(8, data.getNo2());
+        statement.bindDouble(9, data.getO3());
+        statement.bindDouble(10, data.getSo2());
+        statement.bindDouble(11, data.getCo());
+        statement.bindLong(12, data.getTimestamp());
+        statement.bindString(13, data.getId());
+    }
+
+    private static AirQualityData readSample(Cursor cursor) {
+        AirQualityData data = new AirQualityData();
+        data.setId(cursor.getString(cursor.getColumnIndexOrThrow("id")));
+        data.setLocation(cursor.getString(cursor.getColumnIndexOrThrow("location")));
+        data.setLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow("latitude")));
+        data.setLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow("longitude")));
+        data.setAqi(cursor.getInt(cursor.getColumnIndexOrThrow("aqi")));
+        data.setPm25(cursor.getDouble(cursor.getColumnIndexOrThrow("pm25")));
+        data.setPm10(cursor.getDouble(cursor.getColumnIndexOrThrow("pm10")));
+        data.setNo2(cursor.getDouble(cursor.getColumnIndexOrThrow("no2")));
+        data.setO3(cursor.getDouble(cursor.getColumnIndexOrThrow("o3")));
+        data.setSo2(cursor.getDouble(cursor.getColumnIndexOrThrow("so2")));
+        data.setCo(cursor.getDouble(cursor.getColumnIndexOrThrow("co")));
+        data.setTimestamp(cursor.getLong(cursor.getColumnIndexOrThrow("timestamp")));
+        return data;
+    }
+
+    /**
+     * Samples read one row at a time from a query cursor. Use it from one
+     * thread at a time; it closes itself once the last row is read.
+     */
+    public static class SampleCursor implements Iterator<AirQualityData>, Closeable {
+        // Read by position below
+        static final String COLUMNS = "id, location, latitude, longitude, aqi,"
+            + " pm25, pm10, no2, o3, so2, co, timestamp";
+
+        private final Cursor cursor;
+        private boolean advanced;
+        private boolean hasRow;
+
+        SampleCursor(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!advanced) {
+                hasRow = !cursor.isClosed() && cursor.moveToNext();
+                advanced = true;
+                if (!hasRow) {
+                    close();
+                }
+            }
+            return hasRow;
+        }
+
+        @Override
+        public AirQualityData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            advanced = false;
+
+            AirQualityData data = new AirQualityData();
+            data.setId(cursor.getString(0));
+            data.setLocation(cursor.getString(1));
+            data.setLatitude(cursor.getDouble(2));
+            data.setLongitude(cursor.getDouble(3));
+            data.setAqi(cursor.getInt(4));
+            data.setPm25(cursor.getDouble(5));
+            data.setPm10(cursor.getDouble(6));
+            data.setNo2(cursor.getDouble(7));
+            data.setO3(cursor.getDouble(8));
+            data.setSo2(cursor.getDouble(9));
+            data.setCo(cursor.getDouble(10));
+            data.setTimestamp(cursor.getLong(11));
+            return data;
+        }
+
+        @Override
+        public void close() {
+            cursor.close();
+        }
+    }
+
+    // Runs on dbExecutor
+    private String readCursor(String researcherId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC, new String[] {"value"},
+                "name = ?", new String[] {cursorName(researcherId)}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private static String cursorName(String researcherId) {
+        return "cursor/" + researcherId;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.aerotutorial.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Materialized counters under stats/, so dashboards read one small node
+ * instead of counting whole collections:
+ *   stats/users/{role}
+ *   stats/reports/total, stats/reports/status/{status}
+ *   stats/alerts/active
+ * Repositories update them in the same multi-path write as the record when
+ * the new state is known, or after a transaction on the record that reports
+ * the value it replaced. That second write is separate, so a client that dies
+ * or fails between the two leaves a counter off by one. reconcile() recomputes
+ * everything from the data; reconcileIfStale() runs it when stats/ is missing
+ * or older than RECONCILE_INTERVAL_MILLIS, and the admin dashboard calls it on
+ * every launch so such drift lasts at most one interval.
+ */
+public class StatsRepository {
+    private static final String TAG = "StatsRepository";
+
+    static final String STATS_NODE = "stats";
+    static final String ALERT_STATUS_ACTIVE = "Active";
+
+    // Children read per request while reconciling
+    private static final int RECONCILE_PAGE_SIZE = 500;
+
+    // Longest a drifted counter is shown before reconcileIfStale rebuilds stats/
+    public static final long RECONCILE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private final DatabaseReference root;
+
+    public StatsRepository() {
+        this.root = FirebaseDatabase.getInstance().getReference();
+    }
+
+    public interface ReconcileCallback {
+        void onComplete(Stats stats);
+        void onFailure(String error);
+    }
+
+    /**
+     * Counter values as read from stats/
+     */
+    public static class Stats {
+        private final DataSnapshot snapshot;
+
+        Stats(DataSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public boolean exists() {
+            return snapshot.exists();
+        }
+
+        public long getUsers(String role) {
+            return count(snapshot.child("users").child(key(role)));
+        }
+
+        public long getTotalReports() {
+            return count(snapshot.child("reports").child("total"));
+        }
+
+        public long getReports(String status) {
+            return count(snapshot.child("reports").child("status").child(key(status)));
+        }
+
+        public long getActiveAlerts() {
+            return count(snapshot.child("alerts").child("active"));
+        }
+
+        /**
+         * Whether reconcile should run: stats/ is missing, predates reconciledAt,
+         * or was last rebuilt more than RECONCILE_INTERVAL_MILLIS ago
+         */
+        public boolean isStale(long now) {
+            return StatsRepository.isStale(snapshot.exists(), snapshot.child("reconciledAt").getValue(Long.class), now);
+        }
+
+        private static long count(DataSnapshot node) {
+            Long value = node.getValue(Long.class);
+            return value == null ? 0 : value;
+        }
+    }
+
+    static boolean isStale(boolean exists, Long reconciledAt, long now) {
+        return !exists || reconciledAt == null || now - reconciledAt >= RECONCILE_INTERVAL_MILLIS;
+    }
+
+    public DatabaseReference getStatsReference() {
+        return root.child(STATS_NODE);
+    }
+
+    /**
+     * Wrap a stats/ snapshot, e.g. from a listener on getStatsReference()
+     */
+    public static Stats read(DataSnapshot snapshot) {
+        return new Stats(snapshot);
+    }
+
+    // Counter paths, relative to the database root
+
+    static String userRolePath(String role) {
+        return STATS_NODE + "/users/" + key(role);
+    }
+
+    static String reportsTotalPath() {
+        return STATS_NODE + "/reports/total";
+    }
+
+    static String reportStatusPath(String status) {
+        return STATS_NODE + "/reports/status/" + key(status);
+    }
+
+    static String activeAlertsPath() {
+        return STATS_NODE + "/alerts/active";
+    }
+
+    // Roles and statuses become keys; Firebase keys cannot contain . $ # [ ] /
+    static String key(String value) {
+        if (value == null || value.isEmpty()) {
+            return "unknown";
+        }
+        return value.replaceAll("[.$#\\[\\]/]", "_");
+    }
+
+    interface Mutation {
+        /**
+         * Change currentData and return the tracked value it had before,
+         * or null if the record does not exist
+         */
+        String apply(MutableData currentData);
+    }
+
+    /**
+     * Run a transaction on a record and return the tracked value it replaced.
+     * Concurrent writers are serialized by the transaction, so the value is
+     * the one this write actually overwrote and counter deltas stay exact.
+     */
+    static Task<String> transact(DatabaseReference ref, Mutation mutation) {
+        TaskCompletionSource<String> result = new TaskCompletionSource<>();
+        String[] previous = new String[1];
+
+        ref.runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                // May run several times; the last run is the one committed
+                previous[0] = mutation.apply(currentData);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                if (error != null) {
+                    result.setException(error.toException());
+                } else if (!committed) {
+                    result.setException(new IllegalStateException("Transaction not committed"));
+                } else {
+                    result.setResult(previous[0]);
+                }
+            }
+        });
+        return result.getTask();
+    }
+
+    /**
+     * Recompute every counter from users, reports and alerts.
+     * Collections are read in key order, RECONCILE_PAGE_SIZE children at a
+     * time, keeping only running totals, then stats/ is replaced in one write.
+     * Writes that land while this runs may be missed until the next run.
+     */
+    public void reconcile(ReconcileCallback callback) {
+        Map<String, Long> users = new HashMap<>();
+        Map<String, Long> reportStatus = new HashMap<>();
+        long[] reportsTotal = new long[1];
+        long[] activeAlerts = new long[1];
+
+        Runnable write = () -> {
+            Map<String, Object> reports = new HashMap<>();
+            reports.put("total", reportsTotal[0]);
+            reports.put("status", reportStatus);
+
+            Map<String, Object> alerts = new HashMap<>();
+            alerts.put("active", activeAlerts[0]);
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("users", users);
+            stats.put("reports", reports);
+            stats.put("alerts", alerts);
+            stats.put("reconciledAt", System.currentTimeMillis());
+
+            DatabaseReference statsRef = root.child(STATS_NODE);
+            statsRef.setValue(stats)
+                .addOnSuccessListener(aVoid -> statsRef.get()
+                    .addOnSuccessListener(snapshot -> callback.onComplete(new Stats(snapshot)))
+                    .addOnFailureListener(e -> callback.onFailure(e.getMessage())))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error writing reconciled stats", e);
+                    callback.onFailure(e.getMessage());
+                });
+        };
+
+        // Users, then reports, then alerts, then write
+        long now = System.currentTimeMillis();
+        Runnable countAlerts = () -> scan("alerts", child -> {
+            // Expired alerts still waiting for AlertRepository.sweepExpired are not active
+            Long expiresAt = child.child("expiresAt").getValue(Long.class);
+            if (ALERT_STATUS_ACTIVE.equals(child.child("status").getValue(String.class))
+                    && (expiresAt == null || expiresAt > now)) {
+                activeAlerts[0]++;
+            }
+        }, null, write, callback);
+
+        Runnable countReports = () -> scan("reports", child -> {
+            reportsTotal[0]++;
+            add(reportStatus, key(child.child("status").getValue(String.class)));
+        }, null, countAlerts, callback);
+
+        scan("users", child -> add(users, key(child.child("role").getValue(String.class))),
+            null, countReports, callback);
+    }
+
+    /**
+     * Reconcile if stats/ is stale, otherwise report the counters as they are
+     */
+    public void reconcileIfStale(ReconcileCallback callback) {
+        root.child(STATS_NODE).get()
+            .addOnSuccessListener(snapshot -> {
+                Stats stats = new Stats(snapshot);
+                if (stats.isStale(System.currentTimeMillis())) {
+                    reconcile(callback);
+                } else {
+                    callback.onComplete(stats);
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading stats", e);
+                callback.onFailure(e.getMessage());
+            });
+    }
+
+    private interface ChildVisitor {
+        void visit(DataSnapshot child);
+    }
+
+    /**
+     * Visit every child of a collection one page at a time, then run next
+     */
+    private void scan(String collection, ChildVisitor visitor, String afterKey, Runnable next,
+                      ReconcileCallback callback) {
+        Query query = root.child(collection).orderByKey();
+        if (afterKey != null) {
+            query = query.startAfter(afterKey);
+        }
+
+        query.limitToFirst(RECONCILE_PAGE_SIZE).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                String lastKey = null;
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    visitor.visit(child);
+                    lastKey = child.getKey();
+                }
+
+                if (snapshot.getChildrenCount() < RECONCILE_PAGE_SIZE) {
+                    next.run();
+                } else {
+                    scan(collection, visitor, lastKey, next, callback);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Error scanning " + collection, error.toException());
+                callback.onFailure(error.getMessage());
+            }
+        });
+    }
+
+    private static void add(Map<String, Long> counters, String key) {
+        Long current = counters.get(key);
+        counters.put(key, current == null ? 1 : current + 1);
+    }
+}
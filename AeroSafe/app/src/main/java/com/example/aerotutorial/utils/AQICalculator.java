@@ -2,62 +2,192 @@ package com.example.aerotutorial.utils;
 
 import android.graphics.Color;
 
+import com.example.aerotutorial.models.AqiSeries;
+
 public class AQICalculator {
 
+    // EPA breakpoint tables, one row per category: {lowConc, highConc, lowAqi, highAqi}.
+    // A concentration belongs to the last row whose lowConc it reaches.
+    // PM values are μg/m³, gases are ppb except CO in ppm.
+    private static final double[] PM25_TABLE = {
+        0.0, 12.0, 0, 50,
+        12.1, 35.4, 51, 100,
+        35.5, 55.4, 101, 150,
+        55.5, 150.4, 151, 200,
+        150.5, 250.4, 201, 300,
+        250.5, 350.4, 301, 400,
+        350.5, 500.4, 401, 500
+    };
+
+    private static final double[] PM10_TABLE = {
+        0, 54, 0, 50,
+        55, 154, 51, 100,
+        155, 254, 101, 150,
+        255, 354, 151, 200,
+        355, 424, 201, 300,
+        425, 504, 301, 400,
+        505, 604, 401, 500
+    };
+
+    // 8-hour O3 up to 200 ppb, then the 1-hour breakpoints for the top categories
+    private static final double[] O3_TABLE = {
+        0, 54, 0, 50,
+        55, 70, 51, 100,
+        71, 85, 101, 150,
+        86, 105, 151, 200,
+        106, 200, 201, 300,
+        405, 504, 301, 400,
+        505, 604, 401, 500
+    };
+
+    private static final double[] NO2_TABLE = {
+        0, 53, 0, 50,
+        54, 100, 51, 100,
+        101, 360, 101, 150,
+        361, 649, 151, 200,
+        650, 1249, 201, 300,
+        1250, 1649, 301, 400,
+        1650, 2049, 401, 500
+    };
+
+    private static final double[] SO2_TABLE = {
+        0, 35, 0, 50,
+        36, 75, 51, 100,
+        76, 185, 101, 150,
+        186, 304, 151, 200,
+        305, 604, 201, 300,
+        605, 804, 301, 400,
+        805, 1004, 401, 500
+    };
+
+    private static final double[] CO_TABLE = {
+        0.0, 4.4, 0, 50,
+        4.5, 9.4, 51, 100,
+        9.5, 12.4, 101, 150,
+        12.5, 15.4, 151, 200,
+        15.5, 30.4, 201, 300,
+        30.5, 40.4, 301, 400,
+        40.5, 50.4, 401, 500
+    };
+
+    // OpenWeather reports gases in μg/m³; EPA tables use ppb (ppm for CO).
+    // ppb = μg/m³ × molar volume (24.45 L at 25 °C, 1 atm) / molecular weight
+    private static final double MOLAR_VOLUME = 24.45;
+    private static final double NO2_UG_TO_PPB = MOLAR_VOLUME / 46.0055;
+    private static final double O3_UG_TO_PPB = MOLAR_VOLUME / 47.9982;
+    private static final double SO2_UG_TO_PPB = MOLAR_VOLUME / 64.066;
+    private static final double CO_UG_TO_PPM = MOLAR_VOLUME / 28.010 / 1000.0;
+
+    // Converted values can land a hair below a breakpoint, e.g. 361 ppb NO2 as 360.99999999999994
+    private static final double BREAKPOINT_TOLERANCE = 1e-9;
+
     /**
      * Calculate AQI from PM2.5 concentration (μg/m³)
      */
     public static int calculateAqiFromPM25(double pm25) {
-        if (pm25 >= 0 && pm25 < 12.1) {
-            return linearInterpolation(pm25, 0, 12.0, 0, 50);
-        } else if (pm25 >= 12.1 && pm25 < 35.5) {
-            return linearInterpolation(pm25, 12.1, 35.4, 51, 100);
-        } else if (pm25 >= 35.5 && pm25 < 55.5) {
-            return linearInterpolation(pm25, 35.5, 55.4, 101, 150);
-        } else if (pm25 >= 55.5 && pm25 < 150.5) {
-            return linearInterpolation(pm25, 55.5, 150.4, 151, 200);
-        } else if (pm25 >= 150.5 && pm25 < 250.5) {
-            return linearInterpolation(pm25, 150.5, 250.4, 201, 300);
-        } else if (pm25 >= 250.5 && pm25 < 350.5) {
-            return linearInterpolation(pm25, 250.5, 350.4, 301, 400);
-        } else if (pm25 >= 350.5 && pm25 <= 500.4) {
-            return linearInterpolation(pm25, 350.5, 500.4, 401, 500);
-        }
-        return 500;
+        return subIndex(pm25, PM25_TABLE);
     }
 
     /**
      * Calculate AQI from PM10 concentration (μg/m³)
      */
     public static int calculateAqiFromPM10(double pm10) {
-        if (pm10 >= 0 && pm10 < 55) {
-            return linearInterpolation(pm10, 0, 54, 0, 50);
-        } else if (pm10 >= 55 && pm10 < 155) {
-            return linearInterpolation(pm10, 55, 154, 51, 100);
-        } else if (pm10 >= 155 && pm10 < 255) {
-            return linearInterpolation(pm10, 155, 254, 101, 150);
-        } else if (pm10 >= 255 && pm10 < 355) {
-            return linearInterpolation(pm10, 255, 354, 151, 200);
-        } else if (pm10 >= 355 && pm10 < 425) {
-            return linearInterpolation(pm10, 355, 424, 201, 300);
-        } else if (pm10 >= 425 && pm10 < 505) {
-            return linearInterpolation(pm10, 425, 504, 301, 400);
-        } else if (pm10 >= 505 && pm10 <= 604) {
-            return linearInterpolation(pm10, 505, 604, 401, 500);
-        }
-        return 500;
+        return subIndex(pm10, PM10_TABLE);
+    }
+
+    /**
+     * Calculate AQI from NO2 concentration (μg/m³)
+     */
+    public static int calculateAqiFromNO2(double no2) {
+        return subIndex(no2 * NO2_UG_TO_PPB, NO2_TABLE);
+    }
+
+    /**
+     * Calculate AQI from O3 concentration (μg/m³)
+     */
+    public static int calculateAqiFromO3(double o3) {
+        return subIndex(o3 * O3_UG_TO_PPB, O3_TABLE);
+    }
+
+    /**
+     * Calculate AQI from SO2 concentration (μg/m³)
+     */
+    public static int calculateAqiFromSO2(double so2) {
+        return subIndex(so2 * SO2_UG_TO_PPB, SO2_TABLE);
     }
 
     /**
-     * Calculate overall AQI from all pollutants
+     * Calculate AQI from CO concentration (μg/m³)
+     */
+    public static int calculateAqiFromCO(double co) {
+        return subIndex(co * CO_UG_TO_PPM, CO_TABLE);
+    }
+
+    /**
+     * Calculate overall AQI from all pollutants (all in μg/m³)
      */
     public static int calculateOverallAQI(double pm25, double pm10, double no2,
                                           double o3, double so2, double co) {
-        int aqiPM25 = calculateAqiFromPM25(pm25);
-        int aqiPM10 = calculateAqiFromPM10(pm10);
-
         // Return the maximum AQI value (most restrictive pollutant)
-        return Math.max(aqiPM25, aqiPM10);
+        int aqi = subIndex(pm25, PM25_TABLE);
+        aqi = Math.max(aqi, subIndex(pm10, PM10_TABLE));
+        aqi = Math.max(aqi, subIndex(no2 * NO2_UG_TO_PPB, NO2_TABLE));
+        aqi = Math.max(aqi, subIndex(o3 * O3_UG_TO_PPB, O3_TABLE));
+        aqi = Math.max(aqi, subIndex(so2 * SO2_UG_TO_PPB, SO2_TABLE));
+        return Math.max(aqi, subIndex(co * CO_UG_TO_PPM, CO_TABLE));
+    }
+
+    /**
+     * Calculate overall AQI for a whole series in one pass.
+     * Gives the same result as calculateOverallAQI for every index.
+     *
+     * @param out Receives one AQI per point; its length is the number of points processed
+     */
+    public static void computeAqi(float[] pm25, float[] pm10, float[] no2,
+                                  float[] o3, float[] so2, float[] co, int[] out) {
+        int n = out.length;
+        if (pm25.length < n || pm10.length < n || no2.length < n
+                || o3.length < n || so2.length < n || co.length < n) {
+            throw new IllegalArgumentException("Pollutant arrays are shorter than output");
+        }
+
+        for (int i = 0; i < n; i++) {
+            int aqi = subIndex(pm25[i], PM25_TABLE);
+            aqi = Math.max(aqi, subIndex(pm10[i], PM10_TABLE));
+            aqi = Math.max(aqi, subIndex(no2[i] * NO2_UG_TO_PPB, NO2_TABLE));
+            aqi = Math.max(aqi, subIndex(o3[i] * O3_UG_TO_PPB, O3_TABLE));
+            aqi = Math.max(aqi, subIndex(so2[i] * SO2_UG_TO_PPB, SO2_TABLE));
+            out[i] = Math.max(aqi, subIndex(co[i] * CO_UG_TO_PPM, CO_TABLE));
+        }
+    }
+
+    /**
+     * Calculate overall AQI for every point of a series
+     */
+    public static int[] computeAqi(AqiSeries series) {
+        int[] out = new int[series.size()];
+        computeAqi(series.getPm25(), series.getPm10(), series.getNo2(),
+                   series.getO3(), series.getSo2(), series.getCo(), out);
+        return out;
+    }
+
+    private static int subIndex(double value, double[] table) {
+        if (value < 0) {
+            return 0;
+        }
+        int last = table.length - 4;
+        if (value > table[last + 1]) {
+            return 500;
+        }
+
+        int row = 0;
+        while (row < last && value >= table[row + 4] - BREAKPOINT_TOLERANCE) {
+            row += 4;
+        }
+
+        int highAqi = (int) table[row + 3];
+        int aqi = linearInterpolation(value, table[row], table[row + 1], (int) table[row + 2], highAqi);
+        return Math.min(aqi, highAqi);
     }
 
     private static int linearInterpolation(double value, double lowConc, double highConc,
@@ -0,0 +1,124 @@
+package com.example.aerotutorial.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long to wait before the next background AQI poll.
+ * Polls sooner when the reading sits near a category boundary or is rising,
+ * backs off while readings stay flat, and stretches every interval when the
+ * battery is low. Pure Java with an injectable clock, so it runs on the JVM.
+ */
+public class AqiPollPolicy {
+
+    // Tile cache entries live 30 minutes, so polling faster only re-reads the cache
+    public static final long MIN_INTERVAL_MILLIS = AqiTileCache.DEFAULT_TTL_MILLIS;
+    public static final long BASE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long MAX_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(4);
+    public static final long LOW_BATTERY_MAX_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(8);
+
+    // Upper bounds of the Good..Very Unhealthy categories (see AQICalculator)
+    private static final int[] CATEGORY_BOUNDARIES = {50, 100, 150, 200, 300};
+    static final int BOUNDARY_MARGIN = 10;
+    static final int RISING_PER_HOUR = 5;
+    static final int STABLE_DELTA = 5;
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Clock clock;
+    private int lastAqi = -1;
+    private long lastReadingAt;
+    private long lastDelayMillis = BASE_INTERVAL_MILLIS;
+
+    public AqiPollPolicy() {
+        this(Clock.SYSTEM);
+    }
+
+    public AqiPollPolicy(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Resume from the state saved by a previous poll
+     *
+     * @param lastAqi Previous reading, or -1 if there was none
+     * @param lastReadingAt When the previous reading was taken
+     * @param lastDelayMillis Delay chosen after the previous poll
+     */
+    public void restore(int lastAqi, long lastReadingAt, long lastDelayMillis) {
+        this.lastAqi = lastAqi;
+        this.lastReadingAt = lastReadingAt;
+        this.lastDelayMillis = clamp(lastDelayMillis, MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Record a new reading and return the delay until the next poll
+     */
+    public long onReading(int aqi, boolean lowBattery) {
+        long now = clock.currentTimeMillis();
+        long delay;
+        if (isNearBoundary(aqi) || isRising(aqi, now)) {
+            delay = MIN_INTERVAL_MILLIS;
+        } else if (lastAqi >= 0 && Math.abs(aqi - lastAqi) < STABLE_DELTA) {
+            // Flat readings: double the wait each time up to the cap
+            delay = Math.min(Math.max(lastDelayMillis, BASE_INTERVAL_MILLIS) * 2, MAX_INTERVAL_MILLIS);
+        } else {
+            delay = BASE_INTERVAL_MILLIS;
+        }
+
+        lastAqi = aqi;
+        lastReadingAt = now;
+        lastDelayMillis = delay;
+        return adjustForBattery(delay, lowBattery);
+    }
+
+    /**
+     * Record a failed poll and return the delay until the next attempt.
+     * The last good reading is kept so the trend survives the gap.
+     */
+    public long onFailure(boolean lowBattery) {
+        long delay = Math.min(Math.max(lastDelayMillis, MIN_INTERVAL_MILLIS) * 2, MAX_INTERVAL_MILLIS);
+        lastDelayMillis = delay;
+        return adjustForBattery(delay, lowBattery);
+    }
+
+    static boolean isNearBoundary(int aqi) {
+        for (int boundary : CATEGORY_BOUNDARIES) {
+            if (Math.abs(aqi - boundary) <= BOUNDARY_MARGIN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRising(int aqi, long now) {
+        if (lastAqi < 0 || aqi <= lastAqi) {
+            return false;
+        }
+        // Readings closer together than the minimum interval count as that far apart
+        long elapsed = Math.max(now - lastReadingAt, MIN_INTERVAL_MILLIS);
+        return (aqi - lastAqi) * (double) HOUR_MILLIS / elapsed >= RISING_PER_HOUR;
+    }
+
+    private static long adjustForBattery(long delay, boolean lowBattery) {
+        if (!lowBattery) {
+            return delay;
+        }
+        return Math.min(Math.max(delay, BASE_INTERVAL_MILLIS) * 2, LOW_BATTERY_MAX_INTERVAL_MILLIS);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public int getLastAqi() {
+        return lastAqi;
+    }
+
+    public long getLastReadingAt() {
+        return lastReadingAt;
+    }
+
+    public long getLastDelayMillis() {
+        return lastDelayMillis;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.aerotutorial.utils;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.repository.AQIRepository;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background AQI poll for the user's saved location.
+ * Each run fetches through the tile cache, raises a notification when the
+ * air is unhealthy, and enqueues the next run after the delay chosen by
+ * AqiPollPolicy. A chain of one-time requests is used instead of periodic
+ * work because periodic work cannot change its interval between runs.
+ */
+public class AqiPollWorker extends Worker {
+    private static final String TAG = "AqiPollWorker";
+
+    private static final String UNIQUE_WORK_NAME = "aqi_poll";
+
+    // Policy state carried from one run to the next
+    private static final String KEY_LAST_AQI = "last_aqi";
+    private static final String KEY_LAST_READING_AT = "last_reading_at";
+    private static final String KEY_LAST_DELAY = "last_delay";
+
+    private static final int LOW_BATTERY_PERCENT = 20;
+
+    public AqiPollWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Start polling unless a poll is already scheduled
+     */
+    public static void schedule(Context context) {
+        enqueue(context, 0, Data.EMPTY, ExistingWorkPolicy.KEEP);
+    }
+
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+    }
+
+    private static void enqueue(Context context, long delayMillis, Data state, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AqiPollWorker.class)
+            .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+            .setConstraints(constraints)
+            .setInputData(state)
+            .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, policy, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        AqiPollPolicy policy = new AqiPollPolicy();
+        Data input = getInputData();
+        if (input.hasKeyWithValueOfType(KEY_LAST_DELAY, Long.class)) {
+            policy.restore(
+                input.getInt(KEY_LAST_AQI, -1),
+                input.getLong(KEY_LAST_READING_AT, 0),
+                input.getLong(KEY_LAST_DELAY, AqiPollPolicy.BASE_INTERVAL_MILLIS)
+            );
+        }
+
+        boolean lowBattery = isBatteryLow(context);
+        String location = new PreferencesManager(context).getUserLocation();
+        long delay;
+        if (location == null || location.trim().isEmpty()) {
+            // Nobody signed in yet; look again later
+            delay = AqiPollPolicy.MAX_INTERVAL_MILLIS;
+        } else {
+            try {
+                AirQualityData data = new AQIRepository().fetchAQIForLocationBlocking(location.trim());
+                Log.d(TAG, "Polled AQI for " + location + ": " + data.getAqi());
+                NotificationHelper.checkAndNotify(context, location.trim(), data.getAqi());
+                NearbyAlertNotifier.checkOnce(context, data.getLatitude(), data.getLongitude());
+                delay = policy.onReading(data.getAqi(), lowBattery);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Result.retry();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "AQI poll failed: " + e.getMessage(), e);
+                delay = policy.onFailure(lowBattery);
+            }
+        }
+
+        Data state = new Data.Builder()
+            .putInt(KEY_LAST_AQI, policy.getLastAqi())
+            .putLong(KEY_LAST_READING_AT, policy.getLastReadingAt())
+            .putLong(KEY_LAST_DELAY, policy.getLastDelayMillis())
+            .build();
+        // Appended so the running request is not cancelled by its own successor
+        enqueue(context, delay, state, ExistingWorkPolicy.APPEND_OR_REPLACE);
+        Log.d(TAG, "Next AQI poll in " + TimeUnit.MILLISECONDS.toMinutes(delay) + " min"
+            + (lowBattery ? " (low battery)" : ""));
+        return Result.success();
+    }
+
+    private static boolean isBatteryLow(Context context) {
+        BatteryManager battery = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        if (battery == null || battery.isCharging()) {
+            return false;
+        }
+        int percent = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        return percent > 0 && percent <= LOW_BATTERY_PERCENT;
+    }
+}
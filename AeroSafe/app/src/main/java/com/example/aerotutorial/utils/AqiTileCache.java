@@ -0,0 +1,276 @@
+package com.example.aerotutorial.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.aerotutorial.models.AirQualityData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory LRU cache of AirQualityData keyed by geohash tile, backed by a
+ * small binary file so cached readings survive process restarts.
+ * Nearby coordinates that fall in the same tile share one entry.
+ */
+public class AqiTileCache {
+    private static final String TAG = "AqiTileCache";
+
+    private static final String CACHE_FILE_NAME = "aqi_tiles.bin";
+    private static final int FILE_VERSION = 1;
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static AqiTileCache instance;
+
+    private final int precision;
+    private final int maxEntries;
+    private final File cacheFile;
+    private final ExecutorService diskExecutor;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private boolean flushScheduled;
+
+    /**
+     * Set up the shared cache with disk persistence.
+     * Called once from AeroTutorialApp.
+     */
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            File file = new File(context.getApplicationContext().getCacheDir(), CACHE_FILE_NAME);
+            instance = new AqiTileCache(GeoHash.DEFAULT_PRECISION, DEFAULT_MAX_ENTRIES, file);
+        }
+    }
+
+    /**
+     * Get the shared cache. Falls back to a memory-only cache if init was never called.
+     */
+    public static synchronized AqiTileCache getInstance() {
+        if (instance == null) {
+            instance = new AqiTileCache(GeoHash.DEFAULT_PRECISION, DEFAULT_MAX_ENTRIES, null);
+        }
+        return instance;
+    }
+
+    public AqiTileCache(int precision, int maxEntries, File cacheFile) {
+        this.precision = precision;
+        this.maxEntries = maxEntries;
+        this.cacheFile = cacheFile;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.diskExecutor = cacheFile != null ? Executors.newSingleThreadExecutor() : null;
+
+        if (diskExecutor != null) {
+            diskExecutor.execute(this::loadFromDisk);
+        }
+    }
+
+    /**
+     * Geohash tile key for a coordinate at this cache's precision
+     */
+    public String tileKey(double latitude, double longitude) {
+        return GeoHash.encode(latitude, longitude, precision);
+    }
+
+    /**
+     * Look up a cached reading for the tile containing the coordinate
+     *
+     * @return A copy of the cached data, or null on a miss or expired entry
+     */
+    public AirQualityData get(double latitude, double longitude) {
+        return get(tileKey(latitude, longitude));
+    }
+
+    public synchronized AirQualityData get(String tileKey) {
+        Entry entry = entries.get(tileKey);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            hits++;
+            // Callers may modify what they get; the cached entry must stay as fetched
+            return new AirQualityData(entry.data);
+        }
+        if (entry != null) {
+            entries.remove(tileKey);
+        }
+        misses++;
+        return null;
+    }
+
+    public void put(double latitude, double longitude, AirQualityData data) {
+        put(tileKey(latitude, longitude), data, DEFAULT_TTL_MILLIS);
+    }
+
+    public synchronized void put(String tileKey, AirQualityData data, long ttlMillis) {
+        entries.put(tileKey, new Entry(new AirQualityData(data), System.currentTimeMillis() + ttlMillis));
+        trimToSize();
+        scheduleFlush();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        scheduleFlush();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    // Coalesce bursts of puts into one background write
+    private void scheduleFlush() {
+        if (diskExecutor == null || flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        diskExecutor.execute(this::writeToDisk);
+    }
+
+    private void writeToDisk() {
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized (this) {
+            flushScheduled = false;
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+
+        long now = System.currentTimeMillis();
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            int live = 0;
+            for (Map.Entry<String, Entry> e : snapshot) {
+                if (e.getValue().expiresAt > now) live++;
+            }
+            out.writeInt(live);
+            for (Map.Entry<String, Entry> e : snapshot) {
+                Entry entry = e.getValue();
+                if (entry.expiresAt <= now) continue;
+                AirQualityData d = entry.data;
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.expiresAt);
+                out.writeUTF(d.getLocation() != null ? d.getLocation() : "");
+                out.writeDouble(d.getLatitude());
+                out.writeDouble(d.getLongitude());
+                out.writeInt(d.getAqi());
+                out.writeFloat((float) d.getPm25());
+                out.writeFloat((float) d.getPm10());
+                out.writeFloat((float) d.getNo2());
+                out.writeFloat((float) d.getO3());
+                out.writeFloat((float) d.getSo2());
+                out.writeFloat((float) d.getCo());
+                out.writeLong(d.getTimestamp());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write tile cache", e);
+            return;
+        }
+        if (!tmp.renameTo(cacheFile)) {
+            Log.e(TAG, "Failed to replace tile cache file");
+        }
+    }
+
+    private void loadFromDisk() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != FILE_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long expiresAt = in.readLong();
+                String location = in.readUTF();
+                double lat = in.readDouble();
+                double lon = in.readDouble();
+                int aqi = in.readInt();
+                AirQualityData data = new AirQualityData(location, lat, lon, aqi,
+                        in.readFloat(), in.readFloat(), in.readFloat(),
+                        in.readFloat(), in.readFloat(), in.readFloat());
+                data.setTimestamp(in.readLong());
+
+                if (expiresAt > now) {
+                    synchronized (this) {
+                        // Fresher in-memory entries win over disk copies
+                        if (!entries.containsKey(key)) {
+                            entries.put(key, new Entry(data, expiresAt));
+                        }
+                    }
+                }
+            }
+            synchronized (this) {
+                trimToSize();
+            }
+            Log.d(TAG, "Loaded " + count + " cached tiles from disk");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read tile cache", e);
+        }
+    }
+
+    private static class Entry {
+        final AirQualityData data;
+        final long expiresAt;
+
+        Entry(AirQualityData data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Snapshot of cache counters
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int size;
+
+        public Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public String toDisplayString() {
+            return String.format(Locale.US, "Cache: %.0f%% hit rate, ", getHitRate() * 100)
+                    + hits + " hits, " + misses + " misses, "
+                    + evictions + " evictions (" + size + " tiles)";
+        }
+    }
+}
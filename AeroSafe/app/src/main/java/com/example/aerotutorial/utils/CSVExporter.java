@@ -4,30 +4,62 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.core.content.FileProvider;
 
 import com.example.aerotutorial.models.AirQualityData;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exports research samples to a file and offers it through the share sheet.
+ * Rows are pulled from an iterator and written on a background thread, as
+ * CSV by CsvRowWriter or in the columnar binary format by ColumnarWriter,
+ * so exports never hold the whole dataset in memory or block the UI.
+ * Callbacks are delivered on the main thread.
+ */
 public class CSVExporter {
+    private static final String TAG = "CSVExporter";
+
+    // Rows between progress callbacks
+    private static final int PROGRESS_INTERVAL = 5_000;
+
+    // One export at a time, in submission order
+    private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor();
 
     private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     public CSVExporter(Context context) {
-        this.context = context;
+        this.context = context.getApplicationContext();
+    }
+
+    // Writes every row to out and returns the row count
+    private interface RowSink {
+        long write(FileOutputStream out, CsvRowWriter.ProgressListener progress) throws IOException;
     }
 
     public interface ExportCallback {
         void onSuccess(String filePath);
         void onFailure(String error);
+
+        // totalRows is -1 when the source size is unknown
+        default void onProgress(long rowsWritten, long totalRows) {
+        }
     }
 
     public void exportResearchData(List<AirQualityData> dataList, ExportCallback callback) {
@@ -35,60 +67,93 @@ public class CSVExporter {
             callback.onFailure("No data to export");
             return;
         }
+        exportResearchData(dataList.iterator(), dataList.size(), callback);
+    }
 
-        try {
-            // Create filename with timestamp
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-            String timestamp = sdf.format(new Date());
-            String filename = "AeroSafe_Research_Data_" + timestamp + ".csv";
-
-            // Get external storage directory
-            File exportDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "AeroSafe");
-            if (!exportDir.exists()) {
-                exportDir.mkdirs();
+    /**
+     * Stream rows to a new CSV file. The iterator is consumed on the export
+     * thread, so it must not depend on main-thread state.
+     *
+     * @param rows Source rows; null elements are skipped. Closed when the
+     *             export ends if it is Closeable, such as a database cursor
+     * @param totalRows Expected row count for progress, or -1 if unknown
+     */
+    public void exportResearchData(Iterator<AirQualityData> rows, long totalRows, ExportCallback callback) {
+        export("csv", "text/csv", rows, totalRows, callback, (out, progress) -> {
+            try (FileChannel channel = out.getChannel()) {
+                return new CsvRowWriter(channel).writeAll(rows, PROGRESS_INTERVAL, progress);
             }
+        });
+    }
 
-            File file = new File(exportDir, filename);
-
-            // Write CSV data
-            FileWriter writer = new FileWriter(file);
-
-            // Write header
-            writer.append("Timestamp,Location,Latitude,Longitude,AQI,PM2.5,PM10,NO2,O3,SO2,CO\n");
-
-            // Write data rows
-            SimpleDateFormat dateSdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            for (AirQualityData data : dataList) {
-                String dateStr = dateSdf.format(new Date(data.getTimestamp()));
-                writer.append(String.format(Locale.US, "%s,%s,%.6f,%.6f,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f\n",
-                    dateStr,
-                    data.getLocation().replace(",", ";"), // Escape commas in location
-                    data.getLatitude(),
-                    data.getLongitude(),
-                    data.getAqi(),
-                    data.getPm25(),
-                    data.getPm10(),
-                    data.getNo2(),
-                    data.getO3(),
-                    data.getSo2(),
-                    data.getCo()
-                ));
+    /**
+     * Stream rows to a new columnar binary file (see ColumnarWriter).
+     * Same threading and callbacks as the CSV export.
+     */
+    public void exportResearchDataColumnar(Iterator<AirQualityData> rows, long totalRows,
+                                           ExportCallback callback) {
+        export("aqcol", "application/octet-stream", rows, totalRows, callback,
+            (out, progress) -> new ColumnarWriter(out).writeAll(rows, progress::onProgress));
+    }
+
+    private void export(String extension, String mimeType, Iterator<AirQualityData> rows,
+                        long totalRows, ExportCallback callback, RowSink sink) {
+        EXPORT_EXECUTOR.execute(() -> {
+            File file = newExportFile(extension);
+            long written;
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                written = sink.write(out,
+                    count -> mainHandler.post(() -> callback.onProgress(count, totalRows)));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error writing " + extension, e);
+                file.delete();
+                mainHandler.post(() -> callback.onFailure("Error creating export: " + e.getMessage()));
+                return;
+            } finally {
+                closeRows(rows);
             }
 
-            writer.flush();
-            writer.close();
+            if (written == 0) {
+                file.delete();
+                mainHandler.post(() -> callback.onFailure("No data to export"));
+                return;
+            }
 
-            // Share the file
-            shareFile(file);
+            Log.d(TAG, "Exported " + written + " rows to " + file.getAbsolutePath());
+            mainHandler.post(() -> {
+                callback.onProgress(written, totalRows);
+                // Share the file
+                shareFile(file, mimeType);
+                callback.onSuccess(file.getAbsolutePath());
+            });
+        });
+    }
 
-            callback.onSuccess(file.getAbsolutePath());
+    private static void closeRows(Iterator<AirQualityData> rows) {
+        if (rows instanceof Closeable) {
+            try {
+                ((Closeable) rows).close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing export rows", e);
+            }
+        }
+    }
 
-        } catch (IOException e) {
-            callback.onFailure("Error creating CSV: " + e.getMessage());
+    private File newExportFile(String extension) {
+        // Create filename with timestamp
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String timestamp = sdf.format(new Date());
+        String filename = "AeroSafe_Research_Data_" + timestamp + "." + extension;
+
+        // Get external storage directory
+        File exportDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "AeroSafe");
+        if (!exportDir.exists()) {
+            exportDir.mkdirs();
         }
+        return new File(exportDir, filename);
     }
 
-    private void shareFile(File file) {
+    private void shareFile(File file, String mimeType) {
         try {
             Uri fileUri = FileProvider.getUriForFile(
                 context,
@@ -97,15 +162,16 @@ public class CSVExporter {
             );
 
             Intent intent = new Intent(Intent.ACTION_SEND);
-            intent.setType("text/csv");
+            intent.setType(mimeType);
             intent.putExtra(Intent.EXTRA_STREAM, fileUri);
             intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
             intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
 
-            context.startActivity(Intent.createChooser(intent, "Share CSV File"));
+            Intent chooser = Intent.createChooser(intent, "Share Export File");
+            chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(chooser);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 }
-
@@ -26,6 +26,25 @@ public class ChartHelper {
             entries.add(new Entry(i, aqiData.get(i)));
         }
 
+        showEntries(chart, entries);
+    }
+
+    public static void setupLineChart(LineChart chart, double[] aqiData) {
+        if (aqiData == null || aqiData.length == 0) {
+            chart.clear();
+            return;
+        }
+
+        // Create entries for chart
+        ArrayList<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < aqiData.length; i++) {
+            entries.add(new Entry(i, (float) aqiData[i]));
+        }
+
+        showEntries(chart, entries);
+    }
+
+    private static void showEntries(LineChart chart, List<Entry> entries) {
         // Create dataset
         LineDataSet dataSet = new LineDataSet(entries, "AQI History");
         dataSet.setColor(Color.parseColor("#2196F3"));
@@ -55,7 +74,7 @@ public class ChartHelper {
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
         xAxis.setDrawGridLines(false);
         xAxis.setGranularity(1f);
-        xAxis.setLabelCount(aqiData.size());
+        xAxis.setLabelCount(entries.size());
 
         // Configure Y axis (left)
         YAxis leftAxis = chart.getAxisLeft();
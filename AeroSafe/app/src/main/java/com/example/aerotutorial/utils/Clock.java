@@ -0,0 +1,10 @@
+package com.example.aerotutorial.utils;
+
+/**
+ * Source of the current time, so time-based policies can run against a fake clock on the JVM
+ */
+public interface Clock {
+    long currentTimeMillis();
+
+    Clock SYSTEM = System::currentTimeMillis;
+}
@@ -0,0 +1,172 @@
+package com.example.aerotutorial.utils;
+
+import com.example.aerotutorial.models.AirQualityData;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads files written by ColumnarWriter one row group at a time.
+ * Pollutant columns come back as the float values that were stored.
+ */
+public class ColumnarReader {
+
+    private static final int STREAM_BUFFER_BYTES = 256 * 1024;
+
+    private final DataInputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+
+    private long[] timestamps = new long[0];
+    private int[] locations = new int[0];
+    private double[] latitudes = new double[0];
+    private double[] longitudes = new double[0];
+    private int[] aqis = new int[0];
+    private float[][] pollutants = new float[ColumnarWriter.POLLUTANT_COLUMNS][0];
+    private int groupRows;
+    private int position;
+
+    private boolean finished;
+    private long rowsRead;
+
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, STREAM_BUFFER_BYTES));
+        readHeader();
+    }
+
+    /**
+     * Next row, or null after the last one
+     */
+    public AirQualityData read() throws IOException {
+        if (position == groupRows && !readGroup()) {
+            return null;
+        }
+        int row = position++;
+        rowsRead++;
+
+        AirQualityData data = new AirQualityData();
+        data.setTimestamp(timestamps[row]);
+        data.setLocation(locations[row] == 0 ? null : dictionary.get(locations[row] - 1));
+        data.setLatitude(latitudes[row]);
+        data.setLongitude(longitudes[row]);
+        data.setAqi(aqis[row]);
+        data.setPm25(pollutants[0][row]);
+        data.setPm10(pollutants[1][row]);
+        data.setNo2(pollutants[2][row]);
+        data.setO3(pollutants[3][row]);
+        data.setSo2(pollutants[4][row]);
+        data.setCo(pollutants[5][row]);
+        return data;
+    }
+
+    public List<AirQualityData> readAll() throws IOException {
+        List<AirQualityData> rows = new ArrayList<>();
+        AirQualityData data;
+        while ((data = read()) != null) {
+            rows.add(data);
+        }
+        return rows;
+    }
+
+    private void readHeader() throws IOException {
+        byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) {
+            throw new IOException("Not a columnar research data file");
+        }
+        int version = in.readInt();
+        if (version != ColumnarWriter.VERSION) {
+            throw new IOException("Unsupported file version: " + version);
+        }
+    }
+
+    private boolean readGroup() throws IOException {
+        if (finished) {
+            return false;
+        }
+        int rows = (int) readVarint();
+        if (rows == 0) {
+            long total = in.readLong();
+            if (total != rowsRead) {
+                throw new IOException("File holds " + rowsRead + " rows, footer says " + total);
+            }
+            finished = true;
+            return false;
+        }
+        ensureCapacity(rows);
+
+        int newEntries = (int) readVarint();
+        for (int i = 0; i < newEntries; i++) {
+            byte[] bytes = new byte[(int) readVarint()];
+            in.readFully(bytes);
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        timestamps[0] = in.readLong();
+        for (int i = 1; i < rows; i++) {
+            timestamps[i] = timestamps[i - 1] + unzigzag(readVarint());
+        }
+        for (int i = 0; i < rows; i++) {
+            int index = (int) readVarint();
+            if (index > dictionary.size()) {
+                throw new IOException("Location index out of range: " + index);
+            }
+            locations[i] = index;
+        }
+        for (int i = 0; i < rows; i++) {
+            latitudes[i] = in.readDouble();
+        }
+        for (int i = 0; i < rows; i++) {
+            longitudes[i] = in.readDouble();
+        }
+        for (int i = 0; i < rows; i++) {
+            aqis[i] = (int) unzigzag(readVarint());
+        }
+        for (float[] column : pollutants) {
+            for (int i = 0; i < rows; i++) {
+                column[i] = in.readFloat();
+            }
+        }
+
+        groupRows = rows;
+        position = 0;
+        return true;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (timestamps.length >= rows) {
+            return;
+        }
+        timestamps = new long[rows];
+        locations = new int[rows];
+        latitudes = new double[rows];
+        longitudes = new double[rows];
+        aqis = new int[rows];
+        pollutants = new float[ColumnarWriter.POLLUTANT_COLUMNS][rows];
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated file");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.aerotutorial.utils;
+
+import com.example.aerotutorial.models.AirQualityData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes research samples in a compact column-oriented binary format.
+ * Rows are buffered into row groups and each group is written column by
+ * column, so similar values sit together and compress well.
+ *
+ * Layout (big-endian, varints are unsigned LEB128):
+ *   header     MAGIC, int version
+ *   row group  varint rowCount (> 0)
+ *              varint newDictionaryEntries, then each entry as
+ *                varint byte length + UTF-8 bytes
+ *              timestamps: long first, then zigzag varint deltas
+ *              location:   varint dictionary index per row (0 = no location)
+ *              latitude, longitude: double per row
+ *              aqi:        zigzag varint per row
+ *              pm25, pm10, no2, o3, so2, co: float per row
+ *   footer     varint 0, long total row count
+ * The location dictionary is shared by the whole file; each group only
+ * carries the entries it added. See ColumnarReader.
+ */
+public class ColumnarWriter {
+
+    static final byte[] MAGIC = {'A', 'Q', 'C', 'O', 'L'};
+    static final int VERSION = 1;
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 16_384;
+    private static final int STREAM_BUFFER_BYTES = 256 * 1024;
+    static final int POLLUTANT_COLUMNS = 6;
+
+    public interface ProgressListener {
+        void onProgress(long rowsWritten);
+    }
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_BYTES);
+    private final int rowGroupSize;
+
+    // Column buffers for the current group, reused across groups
+    private final long[] timestamps;
+    private final int[] locations;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] aqis;
+    private final float[][] pollutants;
+    private int rows;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final String[] pendingEntries;
+    private int pendingCount;
+    private long totalRows;
+
+    public ColumnarWriter(OutputStream out) {
+        this(out, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarWriter(OutputStream out, int rowGroupSize) {
+        this.out = out;
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+        this.timestamps = new long[this.rowGroupSize];
+        this.locations = new int[this.rowGroupSize];
+        this.latitudes = new double[this.rowGroupSize];
+        this.longitudes = new double[this.rowGroupSize];
+        this.aqis = new int[this.rowGroupSize];
+        this.pollutants = new float[POLLUTANT_COLUMNS][this.rowGroupSize];
+        this.pendingEntries = new String[this.rowGroupSize];
+    }
+
+    /**
+     * Write the header, every row and the footer, reporting progress every group
+     *
+     * @return Number of rows written
+     */
+    public long writeAll(Iterator<AirQualityData> rows, ProgressListener listener) throws IOException {
+        writeHeader();
+        while (rows.hasNext()) {
+            AirQualityData data = rows.next();
+            if (data == null) {
+                continue;
+            }
+            if (add(data) && listener != null) {
+                listener.onProgress(totalRows);
+            }
+        }
+        finish();
+        return totalRows;
+    }
+
+    void writeHeader() throws IOException {
+        ensure(MAGIC.length + 4);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    // Returns true when the row completed a group and the group was written
+    boolean add(AirQualityData data) throws IOException {
+        int row = rows++;
+        timestamps[row] = data.getTimestamp();
+        locations[row] = locationIndex(data.getLocation());
+        latitudes[row] = data.getLatitude();
+        longitudes[row] = data.getLongitude();
+        aqis[row] = data.getAqi();
+        pollutants[0][row] = (float) data.getPm25();
+        pollutants[1][row] = (float) data.getPm10();
+        pollutants[2][row] = (float) data.getNo2();
+        pollutants[3][row] = (float) data.getO3();
+        pollutants[4][row] = (float) data.getSo2();
+        pollutants[5][row] = (float) data.getCo();
+
+        if (rows == rowGroupSize) {
+            flushGroup();
+            return true;
+        }
+        return false;
+    }
+
+    void finish() throws IOException {
+        flushGroup();
+        writeVarint(0);
+        ensure(8);
+        buffer.putLong(totalRows);
+        drain();
+        out.flush();
+    }
+
+    private int locationIndex(String location) {
+        if (location == null) {
+            return 0;
+        }
+        Integer index = dictionary.get(location);
+        if (index == null) {
+            // Index 0 is reserved for "no location"
+            index = dictionary.size() + 1;
+            dictionary.put(location, index);
+            pendingEntries[pendingCount++] = location;
+        }
+        return index;
+    }
+
+    private void flushGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        writeVarint(rows);
+
+        writeVarint(pendingCount);
+        for (int i = 0; i < pendingCount; i++) {
+            byte[] bytes = pendingEntries[i].getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes);
+            pendingEntries[i] = null;
+        }
+        pendingCount = 0;
+
+        // Samples are usually in time order, so deltas are small
+        ensure(8);
+        buffer.putLong(timestamps[0]);
+        for (int i = 1; i < rows; i++) {
+            writeVarint(zigzag(timestamps[i] - timestamps[i - 1]));
+        }
+        for (int i = 0; i < rows; i++) {
+            writeVarint(locations[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(8);
+            buffer.putDouble(latitudes[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(8);
+            buffer.putDouble(longitudes[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            writeVarint(zigzag(aqis[i]));
+        }
+        for (float[] column : pollutants) {
+            for (int i = 0; i < rows; i++) {
+                ensure(4);
+                buffer.putFloat(column[i]);
+            }
+        }
+
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            drain();
+            out.write(bytes);
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    // Make room for `bytes` more bytes, writing out what is buffered if needed
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
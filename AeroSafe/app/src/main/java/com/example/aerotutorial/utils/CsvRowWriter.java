@@ -0,0 +1,290 @@
+package com.example.aerotutorial.utils;
+
+import com.example.aerotutorial.models.AirQualityData;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.TimeZone;
+
+/**
+ * Writes research samples as CSV rows to a channel without per-row garbage.
+ * Rows are appended to one reused StringBuilder, numbers are formatted by
+ * hand to the digits String.format gives, dates come from a per-day cache,
+ * and the text is encoded into one large buffer that is written out when full.
+ * Not thread-safe; use one writer per export.
+ */
+public class CsvRowWriter {
+
+    public static final String HEADER = "Timestamp,Location,Latitude,Longitude,AQI,PM2.5,PM10,NO2,O3,SO2,CO\n";
+
+    private static final int DEFAULT_BUFFER_BYTES = 256 * 1024;
+    // Encode the pending text once it reaches this many chars
+    private static final int FLUSH_CHARS = 16 * 1024;
+
+    private static final long[] POWERS_OF_TEN = {
+        1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000
+    };
+    // Above this a scaled double no longer has a fractional part to round
+    private static final double MAX_EXACT_SCALED = 1L << 52;
+
+    public interface ProgressListener {
+        void onProgress(long rowsWritten);
+    }
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder line = new StringBuilder(FLUSH_CHARS + 512);
+    private final DateCache dates;
+
+    public CsvRowWriter(WritableByteChannel channel) {
+        this(channel, TimeZone.getDefault(), DEFAULT_BUFFER_BYTES);
+    }
+
+    public CsvRowWriter(WritableByteChannel channel, TimeZone timeZone, int bufferBytes) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.dates = new DateCache(timeZone);
+    }
+
+    /**
+     * Write the header and every row, reporting progress every progressInterval rows
+     *
+     * @return Number of rows written
+     */
+    public long writeAll(Iterator<AirQualityData> rows, int progressInterval,
+                         ProgressListener listener) throws IOException {
+        line.append(HEADER);
+        long written = 0;
+        while (rows.hasNext()) {
+            AirQualityData data = rows.next();
+            if (data == null) {
+                continue;
+            }
+            appendRow(data);
+            written++;
+
+            if (line.length() >= FLUSH_CHARS) {
+                encodePending();
+            }
+            if (listener != null && progressInterval > 0 && written % progressInterval == 0) {
+                listener.onProgress(written);
+            }
+        }
+        finish();
+        return written;
+    }
+
+    void appendRow(AirQualityData data) {
+        StringBuilder sb = line;
+        dates.append(sb, data.getTimestamp());
+        sb.append(',');
+        appendLocation(sb, data.getLocation());
+        sb.append(',');
+        appendFixed(sb, data.getLatitude(), 6);
+        sb.append(',');
+        appendFixed(sb, data.getLongitude(), 6);
+        sb.append(',');
+        sb.append(data.getAqi());
+        sb.append(',');
+        appendFixed(sb, data.getPm25(), 2);
+        sb.append(',');
+        appendFixed(sb, data.getPm10(), 2);
+        sb.append(',');
+        appendFixed(sb, data.getNo2(), 2);
+        sb.append(',');
+        appendFixed(sb, data.getO3(), 2);
+        sb.append(',');
+        appendFixed(sb, data.getSo2(), 2);
+        sb.append(',');
+        appendFixed(sb, data.getCo(), 2);
+        sb.append('\n');
+    }
+
+    // Commas would split the column, so they become semicolons as before
+    private static void appendLocation(StringBuilder sb, String location) {
+        if (location == null) {
+            return;
+        }
+        for (int i = 0, n = location.length(); i < n; i++) {
+            char c = location.charAt(i);
+            sb.append(c == ',' ? ';' : c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    /**
+     * Append value with exactly `decimals` digits after the point, as
+     * String.format(Locale.US, "%.nf") does: half up on the shortest decimal
+     * form of the double, so 1.005 gives "1.01", and "-0.00" for small negatives.
+     * Values near a tie or too large to scale exactly take the BigDecimal path.
+     */
+    static void appendFixed(StringBuilder sb, double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sb.append(value);
+            return;
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        double scaledValue = Math.abs(value) * scale;
+        if (scaledValue >= MAX_EXACT_SCALED) {
+            appendDecimal(sb, value, decimals);
+            return;
+        }
+        long scaled = (long) scaledValue;
+        double fraction = scaledValue - scaled;
+        // The product and the double itself can each be an ulp off the decimal the
+        // formatter rounds, which only matters when the fraction is close to one half
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaledValue)) {
+            appendDecimal(sb, value, decimals);
+            return;
+        }
+        if (fraction > 0.5) {
+            scaled++;
+        }
+
+        if (Double.doubleToRawLongBits(value) < 0) {
+            sb.append('-');
+        }
+        sb.append(scaled / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            long fractionDigits = scaled % scale;
+            // Leading zeros of the fraction
+            for (long p = scale / 10; p > fractionDigits && p > 1; p /= 10) {
+                sb.append('0');
+            }
+            sb.append(fractionDigits);
+        }
+    }
+
+    private static void appendDecimal(StringBuilder sb, double value, int decimals) {
+        BigDecimal rounded = new BigDecimal(Double.toString(value)).setScale(decimals, RoundingMode.HALF_UP);
+        if (rounded.signum() == 0 && Double.doubleToRawLongBits(value) < 0) {
+            sb.append('-');
+        }
+        sb.append(rounded.toPlainString());
+    }
+
+    private void encodePending() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        // Keep a dangling high surrogate for the next round
+        line.delete(0, line.length() - chars.remaining());
+    }
+
+    private void finish() throws IOException {
+        encodePending();
+        CharBuffer empty = CharBuffer.allocate(0);
+        while (encoder.encode(empty, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        drain();
+        encoder.reset();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Formats "yyyy-MM-dd HH:mm:ss" in a time zone, computing the date part
+     * once per local day. Days with an offset change are formatted per row.
+     */
+    static class DateCache {
+        private static final long DAY_MILLIS = 86_400_000L;
+
+        private final TimeZone timeZone;
+        private final char[] datePrefix = new char[11];
+        private long dayStart = Long.MAX_VALUE;
+        private long dayEnd = Long.MIN_VALUE;
+        private int dayOffset;
+
+        DateCache(TimeZone timeZone) {
+            this.timeZone = timeZone;
+        }
+
+        void append(StringBuilder sb, long timestamp) {
+            int offset;
+            if (timestamp >= dayStart && timestamp < dayEnd) {
+                offset = dayOffset;
+            } else {
+                offset = timeZone.getOffset(timestamp);
+                long localDay = Math.floorDiv(timestamp + offset, DAY_MILLIS);
+                fillDate(localDay);
+
+                long start = localDay * DAY_MILLIS - offset;
+                long end = start + DAY_MILLIS;
+                if (timeZone.getOffset(start) == offset && timeZone.getOffset(end - 1) == offset) {
+                    dayStart = start;
+                    dayEnd = end;
+                    dayOffset = offset;
+                } else {
+                    // Offset changes during this day; do not reuse it
+                    dayStart = Long.MAX_VALUE;
+                    dayEnd = Long.MIN_VALUE;
+                }
+            }
+
+            sb.append(datePrefix);
+            int secondOfDay = (int) (Math.floorMod(timestamp + offset, DAY_MILLIS) / 1000);
+            appendTwoDigits(sb, secondOfDay / 3600);
+            sb.append(':');
+            appendTwoDigits(sb, secondOfDay / 60 % 60);
+            sb.append(':');
+            appendTwoDigits(sb, secondOfDay % 60);
+        }
+
+        // Proleptic Gregorian date from days since 1970-01-01 (H. Hinnant's civil_from_days)
+        private void fillDate(long epochDay) {
+            long z = epochDay + 719_468;
+            long era = Math.floorDiv(z, 146_097);
+            long dayOfEra = z - era * 146_097;
+            long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+            long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            long mp = (5 * dayOfYear + 2) / 153;
+            int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+            int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+            int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+            year = Math.max(0, Math.min(9999, year));
+            datePrefix[0] = (char) ('0' + year / 1000);
+            datePrefix[1] = (char) ('0' + year / 100 % 10);
+            datePrefix[2] = (char) ('0' + year / 10 % 10);
+            datePrefix[3] = (char) ('0' + year % 10);
+            datePrefix[4] = '-';
+            datePrefix[5] = (char) ('0' + month / 10);
+            datePrefix[6] = (char) ('0' + month % 10);
+            datePrefix[7] = '-';
+            datePrefix[8] = (char) ('0' + day / 10);
+            datePrefix[9] = (char) ('0' + day % 10);
+            datePrefix[10] = ' ';
+        }
+
+        private static void appendTwoDigits(StringBuilder sb, int value) {
+            sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        }
+    }
+}
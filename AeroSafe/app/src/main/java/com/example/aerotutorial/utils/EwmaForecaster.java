@@ -0,0 +1,62 @@
+package com.example.aerotutorial.utils;
+
+import java.util.Arrays;
+
+/**
+ * Exponentially weighted moving average baseline.
+ * Forecasts stay flat at the smoothed level.
+ */
+public class EwmaForecaster implements Forecaster {
+
+    public static final double DEFAULT_ALPHA = 0.3;
+
+    private final double alpha;
+    private double level;
+    private double residualStdDev;
+
+    public EwmaForecaster() {
+        this(DEFAULT_ALPHA);
+    }
+
+    public EwmaForecaster(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    @Override
+    public String getName() {
+        return "EWMA";
+    }
+
+    @Override
+    public void fit(double[] values) {
+        if (values.length == 0) {
+            level = 0;
+            residualStdDev = 0;
+            return;
+        }
+
+        level = values[0];
+        double sumSquaredError = 0;
+        for (int i = 1; i < values.length; i++) {
+            double error = values[i] - level;
+            sumSquaredError += error * error;
+            level += alpha * error;
+        }
+        residualStdDev = values.length > 1 ? Math.sqrt(sumSquaredError / (values.length - 1)) : 0;
+    }
+
+    @Override
+    public double[] forecast(int horizon) {
+        double[] result = new double[horizon];
+        Arrays.fill(result, level);
+        return result;
+    }
+
+    @Override
+    public double getResidualStdDev() {
+        return residualStdDev;
+    }
+}
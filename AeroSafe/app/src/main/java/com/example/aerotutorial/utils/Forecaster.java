@@ -0,0 +1,35 @@
+package com.example.aerotutorial.utils;
+
+/**
+ * A time-series model that is trained on evenly spaced (hourly) AQI values
+ * and then forecasts the following steps.
+ * Implementations keep their fitted state, so one instance can be cached
+ * and asked for several forecasts without refitting.
+ */
+public interface Forecaster {
+
+    /**
+     * Human readable model name, stored with each prediction
+     */
+    String getName();
+
+    /**
+     * Train on the series, replacing any previous fit
+     *
+     * @param values Hourly values, oldest first
+     */
+    void fit(double[] values);
+
+    /**
+     * Forecast the values following the training series
+     *
+     * @param horizon Number of steps ahead
+     * @return horizon values; index 0 is one step after the last sample
+     */
+    double[] forecast(int horizon);
+
+    /**
+     * Standard deviation of the one-step-ahead errors seen while fitting
+     */
+    double getResidualStdDev();
+}
@@ -0,0 +1,140 @@
+package com.example.aerotutorial.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal geohash encoder used to snap coordinates to a grid cell.
+ * Precision 6 gives cells of roughly 1.2 km x 0.6 km.
+ */
+public class GeoHash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    public static final int DEFAULT_PRECISION = 6;
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encode a coordinate as a geohash string
+     *
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param precision Number of characters (1-12)
+     * @return Geohash of the cell containing the coordinate
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > 12) {
+            throw new IllegalArgumentException("Precision must be between 1 and 12");
+        }
+
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        int index = 0;
+
+        while (index < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash[index++] = BASE32[ch];
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return new String(hash);
+    }
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Decode a geohash to the bounds of its cell
+     *
+     * @return {minLat, minLon, maxLat, maxLon}
+     */
+    public static double[] decodeBounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+
+        for (int i = 0; i < hash.length(); i++) {
+            int ch = indexOf(hash.charAt(i));
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((ch >> bit) & 1) == 1;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (set) minLon = mid; else maxLon = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) minLat = mid; else maxLat = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    /**
+     * The cells surrounding a cell at the same precision, without the cell itself.
+     * Longitude wraps at the antimeridian; cells at the poles have fewer neighbours.
+     */
+    public static List<String> neighbors(String hash) {
+        double[] bounds = decodeBounds(hash);
+        double height = bounds[2] - bounds[0];
+        double width = bounds[3] - bounds[1];
+        double centerLat = (bounds[0] + bounds[2]) / 2;
+        double centerLon = (bounds[1] + bounds[3]) / 2;
+
+        Set<String> cells = new LinkedHashSet<>();
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            double lat = centerLat + dLat * height;
+            if (lat < -90 || lat > 90) {
+                continue;
+            }
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                double lon = centerLon + dLon * width;
+                if (lon >= 180) lon -= 360;
+                else if (lon < -180) lon += 360;
+                cells.add(encode(lat, lon, hash.length()));
+            }
+        }
+        cells.remove(hash);
+        return new ArrayList<>(cells);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid geohash character: " + c);
+    }
+}
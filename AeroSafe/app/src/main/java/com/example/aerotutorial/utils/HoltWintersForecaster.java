@@ -0,0 +1,126 @@
+package com.example.aerotutorial.utils;
+
+/**
+ * Additive Holt-Winters (triple exponential smoothing).
+ * Tracks level, trend and a seasonal profile; with hourly data and a
+ * period of 24 it captures the daily traffic/heating cycle in AQI.
+ * Needs at least two full periods to fit; shorter series fall back to
+ * level and trend only.
+ */
+public class HoltWintersForecaster implements Forecaster {
+
+    public static final int DAILY_PERIOD = 24;
+
+    private final int period;
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+
+    private double level;
+    private double trend;
+    private double[] seasonal;
+    private int seasonIndex; // seasonal slot of the next step
+    private double residualStdDev;
+
+    public HoltWintersForecaster() {
+        this(DAILY_PERIOD, 0.3, 0.05, 0.2);
+    }
+
+    public HoltWintersForecaster(int period, double alpha, double beta, double gamma) {
+        if (period < 2) {
+            throw new IllegalArgumentException("Period must be at least 2");
+        }
+        this.period = period;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Minimum number of samples needed for a seasonal fit
+     */
+    public int getMinimumSamples() {
+        return 2 * period;
+    }
+
+    @Override
+    public String getName() {
+        return "Holt-Winters";
+    }
+
+    @Override
+    public void fit(double[] values) {
+        int n = values.length;
+        seasonal = new double[period];
+        seasonIndex = 0;
+        residualStdDev = 0;
+
+        if (n == 0) {
+            level = 0;
+            trend = 0;
+            return;
+        }
+
+        int start;
+        if (n >= 2 * period) {
+            // Initial level/trend from the first two periods, seasonality from the first
+            double firstMean = mean(values, 0, period);
+            double secondMean = mean(values, period, 2 * period);
+            level = firstMean;
+            trend = (secondMean - firstMean) / period;
+            for (int i = 0; i < period; i++) {
+                seasonal[i] = values[i] - firstMean;
+            }
+            start = period;
+        } else {
+            level = values[0];
+            trend = n > 1 ? values[1] - values[0] : 0;
+            start = 1;
+        }
+
+        double sumSquaredError = 0;
+        int errors = 0;
+        for (int t = start; t < n; t++) {
+            int s = t % period;
+            double forecast = level + trend + seasonal[s];
+            double error = values[t] - forecast;
+            sumSquaredError += error * error;
+            errors++;
+
+            double previousLevel = level;
+            level = alpha * (values[t] - seasonal[s]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            if (n >= 2 * period) {
+                seasonal[s] = gamma * (values[t] - level) + (1 - gamma) * seasonal[s];
+            }
+        }
+
+        seasonIndex = n % period;
+        residualStdDev = errors > 0 ? Math.sqrt(sumSquaredError / errors) : 0;
+    }
+
+    @Override
+    public double[] forecast(int horizon) {
+        double[] result = new double[horizon];
+        if (seasonal == null) {
+            return result;
+        }
+        for (int h = 0; h < horizon; h++) {
+            result[h] = level + (h + 1) * trend + seasonal[(seasonIndex + h) % period];
+        }
+        return result;
+    }
+
+    @Override
+    public double getResidualStdDev() {
+        return residualStdDev;
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.aerotutorial.utils;
+
+/**
+ * Least-squares trend line, the model PredictionEngine has always used
+ */
+public class LinearForecaster implements Forecaster {
+
+    private SlidingRegression regression;
+    private double residualStdDev;
+
+    @Override
+    public String getName() {
+        return "Linear Trend";
+    }
+
+    @Override
+    public void fit(double[] values) {
+        regression = new SlidingRegression(Math.max(2, values.length));
+        for (double value : values) {
+            regression.add(value);
+        }
+
+        // In-sample residuals of the fitted line
+        double slope = regression.getSlope();
+        double intercept = regression.getIntercept();
+        double sumSquaredError = 0;
+        for (int i = 0; i < values.length; i++) {
+            double error = values[i] - (intercept + slope * i);
+            sumSquaredError += error * error;
+        }
+        residualStdDev = values.length > 2 ? Math.sqrt(sumSquaredError / (values.length - 2)) : 0;
+    }
+
+    @Override
+    public double[] forecast(int horizon) {
+        double[] result = new double[horizon];
+        if (regression == null) {
+            return result;
+        }
+        for (int h = 0; h < horizon; h++) {
+            result[h] = regression.predict(h + 1);
+        }
+        return result;
+    }
+
+    @Override
+    public double getResidualStdDev() {
+        return residualStdDev;
+    }
+}
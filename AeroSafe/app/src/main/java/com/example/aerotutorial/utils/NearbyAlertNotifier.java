@@ -0,0 +1,101 @@
+package com.example.aerotutorial.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.aerotutorial.models.Alert;
+import com.example.aerotutorial.repository.AlertRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns admin alerts for the user's area into government notifications.
+ * Listens to the user's geohash cell and its neighbours (see
+ * AlertRepository.subscribeNearby) and remembers the newest alert shown,
+ * so a restart only delivers alerts created since then.
+ */
+public class NearbyAlertNotifier {
+    private static final String TAG = "NearbyAlertNotifier";
+
+    private static final String PREFS = "AeroSafeAlerts";
+    private static final String KEY_LAST_ALERT_AT = "last_alert_at";
+
+    // On first use, alerts up to a day old are still worth showing
+    private static final long FIRST_RUN_LOOKBACK_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static AlertRepository.NearbySubscription subscription;
+    private static String subscribedCell;
+
+    private NearbyAlertNotifier() {
+    }
+
+    /**
+     * Start listening around a point; a no-op if already listening to the same cell
+     */
+    public static synchronized void start(Context context, double latitude, double longitude) {
+        String cell = GeoHash.encode(latitude, longitude, AlertRepository.CELL_PRECISION);
+        if (subscription != null && cell.equals(subscribedCell)) {
+            return;
+        }
+        stop();
+
+        Context appContext = context.getApplicationContext();
+        subscription = new AlertRepository().subscribeNearby(latitude, longitude,
+            lastAlertAt(appContext), listener(appContext));
+        subscribedCell = cell;
+        Log.d(TAG, "Listening for alerts around cell " + cell);
+    }
+
+    public static synchronized void stop() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+            subscribedCell = null;
+        }
+    }
+
+    /**
+     * Deliver alerts created since the last one shown, without staying subscribed
+     */
+    public static void checkOnce(Context context, double latitude, double longitude) {
+        Context appContext = context.getApplicationContext();
+        new AlertRepository().fetchNearby(latitude, longitude,
+            lastAlertAt(appContext), listener(appContext));
+    }
+
+    private static AlertRepository.NearbyAlertListener listener(Context context) {
+        return new AlertRepository.NearbyAlertListener() {
+            @Override
+            public void onAlert(Alert alert) {
+                notifyAlert(context, alert);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Nearby alerts unavailable: " + error);
+            }
+        };
+    }
+
+    private static void notifyAlert(Context context, Alert alert) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        // Cells deliver independently, so alerts can arrive out of order; only move forward
+        synchronized (NearbyAlertNotifier.class) {
+            if (alert.getCreatedDate() > prefs.getLong(KEY_LAST_ALERT_AT, 0)) {
+                prefs.edit().putLong(KEY_LAST_ALERT_AT, alert.getCreatedDate()).apply();
+            }
+        }
+
+        String title = alert.getAlertType() + " (" + alert.getSeverity() + ")";
+        String message = alert.getLocation() + ": " + alert.getMessage();
+        // Duplicates and bursts are handled by the helper's throttle
+        NotificationHelper.getInstance(context).sendGovernmentAlert(title, message);
+    }
+
+    private static long lastAlertAt(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        long last = prefs.getLong(KEY_LAST_ALERT_AT, 0);
+        return last > 0 ? last : System.currentTimeMillis() - FIRST_RUN_LOOKBACK_MILLIS;
+    }
+}
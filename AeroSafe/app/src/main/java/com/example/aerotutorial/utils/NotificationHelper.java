@@ -5,6 +5,7 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Build;
 
 import androidx.core.app.NotificationCompat;
@@ -12,22 +13,78 @@ import androidx.core.app.NotificationCompat;
 import com.example.aerotutorial.R;
 import com.example.aerotutorial.UserDashboardActivity;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Posts AQI and government alerts. One shared instance (see getInstance)
+ * keeps the throttle state, so repeated readings replace a notification
+ * with a stable tag and ID instead of stacking new ones, and bursts are
+ * collected under a group summary.
+ */
 public class NotificationHelper {
 
     private static final String CHANNEL_ID = "aerosafe_channel";
     private static final String CHANNEL_NAME = "AeroSafe Notifications";
     private static final String CHANNEL_DESC = "Notifications for air quality alerts";
 
+    private static final String GOVERNMENT_CHANNEL_ID = "aerosafe_government";
+    private static final String GOVERNMENT_CHANNEL_NAME = "Government Alerts";
+    private static final String GOVERNMENT_CHANNEL_DESC = "Alerts issued by the authorities";
+
+    private static final String GROUP_KEY = "com.example.aerotutorial.ALERTS";
+
+    // Notifications are addressed by tag + ID; the tag carries the location or alert
+    private static final String AQI_TAG_PREFIX = "aqi:";
+    private static final String GOVERNMENT_TAG = "government";
+    private static final String SUMMARY_TAG = "summary";
+    private static final int AQI_ID = 1;
+    private static final int SUMMARY_ID = 0;
+
+    // Active AQI alerts per location, so hysteresis survives a process restart
+    private static final String ALERT_PREFS = "AeroSafeNotifications";
+
+    private static final int MAX_SUMMARY_LINES = 5;
+    private static final int MAX_TRACKED_LINES = 20;
+
+    private static NotificationHelper instance;
+
     private final Context context;
     private final NotificationManager notificationManager;
+    private final NotificationThrottle throttle = new NotificationThrottle();
+    private final SharedPreferences alertPrefs;
+    private final Set<String> restoredLocations = new HashSet<>();
+
+    // Recent alert lines for the group summary, oldest first
+    private final Map<String, String> summaryLines = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_TRACKED_LINES;
+        }
+    };
+    private int summarizedCount;
+    private boolean summaryPosted;
 
-    public NotificationHelper(Context context) {
-        this.context = context;
-        notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        createNotificationChannel();
+    private NotificationHelper(Context context) {
+        this.context = context.getApplicationContext();
+        notificationManager = (NotificationManager) this.context.getSystemService(Context.NOTIFICATION_SERVICE);
+        alertPrefs = this.context.getSharedPreferences(ALERT_PREFS, Context.MODE_PRIVATE);
+        createNotificationChannels();
     }
 
-    private void createNotificationChannel() {
+    public static synchronized NotificationHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotificationHelper(context);
+        }
+        return instance;
+    }
+
+    private void createNotificationChannels() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
                 CHANNEL_ID,
@@ -38,80 +95,212 @@ public class NotificationHelper {
             channel.enableLights(true);
             channel.enableVibration(true);
             notificationManager.createNotificationChannel(channel);
+
+            NotificationChannel government = new NotificationChannel(
+                GOVERNMENT_CHANNEL_ID,
+                GOVERNMENT_CHANNEL_NAME,
+                NotificationManager.IMPORTANCE_HIGH
+            );
+            government.setDescription(GOVERNMENT_CHANNEL_DESC);
+            government.enableLights(true);
+            government.enableVibration(true);
+            notificationManager.createNotificationChannel(government);
         }
     }
 
     public void sendAQIAlert(String title, String message, int aqi) {
-        Intent intent = new Intent(context, UserDashboardActivity.class);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            context,
-            0,
-            intent,
-            PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
-        );
+        sendAQIAlert(null, title, message, aqi);
+    }
 
+    /**
+     * Post or replace the AQI alert for a location, without throttling
+     */
+    public synchronized void sendAQIAlert(String location, String title, String message, int aqi) {
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
             .setSmallIcon(R.mipmap.ic_launcher)
             .setContentTitle(title)
             .setContentText(message)
             .setPriority(NotificationCompat.PRIORITY_HIGH)
-            .setContentIntent(pendingIntent)
+            .setContentIntent(createContentIntent())
             .setAutoCancel(true)
+            .setGroup(GROUP_KEY)
             .setStyle(new NotificationCompat.BigTextStyle().bigText(message));
 
         // Set color based on AQI
         int color = AQICalculator.getAQIColor(aqi);
         builder.setColor(color);
 
-        notificationManager.notify(getNotificationId(), builder.build());
+        String tag = AQI_TAG_PREFIX + locationKey(location);
+        notificationManager.notify(tag, AQI_ID, builder.build());
+        addSummaryLine(tag, title);
     }
 
-    public void sendGovernmentAlert(String title, String message) {
+    /**
+     * Post a government alert. The same title and message are shown once,
+     * and alerts over the rate limit only appear in the group summary.
+     */
+    public synchronized void sendGovernmentAlert(String title, String message) {
+        String key = title + "\n" + message;
+        NotificationThrottle.Decision decision = throttle.onGovernmentAlert(key);
+        if (decision == NotificationThrottle.Decision.SUMMARIZE) {
+            summarize(title);
+            return;
+        }
+        if (decision != NotificationThrottle.Decision.NOTIFY) {
+            return;
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, GOVERNMENT_CHANNEL_ID)
+            .setSmallIcon(R.mipmap.ic_launcher)
+            .setContentTitle(title)
+            .setContentText(message)
+            .setPriority(NotificationCompat.PRIORITY_MAX)
+            .setContentIntent(createContentIntent())
+            .setAutoCancel(true)
+            .setGroup(GROUP_KEY)
+            .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
+            .setDefaults(NotificationCompat.DEFAULT_ALL);
+
+        // Same alert, same ID: a re-send replaces rather than duplicates
+        notificationManager.notify(GOVERNMENT_TAG, key.hashCode(), builder.build());
+        addSummaryLine(GOVERNMENT_TAG + key.hashCode(), title);
+    }
+
+    public synchronized void cancelAllNotifications() {
+        notificationManager.cancelAll();
+        summaryLines.clear();
+        summarizedCount = 0;
+        summaryPosted = false;
+    }
+
+    private PendingIntent createContentIntent() {
         Intent intent = new Intent(context, UserDashboardActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
 
-        PendingIntent pendingIntent = PendingIntent.getActivity(
+        return PendingIntent.getActivity(
             context,
             0,
             intent,
             PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
         );
+    }
+
+    private synchronized void onAqiReading(String location, int aqi) {
+        String key = locationKey(location);
+        if (restoredLocations.add(key)) {
+            // Stored as "category,notifiedAt" while an alert is active
+            String saved = alertPrefs.getString(key, null);
+            if (saved != null) {
+                String[] parts = saved.split(",");
+                try {
+                    throttle.restoreAlert(key, Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+                } catch (RuntimeException e) {
+                    alertPrefs.edit().remove(key).apply();
+                }
+            }
+        }
+
+        NotificationThrottle.Decision decision = throttle.onAqi(key, aqi);
+        if (decision == NotificationThrottle.Decision.CLEAR) {
+            alertPrefs.edit().remove(key).apply();
+        } else if (decision == NotificationThrottle.Decision.NOTIFY) {
+            alertPrefs.edit()
+                .putString(key, throttle.getAlertCategory(key) + "," + throttle.getNotifiedAt(key))
+                .apply();
+        }
 
+        switch (decision) {
+            case NOTIFY:
+                sendAQIAlert(location, aqiTitle(aqi), aqiMessage(location, aqi), aqi);
+                break;
+            case SUMMARIZE:
+                summarize(aqiTitle(aqi));
+                break;
+            case CLEAR:
+                String tag = AQI_TAG_PREFIX + key;
+                notificationManager.cancel(tag, AQI_ID);
+                if (summaryLines.remove(tag) != null) {
+                    updateSummary();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Count an alert that was rate limited into the summary only
+    private void summarize(String line) {
+        summarizedCount++;
+        addSummaryLine("summarized:" + summarizedCount, line);
+    }
+
+    private void addSummaryLine(String key, String line) {
+        summaryLines.remove(key);
+        summaryLines.put(key, line);
+        updateSummary();
+    }
+
+    // A group needs a summary notification to collapse on Android 7+
+    private void updateSummary() {
+        if (summaryLines.isEmpty()) {
+            if (summaryPosted) {
+                notificationManager.cancel(SUMMARY_TAG, SUMMARY_ID);
+                summaryPosted = false;
+            }
+            return;
+        }
+        if (summaryLines.size() < 2 && !summaryPosted) {
+            return;
+        }
+
+        List<String> lines = new ArrayList<>(summaryLines.values());
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (int i = Math.max(0, lines.size() - MAX_SUMMARY_LINES); i < lines.size(); i++) {
+            style.addLine(lines.get(i));
+        }
+        if (lines.size() > MAX_SUMMARY_LINES) {
+            style.setSummaryText("+" + (lines.size() - MAX_SUMMARY_LINES) + " more");
+        }
+
+        String text = lines.size() + (lines.size() == 1 ? " air quality alert" : " air quality alerts");
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
             .setSmallIcon(R.mipmap.ic_launcher)
-            .setContentTitle(title)
-            .setContentText(message)
-            .setPriority(NotificationCompat.PRIORITY_MAX)
-            .setContentIntent(pendingIntent)
+            .setContentTitle("AeroSafe Alerts")
+            .setContentText(text)
+            .setStyle(style.setBigContentTitle(text))
+            .setContentIntent(createContentIntent())
             .setAutoCancel(true)
-            .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
-            .setDefaults(NotificationCompat.DEFAULT_ALL);
+            .setGroup(GROUP_KEY)
+            .setGroupSummary(true)
+            .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+            .setOnlyAlertOnce(true);
 
-        notificationManager.notify(getNotificationId(), builder.build());
+        notificationManager.notify(SUMMARY_TAG, SUMMARY_ID, builder.build());
+        summaryPosted = true;
     }
 
-    public void cancelAllNotifications() {
-        notificationManager.cancelAll();
+    private static String aqiTitle(int aqi) {
+        return "⚠️ High AQI Alert: " + AQICalculator.getAQICategory(aqi);
+    }
+
+    private static String aqiMessage(String location, int aqi) {
+        String where = location == null || location.trim().isEmpty() ? "" : " in " + location.trim();
+        return "Current AQI" + where + " is " + aqi + ". " + AQICalculator.getHealthAlert(aqi);
     }
 
-    private int getNotificationId() {
-        return (int) System.currentTimeMillis();
+    private static String locationKey(String location) {
+        return location == null ? "" : location.trim().toLowerCase(Locale.ROOT);
     }
 
     public static void checkAndNotify(Context context, int aqi) {
-        // Notify if AQI is unhealthy or worse
-        if (aqi >= 101) {
-            NotificationHelper helper = new NotificationHelper(context);
-            String category = AQICalculator.getAQICategory(aqi);
-            String alert = AQICalculator.getHealthAlert(aqi);
-            helper.sendAQIAlert(
-                "⚠️ High AQI Alert: " + category,
-                "Current AQI is " + aqi + ". " + alert,
-                aqi
-            );
-        }
+        checkAndNotify(context, null, aqi);
     }
-}
 
+    /**
+     * Notify if AQI is unhealthy or worse, at most once per location and category
+     * (see NotificationThrottle), and clear the alert once the air has recovered
+     */
+    public static void checkAndNotify(Context context, String location, int aqi) {
+        getInstance(context).onAqiReading(location, aqi);
+    }
+}
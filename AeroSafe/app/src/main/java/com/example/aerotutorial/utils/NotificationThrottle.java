@@ -0,0 +1,185 @@
+package com.example.aerotutorial.utils;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which alerts become notifications.
+ * AQI alerts use hysteresis per location: an alert starts at AQI 101 and
+ * only ends once AQI falls to 90, so readings around the boundary do not
+ * flap. While an alert is active, only a worse category or the repeat
+ * interval re-alerts. Each channel also has a sliding-window rate limit;
+ * alerts over the limit go to the group summary instead of their own
+ * notification. A summarized AQI alert leaves the location's state as it
+ * was, so the next reading tries again. Pure Java with an injectable clock.
+ */
+public class NotificationThrottle {
+
+    public static final int ALERT_ON_AQI = 101;
+    public static final int ALERT_OFF_AQI = 90;
+
+    // Same location and category alerts again after this long
+    public static final long AQI_REPEAT_MILLIS = TimeUnit.HOURS.toMillis(3);
+
+    public static final int AQI_MAX_PER_WINDOW = 3;
+    public static final long AQI_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final int GOVERNMENT_MAX_PER_WINDOW = 3;
+    public static final long GOVERNMENT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    // Same government alert is not shown twice within this long
+    public static final long GOVERNMENT_DEDUP_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    public enum Decision {
+        // Post or replace the alert's own notification
+        NOTIFY,
+        // Over the rate limit: count it in the summary only
+        SUMMARIZE,
+        // Air has cleared: remove the location's notification
+        CLEAR,
+        // Nothing to do
+        SKIP
+    }
+
+    private static class LocationState {
+        boolean alerting;
+        int category;
+        long notifiedAt;
+    }
+
+    private final Clock clock;
+    private final Map<String, LocationState> locations = new HashMap<>();
+    private final Map<String, Long> governmentSeen = new HashMap<>();
+    private final SlidingWindow aqiWindow = new SlidingWindow(AQI_MAX_PER_WINDOW, AQI_WINDOW_MILLIS);
+    private final SlidingWindow governmentWindow =
+        new SlidingWindow(GOVERNMENT_MAX_PER_WINDOW, GOVERNMENT_WINDOW_MILLIS);
+
+    public NotificationThrottle() {
+        this(Clock.SYSTEM);
+    }
+
+    public NotificationThrottle(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Decide what a new AQI reading for a location should do
+     *
+     * @param location Key of the place the reading is for
+     */
+    public synchronized Decision onAqi(String location, int aqi) {
+        long now = clock.currentTimeMillis();
+        LocationState state = locations.get(location);
+        if (state == null) {
+            state = new LocationState();
+            locations.put(location, state);
+        }
+
+        if (!state.alerting) {
+            if (aqi < ALERT_ON_AQI) {
+                return Decision.SKIP;
+            }
+        } else if (aqi <= ALERT_OFF_AQI) {
+            state.alerting = false;
+            state.category = 0;
+            return Decision.CLEAR;
+        } else if (aqi < ALERT_ON_AQI) {
+            // Between the thresholds: the alert stays up but is not repeated
+            return Decision.SKIP;
+        } else {
+            int category = category(aqi);
+            if (category <= state.category && now - state.notifiedAt < AQI_REPEAT_MILLIS) {
+                return Decision.SKIP;
+            }
+        }
+
+        if (!aqiWindow.tryAcquire(now)) {
+            // Only a notification that was shown counts as the alert's category and time
+            return Decision.SUMMARIZE;
+        }
+        state.alerting = true;
+        state.category = category(aqi);
+        state.notifiedAt = now;
+        return Decision.NOTIFY;
+    }
+
+    /**
+     * Resume an alert that was active before the process restarted
+     */
+    public synchronized void restoreAlert(String location, int category, long notifiedAt) {
+        LocationState state = new LocationState();
+        state.alerting = true;
+        state.category = category;
+        state.notifiedAt = notifiedAt;
+        locations.put(location, state);
+    }
+
+    /**
+     * Category of the active alert for a location, or -1 if there is none
+     */
+    public synchronized int getAlertCategory(String location) {
+        LocationState state = locations.get(location);
+        return state != null && state.alerting ? state.category : -1;
+    }
+
+    public synchronized long getNotifiedAt(String location) {
+        LocationState state = locations.get(location);
+        return state != null ? state.notifiedAt : 0;
+    }
+
+    /**
+     * Decide what a government alert should do; repeats of the same key are skipped
+     *
+     * @param key Identity of the alert, e.g. its title and message
+     */
+    public synchronized Decision onGovernmentAlert(String key) {
+        long now = clock.currentTimeMillis();
+        Long seen = governmentSeen.get(key);
+        if (seen != null && now - seen < GOVERNMENT_DEDUP_MILLIS) {
+            return Decision.SKIP;
+        }
+        if (governmentSeen.size() > 256) {
+            governmentSeen.values().removeIf(at -> now - at >= GOVERNMENT_DEDUP_MILLIS);
+        }
+        governmentSeen.put(key, now);
+        return governmentWindow.tryAcquire(now) ? Decision.NOTIFY : Decision.SUMMARIZE;
+    }
+
+    /**
+     * Category rank in AQICalculator order: 0 Good up to 5 Hazardous
+     */
+    static int category(int aqi) {
+        if (aqi <= 50) return 0;
+        else if (aqi <= 100) return 1;
+        else if (aqi <= 150) return 2;
+        else if (aqi <= 200) return 3;
+        else if (aqi <= 300) return 4;
+        else return 5;
+    }
+
+    /**
+     * At most maxEvents within any window of windowMillis
+     */
+    private static class SlidingWindow {
+        private final int maxEvents;
+        private final long windowMillis;
+        private final ArrayDeque<Long> events = new ArrayDeque<>();
+
+        SlidingWindow(int maxEvents, long windowMillis) {
+            this.maxEvents = maxEvents;
+            this.windowMillis = windowMillis;
+        }
+
+        boolean tryAcquire(long now) {
+            while (!events.isEmpty() && now - events.peekFirst() >= windowMillis) {
+                events.pollFirst();
+            }
+            if (events.size() >= maxEvents) {
+                return false;
+            }
+            events.addLast(now);
+            return true;
+        }
+    }
+}
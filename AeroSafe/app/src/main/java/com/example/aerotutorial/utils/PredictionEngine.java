@@ -4,36 +4,32 @@ import java.util.List;
 
 public class PredictionEngine {
 
+    /**
+     * Adapter for callers that keep their history in a list.
+     * Prefer keeping a SlidingRegression and calling predictNextDay(SlidingRegression).
+     */
     public static PredictionResult predictNextDay(List<Integer> series) {
         int n = series.size();
         if (n < 2) {
             return new PredictionResult(0, 0, 0, false);
         }
 
-        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
-        for (int i = 0; i < n; i++) {
-            double x = i;
-            double y = series.get(i);
-            sumX += x;
-            sumY += y;
-            sumXX += x * x;
-            sumXY += x * y;
+        SlidingRegression regression = new SlidingRegression(n);
+        for (int value : series) {
+            regression.add(value);
         }
+        return predictNextDay(regression);
+    }
 
-        double denom = n * sumXX - sumX * sumX;
-        if (Math.abs(denom) < 1e-8) {
-            double avg = 0;
-            for (int val : series) {
-                avg += val;
-            }
-            avg /= series.size();
-            return new PredictionResult(avg, 0, 0, true);
+    public static PredictionResult predictNextDay(SlidingRegression regression) {
+        if (regression.size() < 2) {
+            return new PredictionResult(0, 0, 0, false);
         }
 
-        double slope = (n * sumXY - sumX * sumY) / denom;
-        double intercept = (sumY - slope * sumX) / n;
+        double slope = regression.getSlope();
+        double intercept = regression.getIntercept();
 
-        double pred = intercept + slope * n; // next day
+        double pred = regression.predict(1); // next day
         pred = Math.max(0, Math.min(500, pred)); // clamp 0-500
 
         return new PredictionResult(pred, slope, intercept, true);
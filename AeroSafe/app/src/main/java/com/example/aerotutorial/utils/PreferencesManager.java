@@ -11,6 +11,7 @@ public class PreferencesManager {
     private static final String KEY_USER_NAME = "user_name";
     private static final String KEY_USER_EMAIL = "user_email";
     private static final String KEY_USER_LOCATION = "user_location";
+    private static final String KEY_MIGRATION_PREFIX = "migration_";
 
     private final SharedPreferences prefs;
 
@@ -58,6 +59,17 @@ public class PreferencesManager {
         return prefs.getString(KEY_USER_LOCATION, "");
     }
 
+    /**
+     * Whether this device has seen a one-time data migration complete
+     */
+    public boolean isMigrationDone(String name) {
+        return prefs.getBoolean(KEY_MIGRATION_PREFIX + name, false);
+    }
+
+    public void setMigrationDone(String name) {
+        prefs.edit().putBoolean(KEY_MIGRATION_PREFIX + name, true).apply();
+    }
+
     public void clearUserInfo() {
         prefs.edit()
                 .remove(KEY_USER_ID)
@@ -0,0 +1,166 @@
+package com.example.aerotutorial.utils;
+
+/**
+ * Least-squares line over the last {@code window} samples.
+ * Samples live in a primitive ring buffer and the regression sums are
+ * updated in O(1) per sample. x is the sample's position in the window
+ * (0 = oldest), matching PredictionEngine.predictNextDay.
+ */
+public class SlidingRegression {
+
+    // Rebuild the sums from the buffer now and then to shed rounding drift
+    private static final int RECOMPUTE_INTERVAL = 1024;
+
+    private final double[] buffer;
+    private int head; // index of the oldest sample
+    private int count;
+    private int updatesSinceRecompute;
+
+    private double sumY;
+    private double sumYY;
+    private double sumXY;
+
+    public SlidingRegression(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must hold at least 2 samples");
+        }
+        this.buffer = new double[window];
+    }
+
+    /**
+     * Add a sample, dropping the oldest one once the window is full
+     */
+    public void add(double y) {
+        if (count == buffer.length) {
+            double oldest = buffer[head];
+            head = (head + 1) % buffer.length;
+            count--;
+
+            // Drop the sample at x = 0, then shift the rest down by one
+            sumY -= oldest;
+            sumYY -= oldest * oldest;
+            sumXY -= sumY;
+        }
+
+        int x = count;
+        buffer[(head + count) % buffer.length] = y;
+        count++;
+        sumY += y;
+        sumYY += y * y;
+        sumXY += x * y;
+
+        if (++updatesSinceRecompute >= RECOMPUTE_INTERVAL) {
+            recompute();
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        sumY = 0;
+        sumYY = 0;
+        sumXY = 0;
+        updatesSinceRecompute = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getWindow() {
+        return buffer.length;
+    }
+
+    /**
+     * Sample at position i, where 0 is the oldest in the window
+     */
+    public double get(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + count);
+        }
+        return buffer[(head + i) % buffer.length];
+    }
+
+    /**
+     * Copy of the window, oldest first
+     */
+    public double[] toArray() {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer[(head + i) % buffer.length];
+        }
+        return values;
+    }
+
+    public double getSlope() {
+        double denom = denominator();
+        if (count < 2 || Math.abs(denom) < 1e-8) {
+            return 0;
+        }
+        return (count * sumXY - sumX() * sumY) / denom;
+    }
+
+    public double getIntercept() {
+        if (count == 0) {
+            return 0;
+        }
+        double denom = denominator();
+        if (count < 2 || Math.abs(denom) < 1e-8) {
+            return sumY / count;
+        }
+        return (sumY - getSlope() * sumX()) / count;
+    }
+
+    /**
+     * Value of the fitted line {@code stepsAhead} samples after the newest one
+     */
+    public double predict(int stepsAhead) {
+        return getIntercept() + getSlope() * (count - 1 + stepsAhead);
+    }
+
+    /**
+     * Coefficient of determination of the fit, 1 for a flat or perfect series
+     */
+    public double getRSquared() {
+        if (count < 2) {
+            return 0;
+        }
+        double sxx = denominator();
+        double syy = count * sumYY - sumY * sumY;
+        if (syy <= 1e-8) {
+            return 1;
+        }
+        if (Math.abs(sxx) < 1e-8) {
+            return 0;
+        }
+        double sxy = count * sumXY - sumX() * sumY;
+        return Math.min(1, (sxy * sxy) / (sxx * syy));
+    }
+
+    // sum of x = 0..n-1 and of x² in closed form
+    private double sumX() {
+        return count * (count - 1) / 2.0;
+    }
+
+    private double sumXX() {
+        return (count - 1) * count * (2.0 * count - 1) / 6.0;
+    }
+
+    private double denominator() {
+        double sumX = sumX();
+        return count * sumXX() - sumX * sumX;
+    }
+
+    private void recompute() {
+        sumY = 0;
+        sumYY = 0;
+        sumXY = 0;
+        for (int i = 0; i < count; i++) {
+            double y = buffer[(head + i) % buffer.length];
+            sumY += y;
+            sumYY += y * y;
+            sumXY += i * y;
+        }
+        updatesSinceRecompute = 0;
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.aerotutorial.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory index of points for nearest-neighbour and bounding-box queries.
+ * Points are bucketed in a uniform latitude/longitude grid, so inserts,
+ * moves and removals are O(1) and a query only visits the cells it overlaps.
+ * kNN searches rings of cells outward from the query point and stops once
+ * no unvisited cell can hold anything closer than the k-th match.
+ * Boxes must not cross the antimeridian.
+ * With a maximum size, the point put longest ago is evicted to make room.
+ */
+public class SpatialIndex<T> {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * Math.PI / 180;
+
+    // 0.01 degrees is about 1.1 km north-south
+    public static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    private final double cellDegrees;
+    private final int maxSize;
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    // Insertion order is put order, so the first entry is the eviction candidate
+    private final Map<String, Entry<T>> byId = new LinkedHashMap<>();
+
+    // Grid extent that has ever held a point; never shrinks, so it stays a safe bound
+    private int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+    private int minColumn = Integer.MAX_VALUE, maxColumn = Integer.MIN_VALUE;
+
+    private static class Entry<T> {
+        final String id;
+        final double latitude;
+        final double longitude;
+        final T item;
+        final long cell;
+        int slot;
+
+        Entry(String id, double latitude, double longitude, T item, long cell) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.item = item;
+            this.cell = cell;
+        }
+    }
+
+    /**
+     * A query match and its distance from the query point
+     */
+    public static class Neighbor<T> {
+        private final T item;
+        private final double distanceMeters;
+
+        Neighbor(T item, double distanceMeters) {
+            this.item = item;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_DEGREES, Integer.MAX_VALUE);
+    }
+
+    public SpatialIndex(int maxSize) {
+        this(DEFAULT_CELL_DEGREES, maxSize);
+    }
+
+    public SpatialIndex(double cellDegrees, int maxSize) {
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Add a point, or move and replace the one already stored under id
+     */
+    public synchronized void put(String id, double latitude, double longitude, T item) {
+        remove(id);
+
+        int row = row(latitude);
+        int column = column(longitude);
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minColumn = Math.min(minColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+
+        long cell = cellKey(row, column);
+        Entry<T> entry = new Entry<>(id, latitude, longitude, item, cell);
+        List<Entry<T>> bucket = cells.get(cell);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            cells.put(cell, bucket);
+        }
+        entry.slot = bucket.size();
+        bucket.add(entry);
+        byId.put(id, entry);
+
+        if (byId.size() > maxSize) {
+            remove(byId.keySet().iterator().next());
+        }
+    }
+
+    public synchronized void remove(String id) {
+        Entry<T> entry = byId.remove(id);
+        if (entry == null) {
+            return;
+        }
+
+        // Swap the last entry into the freed slot
+        List<Entry<T>> bucket = cells.get(entry.cell);
+        Entry<T> last = bucket.remove(bucket.size() - 1);
+        if (last != entry) {
+            last.slot = entry.slot;
+            bucket.set(entry.slot, last);
+        }
+        if (bucket.isEmpty()) {
+            cells.remove(entry.cell);
+        }
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+        byId.clear();
+        minRow = minColumn = Integer.MAX_VALUE;
+        maxRow = maxColumn = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Items inside a bounding box, in no particular order
+     */
+    public synchronized List<T> within(double minLat, double minLon, double maxLat, double maxLon) {
+        List<T> result = new ArrayList<>();
+        int fromRow = row(minLat), toRow = row(maxLat);
+        int fromColumn = column(minLon), toColumn = column(maxLon);
+
+        long spanned = (long) (toRow - fromRow + 1) * (toColumn - fromColumn + 1);
+        if (spanned > cells.size()) {
+            // Huge box over a sparse index: walking the occupied cells is cheaper
+            for (List<Entry<T>> bucket : cells.values()) {
+                collect(bucket, minLat, minLon, maxLat, maxLon, result);
+            }
+            return result;
+        }
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                List<Entry<T>> bucket = cells.get(cellKey(row, column));
+                if (bucket != null) {
+                    collect(bucket, minLat, minLon, maxLat, maxLon, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Items within radiusMeters of a point, nearest first
+     */
+    public synchronized List<Neighbor<T>> withinRadius(double latitude, double longitude, double radiusMeters) {
+        double latDelta = radiusMeters / METERS_PER_DEGREE;
+        double lonDelta = latDelta / Math.max(Math.cos(Math.toRadians(
+            Math.min(90, Math.abs(latitude) + latDelta))), 1e-6);
+
+        List<Neighbor<T>> result = new ArrayList<>();
+        int fromRow = row(latitude - latDelta), toRow = row(latitude + latDelta);
+        int fromColumn = column(longitude - lonDelta), toColumn = column(longitude + lonDelta);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                List<Entry<T>> bucket = cells.get(cellKey(row, column));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry<T> entry : bucket) {
+                    double distance = distanceMeters(latitude, longitude, entry.latitude, entry.longitude);
+                    if (distance <= radiusMeters) {
+                        result.add(new Neighbor<>(entry.item, distance));
+                    }
+                }
+            }
+        }
+        Collections.sort(result, (a, b) -> Double.compare(a.distanceMeters, b.distanceMeters));
+        return result;
+    }
+
+    /**
+     * The k items nearest to a point, nearest first
+     */
+    public synchronized List<Neighbor<T>> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || byId.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Max-heap on distance holding the best k so far
+        PriorityQueue<Neighbor<T>> best = new PriorityQueue<>(k + 1,
+            (a, b) -> Double.compare(b.distanceMeters, a.distanceMeters));
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        int maxRing = (int) Math.ceil(360 / cellDegrees);
+        int visited = 0;
+
+        for (int ring = 0; ring <= maxRing && visited < byId.size(); ring++) {
+            // Stop when every cell left is farther than the current k-th match
+            if (best.size() == k && best.peek().distanceMeters <= ringDistance(latitude, longitude, ring)) {
+                break;
+            }
+
+            // Only the part of the ring inside the occupied extent can hold points
+            int fromRow = Math.max(centerRow - ring, minRow);
+            int toRow = Math.min(centerRow + ring, maxRow);
+            for (int row = fromRow; row <= toRow; row++) {
+                if (row == centerRow - ring || row == centerRow + ring) {
+                    int fromColumn = Math.max(centerColumn - ring, minColumn);
+                    int toColumn = Math.min(centerColumn + ring, maxColumn);
+                    for (int column = fromColumn; column <= toColumn; column++) {
+                        visited += visit(row, column, latitude, longitude, k, best);
+                    }
+                } else {
+                    // Side rows contribute only their two end cells
+                    if (centerColumn - ring >= minColumn) {
+                        visited += visit(row, centerColumn - ring, latitude, longitude, k, best);
+                    }
+                    if (centerColumn + ring <= maxColumn) {
+                        visited += visit(row, centerColumn + ring, latitude, longitude, k, best);
+                    }
+                }
+            }
+        }
+
+        List<Neighbor<T>> result = new ArrayList<>(best);
+        Collections.sort(result, (a, b) -> Double.compare(a.distanceMeters, b.distanceMeters));
+        return result;
+    }
+
+    // Offer one cell's points to the k-best heap; returns how many it held
+    private int visit(int row, int column, double latitude, double longitude, int k,
+                      PriorityQueue<Neighbor<T>> best) {
+        List<Entry<T>> bucket = cells.get(cellKey(row, column));
+        if (bucket == null) {
+            return 0;
+        }
+        for (Entry<T> entry : bucket) {
+            double distance = distanceMeters(latitude, longitude, entry.latitude, entry.longitude);
+            if (best.size() < k) {
+                best.add(new Neighbor<>(entry.item, distance));
+            } else if (distance < best.peek().distanceMeters) {
+                best.poll();
+                best.add(new Neighbor<>(entry.item, distance));
+            }
+        }
+        return bucket.size();
+    }
+
+    /**
+     * Great-circle distance between two coordinates
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+            * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Lower bound on the distance from the point to any cell in ring or beyond
+    private double ringDistance(double latitude, double longitude, int ring) {
+        if (ring == 0) {
+            return 0;
+        }
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        double south = (centerRow - ring + 1) * cellDegrees;
+        double north = (centerRow + ring) * cellDegrees;
+        double west = (centerColumn - ring + 1) * cellDegrees;
+        double east = (centerColumn + ring) * cellDegrees;
+
+        double latGap = Math.min(latitude - south, north - latitude) * METERS_PER_DEGREE;
+        // Longitude degrees are shortest at the highest latitude the inner square reaches
+        double widest = Math.min(90, Math.max(Math.abs(south), Math.abs(north)));
+        double lonGap = Math.min(longitude - west, east - longitude)
+            * METERS_PER_DEGREE * Math.cos(Math.toRadians(widest));
+        return Math.max(0, Math.min(latGap, lonGap));
+    }
+
+    private void collect(List<Entry<T>> bucket, double minLat, double minLon,
+                         double maxLat, double maxLon, List<T> result) {
+        for (Entry<T> entry : bucket) {
+            if (entry.latitude >= minLat && entry.latitude <= maxLat
+                    && entry.longitude >= minLon && entry.longitude <= maxLon) {
+                result.add(entry.item);
+            }
+        }
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
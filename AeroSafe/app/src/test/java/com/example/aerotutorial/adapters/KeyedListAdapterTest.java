@@ -0,0 +1,44 @@
+package com.example.aerotutorial.adapters;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Row ids must stay fixed per Firebase key and differ between keys,
+ * or RecyclerView animates the wrong rows.
+ */
+public class KeyedListAdapterTest {
+
+    @Test
+    public void stableId_isFixedPerKey() {
+        assertEquals(KeyedListAdapter.stableId("-NxA1b2C3d4E5f6G7h8"),
+            KeyedListAdapter.stableId("-NxA1b2C3d4E5f6G7h8"));
+    }
+
+    @Test
+    public void stableId_nullKeyHasNoId() {
+        assertEquals(-1L, KeyedListAdapter.stableId(null));
+    }
+
+    @Test
+    public void stableId_keysThatCollideInHashCodeGetDifferentIds() {
+        // "Aa" and "BB" share String.hashCode
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(KeyedListAdapter.stableId("Aa"), KeyedListAdapter.stableId("BB"));
+    }
+
+    @Test
+    public void stableId_pushKeysDoNotCollide() {
+        // Push ids share a timestamp prefix and differ in the random suffix
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(KeyedListAdapter.stableId(String.format("-NxA1b2C%012d", i)));
+        }
+        assertEquals(100_000, ids.size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.aerotutorial.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheControlInterceptorTest {
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir.newFolder("http"), 1024 * 1024))
+                .addNetworkInterceptor(new RetrofitClient.CacheControlInterceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void airPollution_cachedUntilNextHour() {
+        // 10:15:00 UTC -> 45 minutes to the next update
+        long now = TimeUnit.HOURS.toMillis(10) + TimeUnit.MINUTES.toMillis(15);
+        assertEquals(TimeUnit.MINUTES.toSeconds(45),
+                RetrofitClient.CacheControlInterceptor.maxAgeFor("/data/2.5/air_pollution", now));
+    }
+
+    @Test
+    public void airPollution_neverLessThanAMinute() {
+        long now = TimeUnit.HOURS.toMillis(11) - TimeUnit.SECONDS.toMillis(5);
+        assertEquals(60, RetrofitClient.CacheControlInterceptor.maxAgeFor("/data/2.5/air_pollution", now));
+    }
+
+    @Test
+    public void history_cachedOneDay() {
+        assertEquals(TimeUnit.DAYS.toSeconds(1),
+                RetrofitClient.CacheControlInterceptor.maxAgeFor("/data/2.5/air_pollution/history", 0));
+    }
+
+    @Test
+    public void geocoding_cachedSevenDays() {
+        assertEquals(TimeUnit.DAYS.toSeconds(7),
+                RetrofitClient.CacheControlInterceptor.maxAgeFor("/geo/1.0/direct", 0));
+        assertEquals(TimeUnit.DAYS.toSeconds(7),
+                RetrofitClient.CacheControlInterceptor.maxAgeFor("/geo/1.0/reverse", 0));
+    }
+
+    @Test
+    public void otherPaths_notRewritten() {
+        assertEquals(0, RetrofitClient.CacheControlInterceptor.maxAgeFor("/data/2.5/weather", 0));
+    }
+
+    @Test
+    public void repeatAirPollutionCall_servedFromCache() throws IOException {
+        server.enqueue(new MockResponse().setBody("{\"list\":[]}").setHeader("Cache-Control", "no-cache"));
+
+        String first = get("/data/2.5/air_pollution?lat=1&lon=2");
+        Response second = call("/data/2.5/air_pollution?lat=1&lon=2");
+
+        assertEquals(1, server.getRequestCount());
+        assertNull(second.networkResponse());
+        assertNotNull(second.cacheResponse());
+        assertEquals(first, second.body().string());
+        String cacheControl = second.header("Cache-Control");
+        assertNotNull(cacheControl);
+        long maxAge = Long.parseLong(cacheControl.substring(cacheControl.indexOf("max-age=") + 8));
+        assertTrue(maxAge >= 60 && maxAge <= TimeUnit.HOURS.toSeconds(1));
+        second.close();
+    }
+
+    @Test
+    public void repeatGeocodingCall_servedFromCache() throws IOException {
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        get("/geo/1.0/direct?q=Dhaka&limit=1");
+        Response second = call("/geo/1.0/direct?q=Dhaka&limit=1");
+
+        assertEquals(1, server.getRequestCount());
+        assertNotNull(second.cacheResponse());
+        assertEquals("public, max-age=" + TimeUnit.DAYS.toSeconds(7), second.header("Cache-Control"));
+        second.close();
+    }
+
+    @Test
+    public void differentQuery_goesToNetwork() throws IOException {
+        server.enqueue(new MockResponse().setBody("{}"));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        get("/data/2.5/air_pollution/history?lat=1&lon=2&start=0&end=3600");
+        get("/data/2.5/air_pollution/history?lat=1&lon=2&start=0&end=7200");
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void errorResponse_notCached() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("error"));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        get("/data/2.5/air_pollution?lat=1&lon=2");
+        Response second = call("/data/2.5/air_pollution?lat=1&lon=2");
+
+        assertEquals(2, server.getRequestCount());
+        assertNotNull(second.networkResponse());
+        second.close();
+    }
+
+    private Response call(String path) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        return client.newCall(request).execute();
+    }
+
+    private String get(String path) throws IOException {
+        try (Response response = call(path)) {
+            return response.body().string();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.aerotutorial.repository;
+
+import com.example.aerotutorial.api.OpenWeatherApi;
+import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.utils.AqiTileCache;
+import com.example.aerotutorial.utils.GeoHash;
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * fetchAQIBatch against a stub OpenWeather server
+ */
+public class AQIRepositoryBatchTest {
+
+    private static final String GOOD_BODY = "{\"list\":[{\"dt\":1700000000,\"main\":{\"aqi\":2},"
+            + "\"components\":{\"co\":200,\"no2\":10,\"o3\":30,\"so2\":5,\"pm2_5\":12,\"pm10\":20}}]}";
+
+    private MockWebServer server;
+    private AqiTileCache tileCache;
+    private AQIRepository repository;
+
+    // Latitudes that get an error or a malformed body instead of GOOD_BODY
+    private final List<String> failingLatitudes = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> malformedLatitudes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long responseDelayMillis;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int now = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(now, Math::max);
+                try {
+                    if (responseDelayMillis > 0) {
+                        Thread.sleep(responseDelayMillis);
+                    }
+                    String lat = request.getRequestUrl().queryParameter("lat");
+                    if (failingLatitudes.contains(lat)) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                    if (malformedLatitudes.contains(lat)) {
+                        // Parses, but has no components
+                        return new MockResponse().setBody("{\"list\":[{\"dt\":1700000000}]}");
+                    }
+                    return new MockResponse().setBody(GOOD_BODY);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+
+        OpenWeatherApi api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(OpenWeatherApi.class);
+        tileCache = new AqiTileCache(GeoHash.DEFAULT_PRECISION, AqiTileCache.DEFAULT_MAX_ENTRIES, null);
+        repository = new AQIRepository(tileCache, api, Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void allPointsSucceed() throws InterruptedException {
+        RecordingCallback callback = run(points(3));
+
+        assertEquals(3, callback.succeeded);
+        assertEquals(0, callback.failed);
+        assertEquals(3, callback.results.size());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void failedPoint_reportedAndBatchCompletes() throws InterruptedException {
+        List<LatLng> points = points(3);
+        failingLatitudes.add(String.valueOf(points.get(1).latitude));
+
+        RecordingCallback callback = run(points);
+
+        assertEquals(2, callback.succeeded);
+        assertEquals(1, callback.failed);
+        assertEquals(Collections.singletonList(1), callback.failures);
+    }
+
+    @Test
+    public void runtimeExceptionInParsing_reportedAsPointFailure() throws InterruptedException {
+        List<LatLng> points = points(2);
+        malformedLatitudes.add(String.valueOf(points.get(0).latitude));
+
+        RecordingCallback callback = run(points);
+
+        assertEquals(1, callback.succeeded);
+        assertEquals(1, callback.failed);
+        assertEquals(Collections.singletonList(0), callback.failures);
+        assertNotNull(callback.errors.get(0));
+    }
+
+    @Test
+    public void cachedPoints_doNotHitNetwork() throws InterruptedException {
+        List<LatLng> points = points(2);
+        LatLng cached = points.get(0);
+        tileCache.put(cached.latitude, cached.longitude,
+                new AirQualityData("Cached", cached.latitude, cached.longitude, 42, 0, 0, 0, 0, 0, 0));
+
+        RecordingCallback callback = run(points);
+
+        assertEquals(2, callback.succeeded);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void concurrencyIsBoundedPerBatch() throws InterruptedException {
+        responseDelayMillis = 100;
+        repository.setBatchConcurrency(2);
+
+        RecordingCallback callback = run(points(4));
+
+        assertEquals(4, callback.succeeded);
+        assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void emptyBatch_completesImmediately() throws InterruptedException {
+        RecordingCallback callback = run(Collections.emptyList());
+
+        assertEquals(0, callback.succeeded);
+        assertEquals(0, callback.failed);
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private RecordingCallback run(List<LatLng> points) throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback();
+        repository.fetchAQIBatch(points, callback);
+        // Generous: the shared rate limiter may hold later requests back
+        assertTrue("batch did not complete", callback.done.await(30, TimeUnit.SECONDS));
+        return callback;
+    }
+
+    // Points a degree apart so each falls in its own tile
+    private static List<LatLng> points(int count) {
+        LatLng[] points = new LatLng[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = new LatLng(10 + i, 20 + i);
+        }
+        return Arrays.asList(points);
+    }
+
+    private static class RecordingCallback implements AQIRepository.BatchCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<AirQualityData> results = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> failures = Collections.synchronizedList(new ArrayList<>());
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        int succeeded = -1;
+        int failed = -1;
+
+        @Override
+        public void onPointResult(int index, LatLng point, AirQualityData data) {
+            results.add(data);
+        }
+
+        @Override
+        public void onPointFailure(int index, LatLng point, String error) {
+            failures.add(index);
+            errors.add(error);
+        }
+
+        @Override
+        public void onComplete(int succeeded, int failed) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            done.countDown();
+        }
+    }
+}
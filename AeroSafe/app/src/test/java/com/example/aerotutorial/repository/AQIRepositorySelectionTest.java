@@ -0,0 +1,123 @@
+package com.example.aerotutorial.repository;
+
+import com.example.aerotutorial.api.OpenWeatherApi;
+import com.example.aerotutorial.models.AirQualityData;
+import com.example.aerotutorial.utils.AqiTileCache;
+import com.example.aerotutorial.utils.GeoHash;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * fetchAQIForSelection against a stub OpenWeather server that holds each
+ * response until the test releases it
+ */
+public class AQIRepositorySelectionTest {
+
+    private static final String GOOD_BODY = "{\"list\":[{\"dt\":1700000000,\"main\":{\"aqi\":2},"
+            + "\"components\":{\"co\":200,\"no2\":10,\"o3\":30,\"so2\":5,\"pm2_5\":12,\"pm10\":20}}]}";
+
+    private static final double DHAKA_LAT = 23.8103;
+    private static final double DHAKA_LON = 90.4125;
+    private static final double SYLHET_LAT = 24.8949;
+    private static final double SYLHET_LON = 91.8687;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MockWebServer server;
+    private AQIRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setBody(GOOD_BODY);
+            }
+        });
+        server.start();
+
+        OpenWeatherApi api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(OpenWeatherApi.class);
+        AqiTileCache tileCache = new AqiTileCache(GeoHash.DEFAULT_PRECISION, AqiTileCache.DEFAULT_MAX_ENTRIES, null);
+        repository = new AQIRepository(tileCache, api, Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void sameTileWhileLoading_reusesTheCallForTheNewCallback() throws InterruptedException {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        repository.fetchAQIForSelection(DHAKA_LAT, DHAKA_LON, first);
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        repository.fetchAQIForSelection(DHAKA_LAT, DHAKA_LON, second);
+        release.countDown();
+
+        assertTrue(second.done.await(5, TimeUnit.SECONDS));
+        assertNotNull(second.error, second.data);
+        assertEquals(1, server.getRequestCount());
+        // Only the newest caller hears about it
+        assertEquals(1, first.done.getCount());
+    }
+
+    @Test
+    public void otherTile_supersedesTheEarlierSelection() throws InterruptedException {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        repository.fetchAQIForSelection(DHAKA_LAT, DHAKA_LON, first);
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        repository.fetchAQIForSelection(SYLHET_LAT, SYLHET_LON, second);
+        release.countDown();
+
+        assertTrue(second.done.await(5, TimeUnit.SECONDS));
+        assertNotNull(second.error, second.data);
+        assertEquals(SYLHET_LAT, second.data.getLatitude(), 0);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, first.done.getCount());
+    }
+
+    private static class RecordingCallback implements AQIRepository.AQICallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile AirQualityData data;
+        volatile String error;
+
+        @Override
+        public void onSuccess(AirQualityData data) {
+            this.data = data;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(String error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+}
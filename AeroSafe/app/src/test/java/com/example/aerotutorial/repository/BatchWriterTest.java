@@ -0,0 +1,252 @@
+package com.example.aerotutorial.repository;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BatchWriter against an in-process fake of the database root that, like
+ * Realtime Database, applies a multi-path update entirely or not at all.
+ */
+public class BatchWriterTest {
+
+    private FakeDatabase database;
+
+    @Before
+    public void setUp() {
+        database = new FakeDatabase();
+    }
+
+    @Test
+    public void commit_sendsEveryPathInOneUpdate() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", "Resolved");
+        fields.put("updatedAt", 2000L);
+
+        Task<Void> task = new BatchWriter(database)
+            .set("reports/r1", "report")
+            .update("issues/i1", fields)
+            .remove("alerts/a1")
+            .increment("stats/reports/total", 1)
+            .commit();
+
+        assertTrue(task.isSuccessful());
+        assertEquals(1, database.updateCalls);
+        assertEquals(5, database.lastUpdate.size());
+        assertTrue(database.lastUpdate.containsKey("issues/i1/status"));
+        assertTrue(database.lastUpdate.containsKey("issues/i1/updatedAt"));
+        assertTrue(database.lastUpdate.containsKey("alerts/a1"));
+        assertNull(database.lastUpdate.get("alerts/a1"));
+    }
+
+    @Test
+    public void commit_appliesValuesAtTheirPaths() {
+        database.put("alerts/a1", "old alert");
+        database.put("issues/i1/title", "Smoke");
+        database.put("issues/i1/status", "Open");
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", "Resolved");
+        new BatchWriter(database)
+            .set("reports/r1", "report")
+            .update("issues/i1", fields)
+            .remove("alerts/a1")
+            .commit();
+
+        assertEquals("report", database.get("reports/r1"));
+        assertEquals("Resolved", database.get("issues/i1/status"));
+        // update leaves sibling fields alone
+        assertEquals("Smoke", database.get("issues/i1/title"));
+        assertNull(database.get("alerts/a1"));
+    }
+
+    @Test
+    public void increments_summedPerPathAndZeroDropped() {
+        database.put("stats/reports/status/Open", 4L);
+
+        BatchWriter batch = new BatchWriter(database)
+            .increment("stats/reports/status/Open", -1)
+            .increment("stats/reports/status/Resolved", 1)
+            .increment("stats/reports/status/Open", -1)
+            .increment("stats/users/admin", 1)
+            .increment("stats/users/admin", -1);
+
+        assertEquals(2, batch.buildUpdates().size());
+        batch.commit();
+
+        assertEquals(2L, database.get("stats/reports/status/Open"));
+        assertEquals(1L, database.get("stats/reports/status/Resolved"));
+        assertNull(database.get("stats/users/admin"));
+    }
+
+    @Test
+    public void emptyBatch_writesNothing() {
+        BatchWriter batch = new BatchWriter(database).increment("stats/reports/total", 0);
+
+        Task<Void> task = batch.commit();
+
+        assertTrue(task.isSuccessful());
+        assertEquals(0, database.updateCalls);
+    }
+
+    @Test
+    public void rejectedUpdate_leavesEveryPathUnchanged() {
+        database.put("reports/r1", "before");
+        database.put("stats/reports/total", 7L);
+        database.rejectPrefix = "stats/";
+
+        Task<Void> task = new BatchWriter(database)
+            .set("reports/r1", "after")
+            .set("reports/r2", "new")
+            .increment("stats/reports/total", 1)
+            .commit();
+
+        assertFalse(task.isSuccessful());
+        assertEquals(1, database.updateCalls);
+        assertEquals("before", database.get("reports/r1"));
+        assertNull(database.get("reports/r2"));
+        assertEquals(7L, database.get("stats/reports/total"));
+    }
+
+    @Test
+    public void overlappingPaths_failWithoutWriting() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", "Resolved");
+
+        Task<Void> task = new BatchWriter(database)
+            .set("issues/i1", "whole issue")
+            .update("issues/i1", fields)
+            .commit();
+
+        assertFalse(task.isSuccessful());
+        assertTrue(task.getException() instanceof IllegalStateException);
+        assertEquals(0, database.updateCalls);
+    }
+
+    @Test
+    public void siblingWithCommonPrefix_isNotOverlap() {
+        Task<Void> task = new BatchWriter(database)
+            .set("issues/i1", "one")
+            .set("issues/i10", "ten")
+            .set("issues/i1-b", "other")
+            .commit();
+
+        assertTrue(task.isSuccessful());
+        assertEquals(3, database.lastUpdate.size());
+    }
+
+    @Test
+    public void setAndIncrementSamePath_failWithoutWriting() {
+        Task<Void> task = new BatchWriter(database)
+            .set("stats/reports/total", 3L)
+            .increment("stats/reports/total", 1)
+            .commit();
+
+        assertFalse(task.isSuccessful());
+        assertEquals(0, database.updateCalls);
+    }
+
+    @Test
+    public void invalidKeys_rejected() {
+        String[] invalid = {"", "reports/", "/reports", "reports//r1", "users/a.b", "users/a$b",
+            "users/a#b", "users/[0]"};
+        for (String path : invalid) {
+            try {
+                new BatchWriter(database).set(path, "value");
+                fail("accepted " + path);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+        try {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("bad.field", 1);
+            new BatchWriter(database).update("users/u1", fields);
+            fail("accepted field with a dot");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertEquals(0, database.updateCalls);
+    }
+
+    @Test
+    public void newKey_doesNotWrite() {
+        BatchWriter batch = new BatchWriter(database);
+
+        String first = batch.newKey("predictions");
+        String second = batch.newKey("predictions");
+
+        assertFalse(first.equals(second));
+        assertTrue(batch.isEmpty());
+        assertEquals(0, database.updateCalls);
+    }
+
+    /**
+     * Flat path -> value store standing in for the database root
+     */
+    private static class FakeDatabase implements BatchWriter.Target {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        Map<String, Object> lastUpdate;
+        int updateCalls;
+        int keys;
+        // Any update touching a path under this prefix is refused, as security rules would
+        String rejectPrefix;
+
+        @Override
+        public String newKey(String collection) {
+            return "-key" + (++keys);
+        }
+
+        @Override
+        public Task<Void> updateChildren(Map<String, Object> updates) {
+            updateCalls++;
+            lastUpdate = new HashMap<>(updates);
+            for (String path : updates.keySet()) {
+                if (rejectPrefix != null && path.startsWith(rejectPrefix)) {
+                    return Tasks.forException(new IllegalStateException("Permission denied: " + path));
+                }
+            }
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                apply(update.getKey(), update.getValue());
+            }
+            return Tasks.forResult(null);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void apply(String path, Object value) {
+            if (value == null) {
+                values.keySet().removeIf(key -> key.equals(path) || key.startsWith(path + "/"));
+                return;
+            }
+            if (value instanceof Map && ((Map<String, Object>) value).containsKey(".sv")) {
+                Map<String, Object> op = (Map<String, Object>) ((Map<String, Object>) value).get(".sv");
+                Object current = values.get(path);
+                long base = current instanceof Long ? (Long) current : 0;
+                values.put(path, base + ((Number) op.get("increment")).longValue());
+                return;
+            }
+            values.keySet().removeIf(key -> key.startsWith(path + "/"));
+            values.put(path, value);
+        }
+
+        void put(String path, Object value) {
+            values.put(path, value);
+        }
+
+        Object get(String path) {
+            return values.get(path);
+        }
+    }
+}
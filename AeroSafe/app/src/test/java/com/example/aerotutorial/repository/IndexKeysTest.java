@@ -0,0 +1,54 @@
+package com.example.aerotutorial.repository;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * An owner's [lowerBound, upperBound] range holds exactly that owner's keys,
+ * in timestamp order.
+ */
+public class IndexKeysTest {
+
+    private static final long TIMESTAMP = 1_718_000_000_000L;
+
+    @Test
+    public void compositeKey_sortsByTimestampForOneOwner() {
+        assertTrue(IndexKeys.compositeKey("Zone", 9).compareTo(IndexKeys.compositeKey("Zone", 10)) < 0);
+        assertTrue(IndexKeys.compositeKey("Zone", TIMESTAMP)
+            .compareTo(IndexKeys.compositeKey("Zone", TIMESTAMP + 1)) < 0);
+    }
+
+    @Test
+    public void range_holdsEveryKeyOfTheOwner() {
+        for (long timestamp : new long[] {0, 1, TIMESTAMP, 9_999_999_999_999L}) {
+            assertTrue(inRange("Zone", IndexKeys.compositeKey("Zone", timestamp)));
+        }
+    }
+
+    @Test
+    public void range_excludesOwnersThatExtendTheName() {
+        String[] others = {"Zone_1", "Zone_0", "Zone_", "Zone_9999999999999", "Zone 1", "Zon", "Zones", ""};
+        for (String other : others) {
+            for (long timestamp : new long[] {0, TIMESTAMP, 9_999_999_999_999L}) {
+                String key = IndexKeys.compositeKey(other, timestamp);
+                assertFalse(other + " inside Zone's range", inRange("Zone", key));
+                assertFalse("Zone inside " + other + "'s range",
+                    inRange(other, IndexKeys.compositeKey("Zone", timestamp)));
+            }
+        }
+    }
+
+    @Test
+    public void range_excludesOwnersWithLongerLengths() {
+        // Lengths 1 and 10 both start with the digit 1
+        assertFalse(inRange("a", IndexKeys.compositeKey("abcdefghij", TIMESTAMP)));
+        assertFalse(inRange("abcdefghij", IndexKeys.compositeKey("a", TIMESTAMP)));
+    }
+
+    private static boolean inRange(String owner, String key) {
+        return key.compareTo(IndexKeys.lowerBound(owner)) >= 0
+            && key.compareTo(IndexKeys.upperBound(owner)) <= 0;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.aerotutorial.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The bounded window of older pages behind LiveCollection: reading down and
+ * up, eviction at the cap, and rows spilled out of the live page.
+ * Cursors are the row keys themselves; keys are "k0000".."k9999", oldest lowest.
+ */
+public class OlderPagesTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_PAGES = 3;
+
+    private OlderPages<String, String> pages;
+
+    @Before
+    public void setUp() {
+        pages = new OlderPages<>(PAGE_SIZE, MAX_PAGES);
+    }
+
+    @Test
+    public void addOlder_keepsPagesNewestFirst() {
+        pages.addOlder(page(90, 99), false);
+        pages.addOlder(page(80, 89), false);
+
+        assertEquals(range(99, 80), pages.items());
+        assertEquals("k0080", pages.oldestCursor());
+        assertEquals("k0099", pages.newestCursor());
+        assertTrue(pages.contains("k0085"));
+        assertFalse(pages.hasGapAbove());
+    }
+
+    @Test
+    public void addOlder_pastCapEvictsThePageNextToTheLiveOne() {
+        for (int top = 99; top >= 50; top -= 10) {
+            pages.addOlder(page(top - 9, top), false);
+        }
+
+        assertEquals(MAX_PAGES, pages.pageCount());
+        assertEquals(range(79, 50), pages.items());
+        assertEquals(MAX_PAGES * PAGE_SIZE, pages.rowCount());
+        assertFalse(pages.contains("k0099"));
+        assertTrue(pages.hasGapAbove());
+    }
+
+    @Test
+    public void addOlder_recordsEndReached() {
+        pages.addOlder(page(0, 4), true);
+
+        assertTrue(pages.isEndReached());
+    }
+
+    @Test
+    public void shouldLoadNewer_onlyNearAGap() {
+        pages.addOlder(page(90, 99), false);
+        // No gap: everything above is the live page
+        assertFalse(pages.shouldLoadNewer(0, 50));
+
+        for (int top = 89; top >= 60; top -= 10) {
+            pages.addOlder(page(top - 9, top), false);
+        }
+        int olderStart = 50;
+        assertTrue(pages.shouldLoadNewer(olderStart, olderStart));
+        assertTrue(pages.shouldLoadNewer(olderStart + PAGE_SIZE, olderStart));
+        assertFalse(pages.shouldLoadNewer(olderStart + PAGE_SIZE + 1, olderStart));
+    }
+
+    @Test
+    public void addNewer_fillsTheGapAndEvictsTheOldestPage() {
+        for (int top = 99; top >= 60; top -= 10) {
+            pages.addOlder(page(top - 9, top), true);
+        }
+        assertTrue(pages.isEndReached());
+
+        pages.addNewer(page(90, 99), false);
+
+        assertEquals(range(99, 70), pages.items());
+        assertFalse(pages.hasGapAbove());
+        // The evicted bottom page has to be read again
+        assertFalse(pages.isEndReached());
+        assertEquals("k0070", pages.oldestCursor());
+    }
+
+    @Test
+    public void addNewer_gapCanRemain() {
+        for (int top = 99; top >= 50; top -= 10) {
+            pages.addOlder(page(top - 9, top), false);
+        }
+
+        pages.addNewer(page(80, 89), true);
+
+        assertTrue(pages.hasGapAbove());
+        assertEquals(range(89, 60), pages.items());
+    }
+
+    @Test
+    public void spill_startsANewPageWhenTheFirstIsFull() {
+        pages.addOlder(page(90, 99), false);
+
+        for (int i = 100; i < 125; i++) {
+            assertTrue(pages.spill(key(i), key(i), key(i)));
+        }
+
+        assertEquals(MAX_PAGES, pages.pageCount());
+        assertEquals(range(124, 100), pages.items());
+        assertEquals("k0124", pages.newestCursor());
+    }
+
+    @Test
+    public void spill_isBoundedOnABusyList() {
+        pages.addOlder(page(90, 99), true);
+
+        for (int i = 100; i < 1100; i++) {
+            pages.spill(key(i), key(i), key(i));
+        }
+
+        assertEquals(MAX_PAGES, pages.pageCount());
+        assertEquals(range(1099, 1070), pages.items());
+        assertFalse(pages.contains("k0099"));
+        assertFalse(pages.isEndReached());
+        assertEquals("k1070", pages.oldestCursor());
+    }
+
+    @Test
+    public void spill_withoutPagesStartsOne() {
+        assertTrue(pages.spill("k0100", "k0100", "k0100"));
+
+        assertEquals(Arrays.asList("k0100"), pages.items());
+        assertEquals("k0100", pages.oldestCursor());
+    }
+
+    @Test
+    public void spill_ignoredUnderAGapOrWhenHeld() {
+        pages.addOlder(page(90, 99), false);
+        assertFalse(pages.spill("k0095", "k0095", "k0095"));
+
+        for (int top = 89; top >= 60; top -= 10) {
+            pages.addOlder(page(top - 9, top), false);
+        }
+        assertFalse(pages.spill("k0200", "k0200", "k0200"));
+        assertFalse(pages.contains("k0200"));
+    }
+
+    @Test
+    public void remove_dropsTheRowOnly() {
+        pages.addOlder(page(90, 99), false);
+
+        pages.remove("k0099");
+        pages.remove("k0500");
+
+        assertEquals(range(98, 90), pages.items());
+        assertFalse(pages.contains("k0099"));
+        // The cursor still bounds what the page was read from
+        assertEquals("k0099", pages.newestCursor());
+    }
+
+    @Test
+    public void clear_forgetsEverything() {
+        for (int top = 99; top >= 50; top -= 10) {
+            pages.addOlder(page(top - 9, top), true);
+        }
+
+        pages.clear();
+
+        assertTrue(pages.isEmpty());
+        assertEquals(0, pages.rowCount());
+        assertFalse(pages.hasGapAbove());
+        assertFalse(pages.isEndReached());
+        assertNull(pages.oldestCursor());
+    }
+
+    @Test
+    public void compareKeys_followsDatabaseKeyOrder() {
+        List<String> keys = new ArrayList<>(Arrays.asList(
+            "b", "-NxB", "10", "2", "-5", "a", "2147483648", "-NxA", "007"));
+        keys.sort(LiveCollection.Source::compareKeys);
+
+        // 32-bit integers first and numerically, then everything else as strings
+        assertEquals(Arrays.asList("-5", "2", "10", "-NxA", "-NxB", "007", "2147483648", "a", "b"), keys);
+    }
+
+    // Page holding keys lo..hi, added oldest first as a query returns them
+    private OlderPages.Page<String, String> page(int lo, int hi) {
+        OlderPages.Page<String, String> page = pages.newPage();
+        for (int i = lo; i <= hi; i++) {
+            if (page.oldest == null) {
+                page.oldest = key(i);
+            }
+            page.newest = key(i);
+            page.addOlderRow(key(i), key(i));
+        }
+        return page;
+    }
+
+    private static List<String> range(int from, int downTo) {
+        List<String> keys = new ArrayList<>();
+        for (int i = from; i >= downTo; i--) {
+            keys.add(key(i));
+        }
+        return keys;
+    }
+
+    private static String key(int i) {
+        return String.format("k%04d", i);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.aerotutorial.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Golden values from the EPA breakpoint tables. Every category edge is
+ * checked for each pollutant; gases are given in ppb (ppm for CO) and
+ * converted to the μg/m³ the calculator takes.
+ */
+public class AQICalculatorTest {
+
+    // Molecular weights in g/mol and molar volume in L at 25 °C, 1 atm
+    private static final double MOLAR_VOLUME = 24.45;
+    private static final double NO2_MW = 46.0055;
+    private static final double O3_MW = 47.9982;
+    private static final double SO2_MW = 64.066;
+    private static final double CO_MW = 28.010;
+
+    // {concentration, expected AQI}: both ends of every category, then values past the table
+    private static final double[][] PM25 = {
+        {0.0, 0}, {12.0, 50},
+        {12.1, 51}, {35.4, 100},
+        {35.5, 101}, {55.4, 150},
+        {55.5, 151}, {150.4, 200},
+        {150.5, 201}, {250.4, 300},
+        {250.5, 301}, {350.4, 400},
+        {350.5, 401}, {500.4, 500},
+        {500.5, 500}, {-1, 0}
+    };
+
+    private static final double[][] PM10 = {
+        {0, 0}, {54, 50},
+        {55, 51}, {154, 100},
+        {155, 101}, {254, 150},
+        {255, 151}, {354, 200},
+        {355, 201}, {424, 300},
+        {425, 301}, {504, 400},
+        {505, 401}, {604, 500},
+        {605, 500}
+    };
+
+    private static final double[][] O3_PPB = {
+        {0, 0}, {54, 50},
+        {55, 51}, {70, 100},
+        {71, 101}, {85, 150},
+        {86, 151}, {105, 200},
+        {106, 201}, {200, 300},
+        {405, 301}, {504, 400},
+        {505, 401}, {604, 500},
+        {605, 500}
+    };
+
+    private static final double[][] NO2_PPB = {
+        {0, 0}, {53, 50},
+        {54, 51}, {100, 100},
+        {101, 101}, {360, 150},
+        {361, 151}, {649, 200},
+        {650, 201}, {1249, 300},
+        {1250, 301}, {1649, 400},
+        {1650, 401}, {2049, 500},
+        {2050, 500}
+    };
+
+    private static final double[][] SO2_PPB = {
+        {0, 0}, {35, 50},
+        {36, 51}, {75, 100},
+        {76, 101}, {185, 150},
+        {186, 151}, {304, 200},
+        {305, 201}, {604, 300},
+        {605, 301}, {804, 400},
+        {805, 401}, {1004, 500},
+        {1005, 500}
+    };
+
+    private static final double[][] CO_PPM = {
+        {0.0, 0}, {4.4, 50},
+        {4.5, 51}, {9.4, 100},
+        {9.5, 101}, {12.4, 150},
+        {12.5, 151}, {15.4, 200},
+        {15.5, 201}, {30.4, 300},
+        {30.5, 301}, {40.4, 400},
+        {40.5, 401}, {50.4, 500},
+        {50.5, 500}
+    };
+
+    @Test
+    public void pm25_breakpoints() {
+        for (double[] row : PM25) {
+            assertEquals("PM2.5 " + row[0], (int) row[1], AQICalculator.calculateAqiFromPM25(row[0]));
+        }
+    }
+
+    @Test
+    public void pm10_breakpoints() {
+        for (double[] row : PM10) {
+            assertEquals("PM10 " + row[0], (int) row[1], AQICalculator.calculateAqiFromPM10(row[0]));
+        }
+    }
+
+    @Test
+    public void o3_breakpoints() {
+        for (double[] row : O3_PPB) {
+            assertEquals("O3 " + row[0] + " ppb", (int) row[1],
+                AQICalculator.calculateAqiFromO3(toMicrograms(row[0], O3_MW)));
+        }
+    }
+
+    @Test
+    public void no2_breakpoints() {
+        for (double[] row : NO2_PPB) {
+            assertEquals("NO2 " + row[0] + " ppb", (int) row[1],
+                AQICalculator.calculateAqiFromNO2(toMicrograms(row[0], NO2_MW)));
+        }
+    }
+
+    @Test
+    public void so2_breakpoints() {
+        for (double[] row : SO2_PPB) {
+            assertEquals("SO2 " + row[0] + " ppb", (int) row[1],
+                AQICalculator.calculateAqiFromSO2(toMicrograms(row[0], SO2_MW)));
+        }
+    }
+
+    @Test
+    public void co_breakpoints() {
+        for (double[] row : CO_PPM) {
+            assertEquals("CO " + row[0] + " ppm", (int) row[1],
+                AQICalculator.calculateAqiFromCO(toMicrograms(row[0] * 1000, CO_MW)));
+        }
+    }
+
+    @Test
+    public void interpolatesWithinCategory() {
+        // 51 + (24.0 - 12.1) / (35.4 - 12.1) * 49 = 76.03
+        assertEquals(76, AQICalculator.calculateAqiFromPM25(24.0));
+        // 51 + (100 - 55) / (154 - 55) * 49 = 73.27
+        assertEquals(73, AQICalculator.calculateAqiFromPM10(100));
+        // Between two rows: stays in the lower one, capped at its top
+        assertEquals(50, AQICalculator.calculateAqiFromPM25(12.05));
+        assertEquals(100, AQICalculator.calculateAqiFromPM25(35.45));
+    }
+
+    @Test
+    public void convertsMicrogramsToPpb() {
+        // Values as OpenWeather reports them, in μg/m³
+        // 188.16 μg/m³ NO2 = 100 ppb -> top of Moderate
+        assertEquals(100, AQICalculator.calculateAqiFromNO2(188.16));
+        // 196.31 μg/m³ O3 = 100 ppb -> 151 + 14 / 19 * 49 = 187.1
+        assertEquals(187, AQICalculator.calculateAqiFromO3(196.31));
+        // 262.03 μg/m³ SO2 = 100 ppb -> 101 + 24 / 109 * 49 = 111.8
+        assertEquals(112, AQICalculator.calculateAqiFromSO2(262.03));
+        // 1145.6 μg/m³ CO = 1 ppm -> 1 / 4.4 * 50 = 11.4
+        assertEquals(11, AQICalculator.calculateAqiFromCO(1145.6));
+    }
+
+    @Test
+    public void o3_gapBetweenEightHourAndOneHourTables_capsAt300() {
+        // 201-404 ppb has no row; it stays Very Unhealthy rather than extrapolating
+        for (double ppb : new double[]{201, 250, 300, 404, 404.9}) {
+            assertEquals("O3 " + ppb + " ppb", 300, AQICalculator.calculateAqiFromO3(toMicrograms(ppb, O3_MW)));
+        }
+        assertEquals(301, AQICalculator.calculateAqiFromO3(toMicrograms(405, O3_MW)));
+    }
+
+    @Test
+    public void overall_isWorstPollutant() {
+        double no2 = toMicrograms(361, NO2_MW);
+        assertEquals(151, AQICalculator.calculateOverallAQI(12.0, 54, no2, 0, 0, 0));
+        assertEquals(201, AQICalculator.calculateOverallAQI(150.5, 54, no2, 0, 0, 0));
+        assertEquals(0, AQICalculator.calculateOverallAQI(0, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    public void seriesMatchesSinglePoint() {
+        float[] pm25 = {5f, 12.1f, 40f, 200f, 600f};
+        float[] pm10 = {10f, 60f, 150f, 300f, 700f};
+        float[] no2 = {20f, 150f, 700f, 1300f, 4000f};
+        float[] o3 = {40f, 120f, 210f, 500f, 1300f};
+        float[] so2 = {10f, 100f, 300f, 900f, 2700f};
+        float[] co = {300f, 6000f, 12000f, 20000f, 60000f};
+        int[] out = new int[pm25.length];
+
+        AQICalculator.computeAqi(pm25, pm10, no2, o3, so2, co, out);
+
+        for (int i = 0; i < out.length; i++) {
+            assertEquals("point " + i,
+                AQICalculator.calculateOverallAQI(pm25[i], pm10[i], no2[i], o3[i], so2[i], co[i]), out[i]);
+        }
+    }
+
+    @Test
+    public void categories() {
+        assertEquals("Good", AQICalculator.getAQICategory(50));
+        assertEquals("Moderate", AQICalculator.getAQICategory(51));
+        assertEquals("Moderate", AQICalculator.getAQICategory(100));
+        assertEquals("Unhealthy for Sensitive Groups", AQICalculator.getAQICategory(101));
+        assertEquals("Unhealthy", AQICalculator.getAQICategory(151));
+        assertEquals("Very Unhealthy", AQICalculator.getAQICategory(300));
+        assertEquals("Hazardous", AQICalculator.getAQICategory(301));
+    }
+
+    private static double toMicrograms(double ppb, double molecularWeight) {
+        return ppb * molecularWeight / MOLAR_VOLUME;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.aerotutorial.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AqiPollPolicyTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private long now;
+    private AqiPollPolicy policy;
+
+    @Before
+    public void setUp() {
+        now = TimeUnit.DAYS.toMillis(100);
+        policy = new AqiPollPolicy(() -> now);
+    }
+
+    @Test
+    public void firstReading_awayFromBoundary_usesBaseInterval() {
+        assertEquals(HOUR, policy.onReading(70, false));
+    }
+
+    @Test
+    public void nearBoundary_pollsAtMinimum() {
+        assertEquals(30 * MINUTE, policy.onReading(45, false));
+        now += HOUR;
+        assertEquals(30 * MINUTE, policy.onReading(98, false));
+        now += HOUR;
+        assertEquals(30 * MINUTE, policy.onReading(310, false));
+    }
+
+    @Test
+    public void boundaryMarginIsInclusive() {
+        assertTrue(AqiPollPolicy.isNearBoundary(40));
+        assertFalse(AqiPollPolicy.isNearBoundary(39));
+        assertTrue(AqiPollPolicy.isNearBoundary(110));
+        assertFalse(AqiPollPolicy.isNearBoundary(111));
+        assertTrue(AqiPollPolicy.isNearBoundary(310));
+        assertFalse(AqiPollPolicy.isNearBoundary(311));
+        assertFalse(AqiPollPolicy.isNearBoundary(0));
+        assertFalse(AqiPollPolicy.isNearBoundary(500));
+    }
+
+    @Test
+    public void rising_pollsAtMinimum() {
+        policy.onReading(65, false);
+        now += HOUR;
+        // +10 per hour, away from any boundary
+        assertEquals(30 * MINUTE, policy.onReading(75, false));
+    }
+
+    @Test
+    public void rising_closeReadingsMeasuredOverMinimumInterval() {
+        policy.onReading(70, false);
+        now += 5 * MINUTE;
+        // +3 in 5 minutes counts as +3 per half hour, i.e. 6 per hour
+        assertEquals(30 * MINUTE, policy.onReading(73, false));
+    }
+
+    @Test
+    public void slowRise_isTreatedAsStable() {
+        policy.onReading(70, false);
+        now += 2 * HOUR;
+        assertEquals(2 * HOUR, policy.onReading(74, false));
+    }
+
+    @Test
+    public void falling_usesBaseInterval() {
+        policy.onReading(80, false);
+        now += HOUR;
+        assertEquals(HOUR, policy.onReading(70, false));
+    }
+
+    @Test
+    public void stableReadings_backOffUpToMaximum() {
+        assertEquals(HOUR, policy.onReading(70, false));
+        now += HOUR;
+        assertEquals(2 * HOUR, policy.onReading(71, false));
+        now += 2 * HOUR;
+        assertEquals(4 * HOUR, policy.onReading(70, false));
+        now += 4 * HOUR;
+        assertEquals(AqiPollPolicy.MAX_INTERVAL_MILLIS, policy.onReading(72, false));
+    }
+
+    @Test
+    public void stableAfterBoundary_restartsFromBase() {
+        policy.onReading(98, false);
+        now += 30 * MINUTE;
+        // Still near the boundary
+        assertEquals(30 * MINUTE, policy.onReading(97, false));
+        now += 30 * MINUTE;
+        policy.onReading(85, false);
+        now += HOUR;
+        assertEquals(2 * HOUR, policy.onReading(84, false));
+    }
+
+    @Test
+    public void failures_backOffUpToMaximum() {
+        assertEquals(2 * HOUR, policy.onFailure(false));
+        assertEquals(4 * HOUR, policy.onFailure(false));
+        assertEquals(AqiPollPolicy.MAX_INTERVAL_MILLIS, policy.onFailure(false));
+    }
+
+    @Test
+    public void failureAfterMinimum_doublesMinimum() {
+        policy.onReading(45, false);
+        assertEquals(HOUR, policy.onFailure(false));
+    }
+
+    @Test
+    public void failure_keepsLastReadingForTrend() {
+        policy.onReading(65, false);
+        now += HOUR;
+        policy.onFailure(false);
+        now += HOUR;
+        assertEquals(65, policy.getLastAqi());
+        // +15 over two hours is still rising
+        assertEquals(30 * MINUTE, policy.onReading(80, false));
+    }
+
+    @Test
+    public void lowBattery_doublesDelay() {
+        assertEquals(2 * HOUR, policy.onReading(70, true));
+        // The stored delay is not stretched, so charging again resumes normally
+        assertEquals(HOUR, policy.getLastDelayMillis());
+    }
+
+    @Test
+    public void lowBattery_nearBoundary_waitsAtLeastTwoHours() {
+        assertEquals(2 * HOUR, policy.onReading(100, true));
+    }
+
+    @Test
+    public void lowBattery_cappedAtEightHours() {
+        policy.restore(70, now, AqiPollPolicy.MAX_INTERVAL_MILLIS);
+        now += 4 * HOUR;
+        assertEquals(AqiPollPolicy.LOW_BATTERY_MAX_INTERVAL_MILLIS, policy.onReading(71, true));
+        assertEquals(AqiPollPolicy.LOW_BATTERY_MAX_INTERVAL_MILLIS, policy.onFailure(true));
+    }
+
+    @Test
+    public void restore_clampsDelayAndKeepsTrend() {
+        policy.restore(70, now, TimeUnit.HOURS.toMillis(12));
+        assertEquals(AqiPollPolicy.MAX_INTERVAL_MILLIS, policy.getLastDelayMillis());
+
+        policy.restore(70, now, MINUTE);
+        assertEquals(AqiPollPolicy.MIN_INTERVAL_MILLIS, policy.getLastDelayMillis());
+
+        now += HOUR;
+        assertEquals(30 * MINUTE, policy.onReading(80, false));
+        assertEquals(now, policy.getLastReadingAt());
+    }
+}
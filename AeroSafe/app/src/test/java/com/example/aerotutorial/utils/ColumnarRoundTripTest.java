@@ -0,0 +1,249 @@
+package com.example.aerotutorial.utils;
+
+import com.example.aerotutorial.models.AirQualityData;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Files written by ColumnarWriter read back through ColumnarReader, and the
+ * format stays smaller and faster to write than the CSV export.
+ */
+public class ColumnarRoundTripTest {
+
+    private static final long START = 1_718_000_000_000L;
+
+    @Test
+    public void roundTrip_keepsEveryColumn() throws IOException {
+        List<AirQualityData> rows = randomRows(1000, 3);
+        List<AirQualityData> read = roundTrip(rows, 64);
+
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertSameRow(rows.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    public void roundTrip_nullLocationsStayNull() throws IOException {
+        List<AirQualityData> rows = Arrays.asList(
+            row(START, null), row(START + 1, "Mirpur"), row(START + 2, null), row(START + 3, ""));
+        List<AirQualityData> read = roundTrip(rows, 2);
+
+        assertNull(read.get(0).getLocation());
+        assertEquals("Mirpur", read.get(1).getLocation());
+        assertNull(read.get(2).getLocation());
+        // An empty name is a dictionary entry, not a missing location
+        assertEquals("", read.get(3).getLocation());
+    }
+
+    @Test
+    public void roundTrip_reusesDictionaryEntriesAcrossRowGroups() throws IOException {
+        String[] names = {"Dhanmondi, Dhaka", "Uttara Sector 7", "চট্টগ্রাম"};
+        List<AirQualityData> rows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rows.add(row(START + i * 60_000L, names[i % names.length]));
+        }
+        // A location first seen in a later group is added then, and reused after
+        rows.add(row(START + 40 * 60_000L, "Gazipur"));
+        rows.add(row(START + 41 * 60_000L, "Gazipur"));
+
+        byte[] file = write(rows, 4);
+        List<AirQualityData> read = new ColumnarReader(new ByteArrayInputStream(file)).readAll();
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).getLocation(), read.get(i).getLocation());
+        }
+        // Each name is stored once even though it appears in all eleven groups
+        for (String name : new String[] {names[0], names[1], names[2], "Gazipur"}) {
+            assertEquals(name, 1, occurrences(file, name.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void roundTrip_timestampsOutOfOrder() throws IOException {
+        long[] timestamps = {START, START - 3_600_000L, START + 1, 0, -86_400_000L,
+            Long.MAX_VALUE, Long.MIN_VALUE, START};
+        List<AirQualityData> rows = new ArrayList<>();
+        for (long timestamp : timestamps) {
+            rows.add(row(timestamp, "Banani"));
+        }
+        List<AirQualityData> read = roundTrip(rows, 5);
+
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], read.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    public void roundTrip_narrowsPollutantsToFloat() throws IOException {
+        AirQualityData data = row(START, "Motijheel");
+        data.setLatitude(23.733123456789);
+        data.setLongitude(90.417987654321);
+        data.setPm25(35.123456789);
+        data.setCo(0.1);
+        AirQualityData read = roundTrip(Arrays.asList(data), 16).get(0);
+
+        // Coordinates are doubles; pollutants keep float precision only
+        assertEquals(data.getLatitude(), read.getLatitude(), 0);
+        assertEquals(data.getLongitude(), read.getLongitude(), 0);
+        assertEquals((float) data.getPm25(), read.getPm25(), 0);
+        assertTrue(data.getPm25() != read.getPm25());
+        assertEquals((float) data.getCo(), read.getCo(), 0);
+        assertEquals(data.getPm25(), read.getPm25(), 1e-5);
+    }
+
+    @Test
+    public void roundTrip_emptyFile() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, new ColumnarWriter(out).writeAll(new ArrayList<AirQualityData>().iterator(), null));
+        assertTrue(new ColumnarReader(new ByteArrayInputStream(out.toByteArray())).readAll().isEmpty());
+    }
+
+    @Test
+    public void read_rejectsFooterCountMismatch() throws IOException {
+        byte[] file = write(randomRows(10, 5), 4);
+        // The footer ends the file: varint 0, then the row count as a long
+        ByteBuffer.wrap(file).putLong(file.length - 8, 11);
+
+        ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(file));
+        try {
+            reader.readAll();
+            fail("Footer count mismatch was not detected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("footer says 11"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsTruncatedFile() throws IOException {
+        byte[] file = write(randomRows(10, 5), 4);
+        new ColumnarReader(new ByteArrayInputStream(Arrays.copyOf(file, file.length / 2))).readAll();
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        new ColumnarReader(new ByteArrayInputStream(CsvRowWriter.HEADER.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void columnar_isSmallerAndFasterToWriteThanCsv() throws IOException {
+        List<AirQualityData> rows = randomRows(50_000, 11);
+        // Warm up both writers so the timed runs are compiled code
+        for (int i = 0; i < 3; i++) {
+            writeCsv(rows);
+            write(rows, ColumnarWriter.DEFAULT_ROW_GROUP_SIZE);
+        }
+
+        long start = System.nanoTime();
+        byte[] csv = writeCsv(rows);
+        long csvNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        byte[] columnar = write(rows, ColumnarWriter.DEFAULT_ROW_GROUP_SIZE);
+        long columnarNanos = System.nanoTime() - start;
+
+        assertEquals(rows.size(), new ColumnarReader(new ByteArrayInputStream(columnar)).readAll().size());
+        assertTrue("columnar " + columnar.length + " bytes, csv " + csv.length,
+            columnar.length * 10L < csv.length * 7L);
+        // Loose bound: binary columns skip all number formatting
+        assertTrue("columnar " + columnarNanos / 1000 + " us, csv " + csvNanos / 1000,
+            columnarNanos < csvNanos * 2);
+    }
+
+    private static List<AirQualityData> roundTrip(List<AirQualityData> rows, int rowGroupSize)
+            throws IOException {
+        return new ColumnarReader(new ByteArrayInputStream(write(rows, rowGroupSize))).readAll();
+    }
+
+    private static byte[] write(List<AirQualityData> rows, int rowGroupSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = new ColumnarWriter(out, rowGroupSize).writeAll(rows.iterator(), null);
+        assertEquals(rows.size(), written);
+        return out.toByteArray();
+    }
+
+    private static byte[] writeCsv(List<AirQualityData> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CsvRowWriter(Channels.newChannel(out), TimeZone.getTimeZone("Asia/Dhaka"), 64 * 1024)
+            .writeAll(rows.iterator(), 0, null);
+        return out.toByteArray();
+    }
+
+    private static void assertSameRow(AirQualityData expected, AirQualityData actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getLocation(), actual.getLocation());
+        assertEquals(expected.getLatitude(), actual.getLatitude(), 0);
+        assertEquals(expected.getLongitude(), actual.getLongitude(), 0);
+        assertEquals(expected.getAqi(), actual.getAqi());
+        assertEquals((float) expected.getPm25(), actual.getPm25(), 0);
+        assertEquals((float) expected.getPm10(), actual.getPm10(), 0);
+        assertEquals((float) expected.getNo2(), actual.getNo2(), 0);
+        assertEquals((float) expected.getO3(), actual.getO3(), 0);
+        assertEquals((float) expected.getSo2(), actual.getSo2(), 0);
+        assertEquals((float) expected.getCo(), actual.getCo(), 0);
+    }
+
+    private static AirQualityData row(long timestamp, String location) {
+        AirQualityData data = new AirQualityData();
+        data.setTimestamp(timestamp);
+        data.setLocation(location);
+        data.setLatitude(23.8103);
+        data.setLongitude(90.4125);
+        data.setAqi(120);
+        data.setPm25(42.5);
+        return data;
+    }
+
+    // Samples a minute or so apart from a handful of stations, as a researcher records them
+    private static List<AirQualityData> randomRows(int count, long seed) {
+        Random random = new Random(seed);
+        String[] stations = {"Gulshan", "Dhanmondi", "Mirpur", "Uttara", "Motijheel", null};
+        List<AirQualityData> rows = new ArrayList<>();
+        long timestamp = START;
+        for (int i = 0; i < count; i++) {
+            timestamp += 30_000 + random.nextInt(60_000);
+            AirQualityData data = row(timestamp, stations[random.nextInt(stations.length)]);
+            data.setLatitude(23.8 + random.nextDouble() * 0.1);
+            data.setLongitude(90.4 + random.nextDouble() * 0.1);
+            data.setAqi(random.nextInt(500));
+            data.setPm25(random.nextDouble() * 250);
+            data.setPm10(random.nextDouble() * 400);
+            data.setNo2(random.nextDouble() * 100);
+            data.setO3(random.nextDouble() * 150);
+            data.setSo2(random.nextDouble() * 40);
+            data.setCo(random.nextDouble() * 10);
+            rows.add(data);
+        }
+        return rows;
+    }
+
+    private static int occurrences(byte[] haystack, byte[] needle) {
+        int count = 0;
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            int j = 0;
+            while (j < needle.length && haystack[i + j] == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.aerotutorial.utils;
+
+import com.example.aerotutorial.models.AirQualityData;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * CsvRowWriter must produce the same text as the String.format and
+ * SimpleDateFormat export it replaced.
+ */
+public class CsvRowWriterTest {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    @Test
+    public void appendFixed_roundsTiesHalfUpLikeFormat() {
+        assertEquals("1.01", fixed(1.005, 2));
+        assertEquals("2.68", fixed(2.675, 2));
+        assertEquals("0.13", fixed(0.125, 2));
+        assertEquals("-1.01", fixed(-1.005, 2));
+        assertEquals("123456.79", fixed(123456.785, 2));
+        assertEquals("1.00", fixed(1.0049999, 2));
+    }
+
+    @Test
+    public void appendFixed_keepsTheSignOfSmallNegatives() {
+        assertEquals("-0.00", fixed(-0.001, 2));
+        assertEquals("-0.00", fixed(-0.0, 2));
+        assertEquals("0.00", fixed(0.0, 2));
+        assertEquals("-0.000000", fixed(-0.0000001, 6));
+    }
+
+    @Test
+    public void appendFixed_matchesFormat() {
+        Random random = new Random(7);
+        double[] fixedCases = {0, 1, 0.5, 9.995, 99.995, 23.8103, 90.4125005, 1e15, 4.5e15, 1e300, 5e-7};
+        for (double value : fixedCases) {
+            assertMatchesFormat(value);
+            assertMatchesFormat(-value);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            // Short decimals hit ties; raw doubles cover everything else
+            double value = i % 2 == 0
+                ? random.nextInt(2_000_000) / 1000.0 - 1000
+                : (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+            assertMatchesFormat(value);
+        }
+    }
+
+    @Test
+    public void appendFixed_passesNonFiniteValuesThrough() {
+        assertEquals(String.format(Locale.US, "%.2f", Double.NaN), fixed(Double.NaN, 2));
+        assertEquals(String.format(Locale.US, "%.2f", Double.POSITIVE_INFINITY),
+            fixed(Double.POSITIVE_INFINITY, 2));
+    }
+
+    @Test
+    public void dateCache_matchesSimpleDateFormatAcrossDst() {
+        // 2024 transitions: US spring forward and fall back, Lord Howe's half-hour shift
+        assertDatesMatch("America/New_York", "2024-03-09 00:00:00", 72);
+        assertDatesMatch("America/New_York", "2024-11-02 00:00:00", 72);
+        assertDatesMatch("Europe/London", "2024-03-30 00:00:00", 72);
+        assertDatesMatch("Australia/Lord_Howe", "2024-04-06 00:00:00", 72);
+        assertDatesMatch("Asia/Dhaka", "2024-01-01 00:00:00", 72);
+    }
+
+    @Test
+    public void dateCache_handlesTimestampsGoingBackwards() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        CsvRowWriter.DateCache cache = new CsvRowWriter.DateCache(zone);
+        SimpleDateFormat format = dateFormat(zone);
+        long start = parse(format, "2024-11-03 03:00:00");
+        // Fall back repeats 01:00-02:00; walk it in reverse
+        for (long t = start; t > start - 6 * HOUR_MILLIS; t -= 7 * 60_000L) {
+            assertEquals(format.format(new Date(t)), date(cache, t));
+        }
+    }
+
+    @Test
+    public void writeAll_matchesTheFormattedRow() throws Exception {
+        TimeZone zone = TimeZone.getTimeZone("Asia/Dhaka");
+        AirQualityData data = new AirQualityData();
+        data.setTimestamp(1_718_000_000_000L);
+        data.setLocation("Gulshan, Dhaka");
+        data.setLatitude(23.7925);
+        data.setLongitude(90.4078);
+        data.setAqi(152);
+        data.setPm25(55.005);
+        data.setPm10(80.1);
+        data.setNo2(12.345);
+        data.setO3(0.125);
+        data.setSo2(3);
+        data.setCo(-0.001);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = new CsvRowWriter(Channels.newChannel(out), zone, 64)
+            .writeAll(Arrays.asList(data, null).iterator(), 0, null);
+
+        String expected = CsvRowWriter.HEADER + String.format(Locale.US,
+            "%s,%s,%.6f,%.6f,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f\n",
+            dateFormat(zone).format(new Date(data.getTimestamp())),
+            "Gulshan; Dhaka", data.getLatitude(), data.getLongitude(), data.getAqi(),
+            data.getPm25(), data.getPm10(), data.getNo2(), data.getO3(), data.getSo2(), data.getCo());
+        assertEquals(1, written);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static void assertMatchesFormat(double value) {
+        assertEquals("2 decimals of " + value,
+            String.format(Locale.US, "%.2f", value), fixed(value, 2));
+        assertEquals("6 decimals of " + value,
+            String.format(Locale.US, "%.6f", value), fixed(value, 6));
+    }
+
+    // Every 5 minutes for `hours` hours from a local start time
+    private static void assertDatesMatch(String zoneId, String localStart, int hours) {
+        TimeZone zone = TimeZone.getTimeZone(zoneId);
+        CsvRowWriter.DateCache cache = new CsvRowWriter.DateCache(zone);
+        SimpleDateFormat format = dateFormat(zone);
+        long start = parse(format, localStart);
+        for (long t = start; t < start + hours * HOUR_MILLIS; t += 5 * 60_000L + 1_001) {
+            assertEquals(zoneId + " at " + t, format.format(new Date(t)), date(cache, t));
+        }
+    }
+
+    private static String fixed(double value, int decimals) {
+        StringBuilder sb = new StringBuilder();
+        CsvRowWriter.appendFixed(sb, value, decimals);
+        return sb.toString();
+    }
+
+    private static String date(CsvRowWriter.DateCache cache, long timestamp) {
+        StringBuilder sb = new StringBuilder();
+        cache.append(sb, timestamp);
+        return sb.toString();
+    }
+
+    private static SimpleDateFormat dateFormat(TimeZone zone) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(zone);
+        return format;
+    }
+
+    private static long parse(SimpleDateFormat format, String text) {
+        try {
+            return format.parse(text).getTime();
+        } catch (java.text.ParseException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.aerotutorial.utils;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Rolling-origin backtest for Forecaster models.
+ * Repeatedly fits on a growing prefix of a recorded series, forecasts the
+ * next {@code horizon} steps and compares them with what actually happened.
+ */
+public class ForecastBacktester {
+
+    private ForecastBacktester() {
+    }
+
+    /**
+     * @param model Creates a fresh, unfitted model for each origin
+     * @param series Recorded hourly values, oldest first
+     * @param minTrainSize Samples in the first training window
+     * @param horizon Steps forecast from each origin
+     * @return Mean absolute error and average fit time
+     */
+    public static Result run(Supplier<Forecaster> model, double[] series, int minTrainSize, int horizon) {
+        if (minTrainSize < 1 || horizon < 1 || series.length < minTrainSize + horizon) {
+            throw new IllegalArgumentException("Series too short for this backtest");
+        }
+
+        String name = null;
+        double absErrorSum = 0;
+        long errorCount = 0;
+        long fitNanos = 0;
+        int fits = 0;
+
+        for (int origin = minTrainSize; origin + horizon <= series.length; origin += horizon) {
+            double[] train = new double[origin];
+            System.arraycopy(series, 0, train, 0, origin);
+
+            Forecaster forecaster = model.get();
+            name = forecaster.getName();
+
+            long start = System.nanoTime();
+            forecaster.fit(train);
+            fitNanos += System.nanoTime() - start;
+            fits++;
+
+            double[] predicted = forecaster.forecast(horizon);
+            for (int h = 0; h < horizon; h++) {
+                absErrorSum += Math.abs(series[origin + h] - predicted[h]);
+                errorCount++;
+            }
+        }
+
+        return new Result(name, absErrorSum / errorCount, fitNanos / 1_000_000.0 / fits, fits);
+    }
+
+    /**
+     * Backtest the built-in models on one series: Holt-Winters, EWMA, linear
+     */
+    public static Result[] compareModels(double[] series, int minTrainSize, int horizon) {
+        return new Result[]{
+            run(HoltWintersForecaster::new, series, minTrainSize, horizon),
+            run(EwmaForecaster::new, series, minTrainSize, horizon),
+            run(LinearForecaster::new, series, minTrainSize, horizon)
+        };
+    }
+
+    public static class Result {
+        public final String model;
+        public final double mae;
+        public final double fitMillis;
+        public final int fits;
+
+        public Result(String model, double mae, double fitMillis, int fits) {
+            this.model = model;
+            this.mae = mae;
+            this.fitMillis = fitMillis;
+            this.fits = fits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: MAE %.2f, %.3f ms per fit (%d fits)",
+                model, mae, fitMillis, fits);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.aerotutorial.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Error bounds for the forecast models on fixed hourly series.
+ * Each backtest trains on two days and forecasts six hours at a time.
+ */
+public class ForecastBacktesterTest {
+
+    private static final int MIN_TRAIN = 2 * HoltWintersForecaster.DAILY_PERIOD;
+    private static final int HORIZON = 6;
+
+    // Daily cycle of ±30 on a slow upward drift, ten days
+    private static double[] dailyCycle() {
+        double[] series = new double[10 * 24];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = 80 + 30 * Math.sin(2 * Math.PI * i / 24) + 0.1 * i;
+        }
+        return series;
+    }
+
+    // Daily cycle of ±25 with Gaussian noise (σ = 5), two weeks, fixed seed
+    private static double[] noisyDailyCycle() {
+        Random random = new Random(42);
+        double[] series = new double[14 * 24];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = 90 + 25 * Math.sin(2 * Math.PI * i / 24) + random.nextGaussian() * 5;
+        }
+        return series;
+    }
+
+    @Test
+    public void holtWinters_tracksDailyCycle() {
+        ForecastBacktester.Result[] results = ForecastBacktester.compareModels(dailyCycle(), MIN_TRAIN, HORIZON);
+        ForecastBacktester.Result holtWinters = results[0];
+
+        assertEquals("Holt-Winters", holtWinters.model);
+        assertTrue(holtWinters.toString(), holtWinters.mae < 1.5);
+        // Flat and straight-line models cannot follow the cycle
+        assertTrue(results[1].toString(), results[1].mae > 4 * holtWinters.mae);
+        assertTrue(results[2].toString(), results[2].mae > 4 * holtWinters.mae);
+    }
+
+    @Test
+    public void holtWinters_errorNearNoiseLevel() {
+        ForecastBacktester.Result[] results =
+            ForecastBacktester.compareModels(noisyDailyCycle(), MIN_TRAIN, HORIZON);
+
+        // Mean absolute noise alone is about 4 (0.8 σ)
+        assertTrue(results[0].toString(), results[0].mae < 7);
+        assertTrue(results[1].toString(), results[0].mae < results[1].mae / 2);
+        assertTrue(results[2].toString(), results[0].mae < results[2].mae / 2);
+    }
+
+    @Test
+    public void linear_exactOnRamp() {
+        double[] ramp = new double[100];
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = 50 + 0.5 * i;
+        }
+
+        ForecastBacktester.Result linear = ForecastBacktester.run(LinearForecaster::new, ramp, MIN_TRAIN, HORIZON);
+
+        assertEquals(0, linear.mae, 1e-6);
+        assertEquals(8, linear.fits);
+    }
+
+    @Test
+    public void allModels_exactOnFlatSeries() {
+        double[] flat = new double[72];
+        Arrays.fill(flat, 60);
+
+        for (ForecastBacktester.Result result : ForecastBacktester.compareModels(flat, MIN_TRAIN, HORIZON)) {
+            assertEquals(result.model, 0, result.mae, 1e-9);
+        }
+    }
+
+    @Test
+    public void originsAdvanceByHorizon() {
+        ForecastBacktester.Result result =
+            ForecastBacktester.run(EwmaForecaster::new, new double[60], 48, 6);
+
+        // Origins 48 and 54
+        assertEquals(2, result.fits);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void seriesShorterThanOneWindow_rejected() {
+        ForecastBacktester.run(EwmaForecaster::new, new double[50], 48, 6);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.aerotutorial.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.aerotutorial.utils.NotificationThrottle.Decision.CLEAR;
+import static com.example.aerotutorial.utils.NotificationThrottle.Decision.NOTIFY;
+import static com.example.aerotutorial.utils.NotificationThrottle.Decision.SKIP;
+import static com.example.aerotutorial.utils.NotificationThrottle.Decision.SUMMARIZE;
+import static org.junit.Assert.assertEquals;
+
+public class NotificationThrottleTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private long now;
+    private NotificationThrottle throttle;
+
+    @Before
+    public void setUp() {
+        now = TimeUnit.DAYS.toMillis(100);
+        throttle = new NotificationThrottle(() -> now);
+    }
+
+    @Test
+    public void belowOnThreshold_skips() {
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 100));
+        assertEquals(-1, throttle.getAlertCategory("Gulshan"));
+    }
+
+    @Test
+    public void hysteresis_holdsTheAlertBetweenThresholds() {
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 101));
+        now += MINUTE;
+        // Dipping under the on threshold does not end the alert or repeat it
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 95));
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 91));
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 101));
+        assertEquals(2, throttle.getAlertCategory("Gulshan"));
+
+        assertEquals(CLEAR, throttle.onAqi("Gulshan", 90));
+        assertEquals(-1, throttle.getAlertCategory("Gulshan"));
+        // Cleared: only the on threshold starts it again
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 95));
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 101));
+    }
+
+    @Test
+    public void worseCategory_realertsAtOnce() {
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 120));
+        now += MINUTE;
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 160));
+        assertEquals(3, throttle.getAlertCategory("Gulshan"));
+        now += MINUTE;
+        // Improving within the alert is not news
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 130));
+    }
+
+    @Test
+    public void sameCategory_repeatsAfterTheInterval() {
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 120));
+        now += NotificationThrottle.AQI_REPEAT_MILLIS - 1;
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 125));
+        now += 1;
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 125));
+        assertEquals(now, throttle.getNotifiedAt("Gulshan"));
+    }
+
+    @Test
+    public void aqiWindow_summarizesOverTheLimitThenRecovers() {
+        for (int i = 0; i < NotificationThrottle.AQI_MAX_PER_WINDOW; i++) {
+            assertEquals(NOTIFY, throttle.onAqi("L" + i, 150));
+            now += MINUTE;
+        }
+        assertEquals(SUMMARIZE, throttle.onAqi("Late", 150));
+
+        // The window slides: an hour after the first alert, one slot is free again
+        now = now - NotificationThrottle.AQI_MAX_PER_WINDOW * MINUTE + NotificationThrottle.AQI_WINDOW_MILLIS;
+        assertEquals(NOTIFY, throttle.onAqi("Late", 150));
+        assertEquals(SUMMARIZE, throttle.onAqi("Later", 150));
+    }
+
+    @Test
+    public void summarizedEscalation_keepsTheShownCategory() {
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 120));
+        long shownAt = now;
+        for (int i = 1; i < NotificationThrottle.AQI_MAX_PER_WINDOW; i++) {
+            assertEquals(NOTIFY, throttle.onAqi("L" + i, 150));
+        }
+
+        now += MINUTE;
+        assertEquals(SUMMARIZE, throttle.onAqi("Gulshan", 210));
+        // The worse category was never shown, so it is still news
+        assertEquals(2, throttle.getAlertCategory("Gulshan"));
+        assertEquals(shownAt, throttle.getNotifiedAt("Gulshan"));
+
+        now = shownAt + NotificationThrottle.AQI_WINDOW_MILLIS;
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 210));
+        assertEquals(4, throttle.getAlertCategory("Gulshan"));
+    }
+
+    @Test
+    public void summarizedFirstAlert_isNotActiveYet() {
+        for (int i = 0; i < NotificationThrottle.AQI_MAX_PER_WINDOW; i++) {
+            throttle.onAqi("L" + i, 150);
+        }
+
+        assertEquals(SUMMARIZE, throttle.onAqi("Gulshan", 150));
+        assertEquals(-1, throttle.getAlertCategory("Gulshan"));
+        // Nothing was shown, so there is nothing to clear
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 80));
+    }
+
+    @Test
+    public void restoredAlert_continuesAcrossRestart() {
+        throttle.restoreAlert("Gulshan", 3, now - HOUR);
+
+        assertEquals(SKIP, throttle.onAqi("Gulshan", 170));
+        assertEquals(NOTIFY, throttle.onAqi("Gulshan", 250));
+        assertEquals(CLEAR, throttle.onAqi("Gulshan", 60));
+    }
+
+    @Test
+    public void governmentAlert_dedupsWithinTheWindow() {
+        assertEquals(NOTIFY, throttle.onGovernmentAlert("Smog advisory"));
+        now += NotificationThrottle.GOVERNMENT_DEDUP_MILLIS - 1;
+        assertEquals(SKIP, throttle.onGovernmentAlert("Smog advisory"));
+        now += 1;
+        assertEquals(NOTIFY, throttle.onGovernmentAlert("Smog advisory"));
+    }
+
+    @Test
+    public void governmentAlerts_rateLimitedSeparatelyFromAqi() {
+        for (int i = 0; i < NotificationThrottle.AQI_MAX_PER_WINDOW; i++) {
+            throttle.onAqi("L" + i, 150);
+        }
+        for (int i = 0; i < NotificationThrottle.GOVERNMENT_MAX_PER_WINDOW; i++) {
+            assertEquals(NOTIFY, throttle.onGovernmentAlert("Advisory " + i));
+        }
+        assertEquals(SUMMARIZE, throttle.onGovernmentAlert("Advisory late"));
+
+        now += NotificationThrottle.GOVERNMENT_WINDOW_MILLIS;
+        assertEquals(NOTIFY, throttle.onGovernmentAlert("Advisory later"));
+    }
+
+    @Test
+    public void category_matchesAqiBands() {
+        assertEquals(0, NotificationThrottle.category(50));
+        assertEquals(1, NotificationThrottle.category(100));
+        assertEquals(2, NotificationThrottle.category(150));
+        assertEquals(3, NotificationThrottle.category(200));
+        assertEquals(4, NotificationThrottle.category(300));
+        assertEquals(5, NotificationThrottle.category(301));
+    }
+}
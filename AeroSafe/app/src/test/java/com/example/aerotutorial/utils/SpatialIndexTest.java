@@ -0,0 +1,125 @@
+package com.example.aerotutorial.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SpatialIndex lookups against brute force, and eviction once the index is full.
+ */
+public class SpatialIndexTest {
+
+    private static final double DHAKA_LAT = 23.8103;
+    private static final double DHAKA_LON = 90.4125;
+
+    @Test
+    public void nearest_matchesBruteForce() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        List<double[]> points = randomPoints(2000, 42);
+        for (int i = 0; i < points.size(); i++) {
+            index.put("p" + i, points.get(i)[0], points.get(i)[1], "p" + i);
+        }
+
+        List<Double> distances = new ArrayList<>();
+        for (double[] point : points) {
+            distances.add(SpatialIndex.distanceMeters(DHAKA_LAT, DHAKA_LON, point[0], point[1]));
+        }
+        Collections.sort(distances);
+
+        List<SpatialIndex.Neighbor<String>> nearest = index.nearest(DHAKA_LAT, DHAKA_LON, 10);
+        assertEquals(10, nearest.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(distances.get(i), nearest.get(i).getDistanceMeters(), 1e-6);
+        }
+    }
+
+    @Test
+    public void withinRadius_returnsOnlyPointsInsideNearestFirst() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.put("near", DHAKA_LAT + 0.005, DHAKA_LON, "near");  // ~0.56 km
+        index.put("mid", DHAKA_LAT + 0.02, DHAKA_LON, "mid");     // ~2.2 km
+        index.put("far", DHAKA_LAT + 0.1, DHAKA_LON, "far");      // ~11 km
+
+        List<SpatialIndex.Neighbor<String>> result = index.withinRadius(DHAKA_LAT, DHAKA_LON, 3000);
+        assertEquals(2, result.size());
+        assertEquals("near", result.get(0).getItem());
+        assertEquals("mid", result.get(1).getItem());
+    }
+
+    @Test
+    public void within_returnsPointsInBox() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.put("in", DHAKA_LAT, DHAKA_LON, "in");
+        index.put("edge", DHAKA_LAT + 0.1, DHAKA_LON + 0.1, "edge");
+        index.put("out", DHAKA_LAT + 0.2, DHAKA_LON, "out");
+
+        List<String> result = index.within(DHAKA_LAT - 0.1, DHAKA_LON - 0.1, DHAKA_LAT + 0.1, DHAKA_LON + 0.1);
+        Collections.sort(result);
+        assertEquals(2, result.size());
+        assertEquals("edge", result.get(0));
+        assertEquals("in", result.get(1));
+    }
+
+    @Test
+    public void put_sameIdMovesThePoint() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.put("a", DHAKA_LAT, DHAKA_LON, "a");
+        index.put("a", DHAKA_LAT + 1, DHAKA_LON, "a");
+
+        assertEquals(1, index.size());
+        assertTrue(index.withinRadius(DHAKA_LAT, DHAKA_LON, 1000).isEmpty());
+        assertEquals(1, index.withinRadius(DHAKA_LAT + 1, DHAKA_LON, 1000).size());
+    }
+
+    @Test
+    public void put_pastMaxSizeEvictsTheOldestPut() {
+        SpatialIndex<String> index = new SpatialIndex<>(3);
+        index.put("a", DHAKA_LAT, DHAKA_LON, "a");
+        index.put("b", DHAKA_LAT, DHAKA_LON, "b");
+        index.put("c", DHAKA_LAT, DHAKA_LON, "c");
+        // Putting "a" again makes "b" the oldest
+        index.put("a", DHAKA_LAT, DHAKA_LON, "a");
+        index.put("d", DHAKA_LAT, DHAKA_LON, "d");
+
+        assertEquals(3, index.size());
+        List<String> left = index.within(DHAKA_LAT - 1, DHAKA_LON - 1, DHAKA_LAT + 1, DHAKA_LON + 1);
+        Collections.sort(left);
+        assertEquals("[a, c, d]", left.toString());
+    }
+
+    @Test
+    public void remove_dropsThePoint() {
+        SpatialIndex<String> index = new SpatialIndex<>();
+        index.put("a", DHAKA_LAT, DHAKA_LON, "a");
+        index.put("b", DHAKA_LAT, DHAKA_LON, "b");
+        index.remove("a");
+
+        List<SpatialIndex.Neighbor<String>> nearest = index.nearest(DHAKA_LAT, DHAKA_LON, 5);
+        assertEquals(1, nearest.size());
+        assertEquals("b", nearest.get(0).getItem());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsZeroMaxSize() {
+        new SpatialIndex<String>(0);
+    }
+
+    // Points scattered over roughly 1 degree around Dhaka
+    private static List<double[]> randomPoints(int count, long seed) {
+        Random random = new Random(seed);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new double[] {
+                DHAKA_LAT + random.nextDouble() - 0.5,
+                DHAKA_LON + random.nextDouble() - 0.5
+            });
+        }
+        return points;
+    }
+}